@@ -0,0 +1,77 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+
+/**
+ * Deposit and withdraw on a single account, uncontended (one thread) and contended (all threads on the same account).
+ * Account is recreated every iteration so statement growth doesn't accumulate across iterations.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountBenchmark
+{
+    private final Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+
+    private Account account;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws AccountingOperationException
+    {
+        account = new Account("benchmarkAccountId");
+        account.depositAmount(Amount.newBuilder().setValue(new BigDecimal("1000000000000")).build());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Account deposit() throws AccountingOperationException
+    {
+        account.depositAmount(amount);
+        return account;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Account withdraw() throws AccountingOperationException
+    {
+        account.withDrawAmount(amount);
+        return account;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Account depositContended() throws AccountingOperationException
+    {
+        account.depositAmount(amount);
+        return account;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Account withdrawContended() throws AccountingOperationException
+    {
+        account.withDrawAmount(amount);
+        return account;
+    }
+}
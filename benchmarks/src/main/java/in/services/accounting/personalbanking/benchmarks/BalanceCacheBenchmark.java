@@ -0,0 +1,89 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.BalanceCache;
+import in.services.accounting.personalbanking.views.Beneficiary;
+
+/**
+ * Balance enquiries by account id mixed with one deposit per twenty enquiries, answered from balance cache (capacity of a
+ * tenth of accounts up to all of them) or resolved through beneficiary every time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalanceCacheBenchmark
+{
+    private static final int ACCOUNTS = 10_000;
+
+    private static final int READS_PER_WRITE = 20;
+
+    @Param({"1000", "10000"})
+    private int capacity;
+
+    private Beneficiary beneficiary;
+
+    private BalanceCache balanceCache;
+
+    private String[] accountIds;
+
+    private final Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+
+    @Setup
+    public void setUp()
+    {
+        beneficiary = Beneficiary.newBuilder().setBeneficiaryId("1").setBeneficiaryName("benchmark").build();
+        balanceCache = new BalanceCache(capacity, beneficiary::getAccountById);
+        accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++)
+        {
+            accountIds[i] = "benchmarkAccountId" + i;
+            beneficiary.linkAccount(new Account(accountIds[i]));
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Amount cached() throws AccountingOperationException
+    {
+        String accountId = accountIds[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        if (ThreadLocalRandom.current().nextInt(READS_PER_WRITE + 1) == 0)
+        {
+            beneficiary.getAccountById(accountId).depositAmount(amount);
+        }
+        return balanceCache.getBalance(accountId);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Amount uncached() throws AccountingOperationException
+    {
+        String accountId = accountIds[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        if (ThreadLocalRandom.current().nextInt(READS_PER_WRITE + 1) == 0)
+        {
+            beneficiary.getAccountById(accountId).depositAmount(amount);
+        }
+        return beneficiary.getAccountById(accountId).getNetAmount();
+    }
+}
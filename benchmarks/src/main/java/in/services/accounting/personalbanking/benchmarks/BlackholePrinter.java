@@ -0,0 +1,43 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.Printer;
+
+/**
+ * Printer consuming statement lines, so statement benchmarks measure rendering only.
+ */
+final class BlackholePrinter implements Printer
+{
+    private final AtomicLong counter = new AtomicLong();
+
+    private final Blackhole blackhole;
+
+    BlackholePrinter(Blackhole pBlackhole)
+    {
+        this.blackhole = pBlackhole;
+    }
+
+    @Override
+    public AtomicLong getCounter()
+    {
+        return counter;
+    }
+
+    @Override
+    public void print(String message)
+    {
+        blackhole.consume(message);
+    }
+
+    @Override
+    public void printAll(CharSequence... messages)
+    {
+        for (CharSequence message : messages)
+        {
+            blackhole.consume(message.length());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.BulkStatementJob;
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.Printer;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.Beneficiary;
+
+/**
+ * One statement cycle over all accounts of many beneficiaries with growing parallelism, wall time should fall close to
+ * linearly with the number of cores used. Statements are rendered into a per account printer which only counts characters.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkStatementBenchmark
+{
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    @Param({"100000"})
+    private int accountCount;
+
+    private List<Beneficiary> beneficiaries;
+
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() throws AccountingOperationException
+    {
+        beneficiaries = new ArrayList<>();
+        Amount amount = Amount.newBuilder().setValue(BigDecimal.TEN).build();
+        Beneficiary beneficiary = null;
+        for (int i = 0; i < accountCount; i++)
+        {
+            if (i % 100 == 0)
+            {
+                beneficiary = Beneficiary.newBuilder().setBeneficiaryId("bulk" + i).setBeneficiaryName("benchmark").build();
+                beneficiaries.add(beneficiary);
+            }
+            Account account = new Account("bulkAccountId" + i);
+            for (int j = 0; j < 10; j++)
+            {
+                account.depositAmount(amount);
+            }
+            beneficiary.linkAccount(account);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long statementCycle()
+    {
+        return new BulkStatementJob(pool).printStatements(beneficiaries, account -> new CountingPrinter()).getLineCount();
+    }
+
+    private static final class CountingPrinter implements Printer
+    {
+        private final AtomicLong counter = new AtomicLong();
+
+        private long characters;
+
+        @Override
+        public AtomicLong getCounter()
+        {
+            return counter;
+        }
+
+        @Override
+        public void print(String message)
+        {
+            printAll(message);
+        }
+
+        @Override
+        public void printAll(CharSequence... messages)
+        {
+            for (CharSequence message : messages)
+            {
+                characters += message.length();
+            }
+            counter.addAndGet(messages.length);
+        }
+    }
+}
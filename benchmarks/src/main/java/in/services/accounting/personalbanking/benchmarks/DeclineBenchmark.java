@@ -0,0 +1,104 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.TransferResult;
+
+/**
+ * Transfers where given percentage is declined for insufficient balance, through exception based API and result based API.
+ * Source account stays near empty: every accepted transfer is given back right away, so declines keep their share.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeclineBenchmark
+{
+    private static final int PATTERN_SIZE = 100;
+
+    @Param({"0", "50", "90", "100"})
+    public int declinePercent;
+
+    private final Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+
+    private final Amount largeAmount = Amount.newBuilder().setValue(new BigDecimal(1_000_000)).build();
+
+    private Amount[] pattern;
+
+    private int next;
+
+    private Account source;
+
+    private Account target;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws AccountingOperationException
+    {
+        source = new Account("declineSourceAccountId");
+        target = new Account("declineTargetAccountId");
+        source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(10)).build());
+        pattern = new Amount[PATTERN_SIZE];
+        for (int i = 0; i < PATTERN_SIZE; i++)
+        {
+            pattern[i] = i < declinePercent ? largeAmount : amount;
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean exceptionBased() throws AccountingOperationException
+    {
+        Amount transferAmount = nextAmount();
+        try
+        {
+            source.transferAmount(target, transferAmount);
+        }
+        catch (AccountingOperationException e)
+        {
+            return false;
+        }
+        target.transferAmount(source, transferAmount);
+        return true;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TransferResult resultBased() throws AccountingOperationException
+    {
+        Amount transferAmount = nextAmount();
+        TransferResult result = source.tryTransferAmount(target, transferAmount);
+        if (result.isSuccess())
+        {
+            target.tryTransferAmount(source, transferAmount);
+        }
+        return result;
+    }
+
+    private Amount nextAmount()
+    {
+        Amount transferAmount = pattern[next];
+        next = next == PATTERN_SIZE - 1 ? 0 : next + 1;
+        return transferAmount;
+    }
+}
@@ -0,0 +1,91 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.AccountingOperationType;
+import in.services.accounting.personalbanking.views.ActivityArchive;
+import in.services.accounting.personalbanking.views.StatementExporter;
+
+/**
+ * Export of a whole statement to a file, binary and CSV, with given share of the statement archived (archived entries of
+ * binary export are copied with transferTo).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark
+{
+    @Param({"1000000"})
+    private int statementSize;
+
+    @Param({"0", "90"})
+    private int archivedPercent;
+
+    private Path directory;
+
+    private ActivityArchive activityArchive;
+
+    private Account account;
+
+    private final StatementExporter statementExporter = new StatementExporter();
+
+    @Setup
+    public void setUp() throws IOException, AccountingOperationException
+    {
+        directory = Files.createTempDirectory("export");
+        activityArchive = new ActivityArchive(directory.resolve("archive"));
+        account = new Account("exportAccountId");
+        for (int i = 0; i < statementSize; i++)
+        {
+            account.replayActivity(i % 4 == 3 ? AccountingOperationType.WITHDRAW : AccountingOperationType.DEPOSIT, i, 100, i + 1);
+        }
+        account.archiveActivities(activityArchive, Instant.ofEpochSecond(0, (long) statementSize * archivedPercent / 100));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        activityArchive.close();
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public int exportBinary() throws IOException
+    {
+        return statementExporter.exportBinary(account, Instant.EPOCH, Instant.MAX, directory.resolve("statement.bin"));
+    }
+
+    @Benchmark
+    public int exportCsv() throws IOException
+    {
+        return statementExporter.exportCsv(account, Instant.EPOCH, Instant.MAX, directory.resolve("statement.csv"));
+    }
+}
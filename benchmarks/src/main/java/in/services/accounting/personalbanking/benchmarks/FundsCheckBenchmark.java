@@ -0,0 +1,110 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+
+/**
+ * Funds check of a withdrawal: the former rule (balance converted to double and compared with zero, BigDecimal subtraction)
+ * against the exact minor units rule of {@link Account}, with and without overdraft limit and holds in play.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FundsCheckBenchmark
+{
+    private final Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+
+    private final Amount largeAmount = Amount.newBuilder().setValue(new BigDecimal("1000000000000000")).build();
+
+    private BigDecimal legacyBalance;
+
+    private Account account;
+
+    private Account accountWithHolds;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws AccountingOperationException
+    {
+        legacyBalance = new BigDecimal("1000000000000");
+        account = new Account("benchmarkAccountId");
+        account.depositAmount(Amount.newBuilder().setValue(legacyBalance).build());
+        accountWithHolds = new Account("benchmarkHoldAccountId");
+        accountWithHolds.depositAmount(Amount.newBuilder().setValue(legacyBalance).build());
+        accountWithHolds.setOverdraftLimit(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+        accountWithHolds.placeHold(Amount.newBuilder().setValue(new BigDecimal(500)).build());
+    }
+
+    /**
+     * Check formerly done by Amount.subtractAmount.
+     */
+    @Benchmark
+    @Threads(1)
+    public BigDecimal legacyWithdraw() throws AccountingOperationException
+    {
+        if (legacyBalance.doubleValue() <= 0)
+        {
+            throw new AccountingOperationException("Insufficient Balance for withdrawal.");
+        }
+        legacyBalance = legacyBalance.subtract(amount.getValue());
+        return legacyBalance;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Account withdraw() throws AccountingOperationException
+    {
+        account.withDrawAmount(amount);
+        return account;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Account withdrawWithOverdraftAndHolds() throws AccountingOperationException
+    {
+        accountWithHolds.withDrawAmount(amount);
+        return accountWithHolds;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean declinedWithdraw()
+    {
+        try
+        {
+            account.withDrawAmount(largeAmount);
+            return true;
+        }
+        catch (AccountingOperationException e)
+        {
+            return false;
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Account withdrawContended() throws AccountingOperationException
+    {
+        account.withDrawAmount(amount);
+        return account;
+    }
+}
@@ -0,0 +1,66 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Beneficiary;
+
+/**
+ * Account lookup on beneficiaries with growing number of linked accounts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark
+{
+    @Param({"10", "1000", "10000"})
+    private int linkedAccounts;
+
+    private Beneficiary beneficiary;
+
+    private String[] accountIds;
+
+    @Setup
+    public void setUp()
+    {
+        beneficiary = Beneficiary.newBuilder().setBeneficiaryId("1").setBeneficiaryName("benchmark").build();
+        accountIds = new String[linkedAccounts];
+        for (int i = 0; i < linkedAccounts; i++)
+        {
+            accountIds[i] = "benchmarkAccountId" + i;
+            beneficiary.linkAccount(new Account(accountIds[i]));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Account getAccountById() throws AccountingOperationException
+    {
+        return beneficiary.getAccountById(accountIds[ThreadLocalRandom.current().nextInt(linkedAccounts)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Account getAccountByIdContended() throws AccountingOperationException
+    {
+        return beneficiary.getAccountById(accountIds[ThreadLocalRandom.current().nextInt(linkedAccounts)]);
+    }
+}
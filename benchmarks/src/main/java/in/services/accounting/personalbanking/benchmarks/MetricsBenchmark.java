@@ -0,0 +1,76 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.metrics.LedgerMetrics;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.MetricsSink;
+import in.services.accounting.personalbanking.views.TransferResult;
+
+/**
+ * Cost of instrumentation: transfers back and forth between two accounts without metrics sink and with built-in metrics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark
+{
+    @Param({"false", "true"})
+    public boolean metricsEnabled;
+
+    private final Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+
+    private Account source;
+
+    private Account target;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws AccountingOperationException
+    {
+        Account.setMetricsSink(metricsEnabled ? new LedgerMetrics() : MetricsSink.NONE);
+        source = new Account("metricsSourceAccountId");
+        target = new Account("metricsTargetAccountId");
+        source.depositAmount(Amount.newBuilder().setValue(new BigDecimal("1000000000000")).build());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown()
+    {
+        Account.setMetricsSink(MetricsSink.NONE);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TransferResult transfer() throws AccountingOperationException
+    {
+        return source.tryTransferAmount(target, amount);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TransferResult transferContended() throws AccountingOperationException
+    {
+        return source.tryTransferAmount(target, amount);
+    }
+}
@@ -0,0 +1,89 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.TransactionMediatorPlatform;
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.LedgerSequencer;
+import in.services.accounting.personalbanking.views.TransferResult;
+
+/**
+ * Transfers between random account pairs made by all threads, either directly under account locks or published to the single
+ * writer sequencer. Sequenced throughput is bounded by the business thread (producers wait while the ring is full), it stays
+ * flat when few accounts make the locked path contended.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SequencerBenchmark
+{
+    @Param({"2", "1000"})
+    private int accountCount;
+
+    private final Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+
+    private Account[] accounts;
+
+    private LedgerSequencer sequencer;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws AccountingOperationException
+    {
+        accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++)
+        {
+            accounts[i] = new Account("sequencerAccountId" + i);
+            accounts[i].depositAmount(Amount.newBuilder().setValue(new BigDecimal("1000000000000")).build());
+        }
+        sequencer = TransactionMediatorPlatform.getInstance().startSequencer(1 << 14, Collections.emptyList());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown()
+    {
+        sequencer.close();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public TransferResult locked() throws AccountingOperationException
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accountCount);
+        int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+        return accounts[from].tryTransferAmount(accounts[to], amount);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long sequenced()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accountCount);
+        int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+        return sequencer.publish(accounts[from], accounts[to], amount, null);
+    }
+}
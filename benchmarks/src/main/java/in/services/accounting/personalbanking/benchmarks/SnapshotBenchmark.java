@@ -0,0 +1,81 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.BalanceSnapshot;
+
+/**
+ * Balance enquiries of three readers against one account receiving deposits from a fourth thread: optimistic snapshot reads
+ * against reads holding account lock ({@link Account#getAvailableAmount()}), the way reads were made consistent before. Both
+ * reads and deposits are reported per group.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class SnapshotBenchmark
+{
+    private final Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+
+    private Account account;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        account = new Account("benchmarkAccountId");
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public BalanceSnapshot snapshotRead()
+    {
+        return account.getBalanceSnapshot();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public Account snapshotDeposit() throws AccountingOperationException
+    {
+        account.depositAmount(amount);
+        return account;
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public Amount lockedRead()
+    {
+        return account.getAvailableAmount();
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public Account lockedDeposit() throws AccountingOperationException
+    {
+        account.depositAmount(amount);
+        return account;
+    }
+}
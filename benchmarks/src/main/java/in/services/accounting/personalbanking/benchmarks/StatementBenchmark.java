@@ -0,0 +1,74 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.AccountingOperationType;
+import in.services.accounting.personalbanking.views.Amount;
+
+/**
+ * Full and filtered statement printing for growing statement sizes. Filtered statement covers the last entries only
+ * (window starts right before the last hundred activities).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementBenchmark
+{
+    @Param({"1000", "100000", "1000000"})
+    private int statementSize;
+
+    private Account account;
+
+    private Instant windowStart;
+
+    private Instant windowEnd;
+
+    @Setup
+    public void setUp() throws AccountingOperationException
+    {
+        account = new Account("benchmarkAccountId");
+        Amount amount = Amount.newBuilder().setValue(BigDecimal.TEN).build();
+        for (int i = 0; i < statementSize; i++)
+        {
+            account.depositAmount(amount);
+            if (i == statementSize - 100)
+            {
+                windowStart = Instant.now();
+            }
+        }
+        windowEnd = Instant.now().plus(1, ChronoUnit.DAYS);
+    }
+
+    @Benchmark
+    public void printFullStatement(Blackhole pBlackhole)
+    {
+        account.printFullStatement(new BlackholePrinter(pBlackhole));
+    }
+
+    @Benchmark
+    public void printFilteredStatement(Blackhole pBlackhole)
+    {
+        account.printFilteredStatement(new BlackholePrinter(pBlackhole), AccountingOperationType.DEPOSIT, windowStart, windowEnd);
+    }
+}
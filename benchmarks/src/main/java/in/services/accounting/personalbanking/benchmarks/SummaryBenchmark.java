@@ -0,0 +1,79 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.AccountingOperationType;
+import in.services.accounting.personalbanking.views.ActivityLog;
+import in.services.accounting.personalbanking.views.StatementSummary;
+
+/**
+ * Summary of a 30 day period (starting and ending in the middle of a day) of a statement spread over a year, from day totals
+ * and by scanning the entries of the period.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SummaryBenchmark
+{
+    private static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+
+    @Param({"100000", "1000000"})
+    private int statementSize;
+
+    private Account account;
+
+    private Instant periodStart;
+
+    private Instant periodEnd;
+
+    @Setup
+    public void setUp()
+    {
+        account = new Account("summaryAccountId");
+        long step = 365 * DAY_NANOS / statementSize;
+        for (int i = 0; i < statementSize; i++)
+        {
+            account.replayActivity(i % 4 == 0 ? AccountingOperationType.WITHDRAW : AccountingOperationType.DEPOSIT, i * step, 100, i + 1);
+        }
+        periodStart = Instant.EPOCH.plus(200, ChronoUnit.DAYS).plus(6, ChronoUnit.HOURS);
+        periodEnd = periodStart.plus(30, ChronoUnit.DAYS);
+    }
+
+    @Benchmark
+    public StatementSummary summary()
+    {
+        return account.getSummary(AccountingOperationType.BOTH, periodStart, periodEnd);
+    }
+
+    @Benchmark
+    public long scan()
+    {
+        ActivityLog activityLog = account.getActivityLog();
+        long total = 0;
+        int end = activityLog.indexOf(ActivityLog.toEpochNanos(periodEnd));
+        for (int index = activityLog.indexOf(ActivityLog.toEpochNanos(periodStart)); index < end; index++)
+        {
+            long minorUnits = activityLog.getTransactionMinorUnits(index);
+            total += activityLog.getAccountingOperationType(index) == AccountingOperationType.DEPOSIT ? minorUnits : -minorUnits;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,84 @@
+package in.services.accounting.personalbanking.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import in.services.accounting.personalbanking.TransactionMediatorPlatform;
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.Beneficiary;
+
+/**
+ * Transfers between random account pairs of a single beneficiary. Few accounts means high contention, many accounts means
+ * mostly disjoint pairs.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark
+{
+    @Param({"2", "1000", "100000"})
+    private int accountCount;
+
+    private final Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+
+    private Beneficiary beneficiary;
+
+    private String[] accountIds;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws AccountingOperationException
+    {
+        beneficiary = Beneficiary.newBuilder().setBeneficiaryId("1").setBeneficiaryName("benchmark").build();
+        accountIds = new String[accountCount];
+        for (int i = 0; i < accountCount; i++)
+        {
+            accountIds[i] = "benchmarkAccountId" + i;
+            Account account = new Account(accountIds[i]);
+            account.depositAmount(Amount.newBuilder().setValue(new BigDecimal("1000000000000")).build());
+            beneficiary.linkAccount(account);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Beneficiary transfer() throws AccountingOperationException
+    {
+        return transferRandomPair();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Beneficiary transferContended() throws AccountingOperationException
+    {
+        return transferRandomPair();
+    }
+
+    private Beneficiary transferRandomPair() throws AccountingOperationException
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accountCount);
+        int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+        TransactionMediatorPlatform.getInstance().transferAmount(beneficiary, beneficiary, accountIds[from], accountIds[to], amount);
+        return beneficiary;
+    }
+}
@@ -0,0 +1,190 @@
+package in.services.accounting.personalbanking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+
+/**
+ * Directory of all accounts known to the platform, resolves account id to account irrespective of beneficiary.
+ * Accounts are partitioned by hash of account id across shards, each shard has its own lock and map, so lookups and
+ * registrations on different shards never contend.
+ */
+public class AccountRegistry
+{
+    private final Shard[] shards;
+
+    private final int shardMask;
+
+    /**
+     * Creates registry with shard count derived from number of available processors.
+     */
+    public AccountRegistry()
+    {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Creates registry with at least given number of shards (rounded up to power of two).
+     *
+     * @param pShardCount
+     */
+    public AccountRegistry(int pShardCount)
+    {
+        int shardCount = pShardCount <= 1 ? 1 : Integer.highestOneBit(pShardCount - 1) << 1;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            shards[i] = new Shard();
+        }
+        shardMask = shardCount - 1;
+    }
+
+    /**
+     * Register account. Account id must be unique across registry.
+     *
+     * @param pAccount
+     * @return false when another account is already registered with same account id.
+     */
+    public boolean register(Account pAccount)
+    {
+        Shard shard = shardOf(pAccount.getAccountId());
+        shard.lock.writeLock().lock();
+        try
+        {
+            return shard.accounts.putIfAbsent(pAccount.getAccountId(), pAccount) == null;
+        }
+        finally
+        {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove account from registry.
+     *
+     * @param pAccountId
+     * @return removed account, or empty when account id is not registered.
+     */
+    public Optional<Account> unregister(String pAccountId)
+    {
+        Shard shard = shardOf(pAccountId);
+        shard.lock.writeLock().lock();
+        try
+        {
+            return Optional.ofNullable(shard.accounts.remove(pAccountId));
+        }
+        finally
+        {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns account registered with given account id, or empty.
+     *
+     * @param pAccountId
+     * @return
+     */
+    public Optional<Account> findAccountById(String pAccountId)
+    {
+        return Optional.ofNullable(lookup(pAccountId));
+    }
+
+    /**
+     * Returns account registered with given account id.
+     *
+     * @param pAccountId
+     * @return
+     * @throws AccountingOperationException when account id is not registered.
+     */
+    public Account getAccountById(String pAccountId) throws AccountingOperationException
+    {
+        Account account = lookup(pAccountId);
+        if (account == null)
+        {
+            throw new AccountingOperationException("Account not found.");
+        }
+        return account;
+    }
+
+    /**
+     * Number of registered accounts.
+     *
+     * @return
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Shard shard : shards)
+        {
+            shard.lock.readLock().lock();
+            try
+            {
+                size += shard.accounts.size();
+            }
+            finally
+            {
+                shard.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    public int getShardCount()
+    {
+        return shards.length;
+    }
+
+    /**
+     * Returns copy of accounts registered in given shard.
+     *
+     * @param pShard
+     * @return
+     */
+    public List<Account> getAccountsOfShard(int pShard)
+    {
+        Shard shard = shards[pShard];
+        shard.lock.readLock().lock();
+        try
+        {
+            return new ArrayList<>(shard.accounts.values());
+        }
+        finally
+        {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    private Account lookup(String pAccountId)
+    {
+        Shard shard = shardOf(pAccountId);
+        shard.lock.readLock().lock();
+        try
+        {
+            return shard.accounts.get(pAccountId);
+        }
+        finally
+        {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    private Shard shardOf(String pAccountId)
+    {
+        int hash = pAccountId.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    private static final class Shard
+    {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<String, Account> accounts = new HashMap<>();
+    }
+}
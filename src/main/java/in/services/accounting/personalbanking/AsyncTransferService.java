@@ -0,0 +1,254 @@
+package in.services.accounting.personalbanking;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.TransferResult;
+
+/**
+ * Asynchronous facade of {@link TransactionMediatorPlatform} transfers. Caller gets a future right away and never waits for
+ * an account.
+ * <p>
+ * Every source account has a mailbox: transfers from the same account run one at a time in submission order, transfers from
+ * different accounts run in parallel on the executor (a virtual thread per task executor fits where the runtime has one).
+ * Mailbox tasks block, on account locks and on journal group commit, so executor is supplied by caller and must be sized for
+ * blocking work: a pool shared with non-blocking work, ex: {@link java.util.concurrent.ForkJoinPool#commonPool()}, serializes
+ * transfers behind fsync and starves its other users.
+ * The transfer itself still locks target account for the instant of the credit, so that it stays one atomic operation
+ * recorded as one journal record.
+ * <p>
+ * A mailbox holds at most a bounded number of pending transfers, a transfer beyond that completes right away with
+ * {@link TransferResult#OVERLOADED}. A mailbox is removed once drained, so idle accounts hold no memory.
+ */
+public final class AsyncTransferService
+{
+    private static final int DEFAULT_MAILBOX_CAPACITY = 1024;
+
+    // Transfers run by a mailbox before it yields its thread to other mailboxes
+    private static final int MAILBOX_BATCH_SIZE = 64;
+
+    private final TransactionMediatorPlatform platform;
+
+    private final Executor executor;
+
+    private final int mailboxCapacity;
+
+    // Mailbox by account id of source account, created on first transfer and removed when drained. Transfers are queued and
+    // mailboxes removed under the lock of their map entry.
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * @param pPlatform
+     * @param pExecutor runs mailboxes, must tolerate tasks blocking on locks and fsync
+     */
+    public AsyncTransferService(TransactionMediatorPlatform pPlatform, Executor pExecutor)
+    {
+        this(pPlatform, pExecutor, DEFAULT_MAILBOX_CAPACITY);
+    }
+
+    /**
+     * @param pPlatform
+     * @param pExecutor        runs mailboxes, must tolerate tasks blocking on locks and fsync
+     * @param pMailboxCapacity maximum number of pending transfers per source account
+     */
+    public AsyncTransferService(TransactionMediatorPlatform pPlatform, Executor pExecutor, int pMailboxCapacity)
+    {
+        if (pMailboxCapacity <= 0)
+        {
+            throw new IllegalArgumentException("Mailbox capacity must be positive.");
+        }
+        this.platform = pPlatform;
+        this.executor = Objects.requireNonNull(pExecutor, "Executor is required.");
+        this.mailboxCapacity = pMailboxCapacity;
+    }
+
+    /**
+     * Transfer amount between accounts resolved through account registry of the platform.
+     *
+     * @param pFromAccountId
+     * @param pToAccountId
+     * @param pAmount
+     * @return future completed with outcome, or exceptionally when transfer can't be made durable
+     */
+    public CompletableFuture<TransferResult> transferAmount(String pFromAccountId, String pToAccountId, Amount pAmount)
+    {
+        AccountRegistry accountRegistry = platform.getAccountRegistry();
+        Account fromAccount = accountRegistry.findAccountById(pFromAccountId).orElse(null);
+        Account toAccount = accountRegistry.findAccountById(pToAccountId).orElse(null);
+        if (fromAccount == null || toAccount == null)
+        {
+            return CompletableFuture.completedFuture(TransferResult.ACCOUNT_NOT_FOUND);
+        }
+        return transferAmount(fromAccount, toAccount, pAmount);
+    }
+
+    /**
+     * Transfer amount between two accounts, converting amount when currencies differ (see platform rates).
+     *
+     * @param pFromAccount
+     * @param pToAccount
+     * @param pAmount
+     * @return future completed with outcome, or exceptionally when transfer can't be made durable
+     */
+    public CompletableFuture<TransferResult> transferAmount(Account pFromAccount, Account pToAccount, Amount pAmount)
+    {
+        Transfer transfer = new Transfer(pFromAccount, pToAccount, pAmount);
+        Mailbox mailbox = mailboxes.compute(pFromAccount.getAccountId(), (accountId, current) -> {
+            Mailbox target = current != null ? current : new Mailbox(accountId);
+            // only drain decrements pending meanwhile, capacity is never exceeded
+            if (target.pending.get() < mailboxCapacity)
+            {
+                target.pending.incrementAndGet();
+                target.transfers.offer(transfer);
+                transfer.queued = true;
+            }
+            return target;
+        });
+        if (transfer.queued)
+        {
+            // outside of map entry lock, executor may run mailbox right away
+            mailbox.schedule();
+        }
+        else
+        {
+            transfer.complete(TransferResult.OVERLOADED);
+        }
+        return transfer;
+    }
+
+    /**
+     * Number of transfers waiting in mailbox of given account, including the running one.
+     *
+     * @param pAccountId
+     * @return
+     */
+    public int getPendingTransfers(String pAccountId)
+    {
+        Mailbox mailbox = mailboxes.get(pAccountId);
+        return mailbox == null ? 0 : mailbox.pending.get();
+    }
+
+    /**
+     * Number of source accounts having transfers queued or running.
+     *
+     * @return
+     */
+    public int getMailboxCount()
+    {
+        return mailboxes.size();
+    }
+
+    private final class Transfer extends CompletableFuture<TransferResult>
+    {
+        private final Account fromAccount;
+
+        private final Account toAccount;
+
+        private final Amount amount;
+
+        // Set when transfer is accepted into mailbox, read by submitting thread only
+        private boolean queued;
+
+        private Transfer(Account pFromAccount, Account pToAccount, Amount pAmount)
+        {
+            this.fromAccount = pFromAccount;
+            this.toAccount = pToAccount;
+            this.amount = pAmount;
+        }
+
+        private void run()
+        {
+            try
+            {
+                complete(platform.transfer(fromAccount, toAccount, amount));
+            }
+            catch (Exception e)
+            {
+                completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Queue of transfers of one source account, drained by at most one executor thread at a time.
+     */
+    private final class Mailbox implements Runnable
+    {
+        private final String accountId;
+
+        private final ConcurrentLinkedQueue<Transfer> transfers = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        // Set while mailbox is submitted to or running on executor
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Mailbox(String pAccountId)
+        {
+            this.accountId = pAccountId;
+        }
+
+        @Override
+        public void run()
+        {
+            for (int i = 0; i < MAILBOX_BATCH_SIZE; i++)
+            {
+                Transfer transfer = transfers.poll();
+                if (transfer == null)
+                {
+                    break;
+                }
+                transfer.run();
+                pending.decrementAndGet();
+            }
+            scheduled.set(false);
+            // a transfer offered after the last poll found the mailbox still scheduled and relies on this check
+            if (!transfers.isEmpty())
+            {
+                schedule();
+            }
+            else
+            {
+                removeIfDrained();
+            }
+        }
+
+        /**
+         * Remove mailbox from map unless a transfer was queued meanwhile, its submitter schedules it again.
+         */
+        private void removeIfDrained()
+        {
+            mailboxes.computeIfPresent(accountId, (id, current) -> current == this && pending.get() == 0 ? null : current);
+        }
+
+        private void schedule()
+        {
+            if (scheduled.compareAndSet(false, true))
+            {
+                try
+                {
+                    executor.execute(this);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    for (Transfer transfer = transfers.poll(); transfer != null; transfer = transfers.poll())
+                    {
+                        pending.decrementAndGet();
+                        transfer.completeExceptionally(e);
+                    }
+                    scheduled.set(false);
+                    removeIfDrained();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package in.services.accounting.personalbanking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.Printer;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Beneficiary;
+
+/**
+ * Full statements of every account of many beneficiaries, rendered in parallel on a fork-join pool. Accounts of all
+ * beneficiaries are split into equal ranges, so a beneficiary with many accounts doesn't hold back the job, and every account
+ * is rendered into its own output: a printer given by the caller or a file.
+ * <p>
+ * Progress of a running job can be read from any thread. A job runs one statement cycle at a time.
+ */
+public final class BulkStatementJob
+{
+    // Accounts rendered by one task without splitting further
+    private static final int ACCOUNTS_PER_TASK = 256;
+
+    private static final String FILE_SUFFIX = ".txt";
+
+    private final ForkJoinPool pool;
+
+    private final LongAdder completedAccounts = new LongAdder();
+
+    private volatile long totalAccounts;
+
+    public BulkStatementJob()
+    {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BulkStatementJob(ForkJoinPool pPool)
+    {
+        this.pool = pPool;
+    }
+
+    /**
+     * Print full statement of every account through a printer created for it. Printers should not be shared between accounts,
+     * they are used from several threads at once otherwise.
+     *
+     * @param pBeneficiaries
+     * @param pPrinterFactory
+     * @return
+     */
+    public synchronized Report printStatements(Collection<Beneficiary> pBeneficiaries, Function<Account, Printer> pPrinterFactory)
+    {
+        return run(pBeneficiaries, null, pPrinterFactory);
+    }
+
+    /**
+     * Write full statement of every account to its own file, directory/beneficiary id/account id.txt (ids are URL encoded,
+     * dots included, so that no id can name a file outside of directory). Existing files are replaced.
+     *
+     * @param pBeneficiaries
+     * @param pDirectory
+     * @return
+     * @throws IOException
+     */
+    public synchronized Report writeStatements(Collection<Beneficiary> pBeneficiaries, Path pDirectory) throws IOException
+    {
+        try
+        {
+            return run(pBeneficiaries, pDirectory, null);
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Number of accounts rendered so far by the running (or last) job.
+     *
+     * @return
+     */
+    public long getCompletedAccounts()
+    {
+        return completedAccounts.sum();
+    }
+
+    /**
+     * Number of accounts of the running (or last) job.
+     *
+     * @return
+     */
+    public long getTotalAccounts()
+    {
+        return totalAccounts;
+    }
+
+    private Report run(Collection<Beneficiary> pBeneficiaries, Path pDirectory, Function<Account, Printer> pPrinterFactory)
+    {
+        long start = System.nanoTime();
+        List<Account> accounts = new ArrayList<>();
+        List<Path> directories = new ArrayList<>();
+        for (Beneficiary beneficiary : pBeneficiaries)
+        {
+            Path directory = pDirectory == null ? null : createDirectory(resolve(pDirectory, beneficiary.getBeneficiaryId(), ""));
+            for (Account account : beneficiary.getAccounts())
+            {
+                accounts.add(account);
+                directories.add(directory);
+            }
+        }
+        completedAccounts.reset();
+        totalAccounts = accounts.size();
+        AtomicLong lines = new AtomicLong();
+        pool.invoke(new RenderTask(accounts.toArray(new Account[0]), directories.toArray(new Path[0]), pPrinterFactory, lines, 0, accounts.size()));
+        return new Report(accounts.size(), lines.get(), System.nanoTime() - start);
+    }
+
+    private static Path createDirectory(Path pDirectory)
+    {
+        try
+        {
+            return Files.createDirectories(pDirectory);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns file of given id in directory. Id is URL encoded with dots escaped as well, so "." or ".." can't name
+     * directory itself or its parent; resolved file is checked to be a child of directory all the same.
+     */
+    private static Path resolve(Path pDirectory, String pId, String pSuffix)
+    {
+        String fileName;
+        try
+        {
+            fileName = URLEncoder.encode(pId, StandardCharsets.UTF_8.name()).replace(".", "%2E") + pSuffix;
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        Path directory = pDirectory.normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (fileName.isEmpty() || !directory.equals(file.getParent()))
+        {
+            throw new IllegalArgumentException("Id can't be used as file name: " + pId);
+        }
+        return file;
+    }
+
+    /**
+     * Renders a range of accounts, splitting it in halves while it's larger than {@link #ACCOUNTS_PER_TASK}.
+     */
+    private final class RenderTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Account[] accounts;
+
+        // Directory of each account, null entries when printing through printer factory
+        private final Path[] directories;
+
+        private final Function<Account, Printer> printerFactory;
+
+        private final AtomicLong lines;
+
+        private final int from;
+
+        private final int to;
+
+        private RenderTask(Account[] pAccounts, Path[] pDirectories, Function<Account, Printer> pPrinterFactory, AtomicLong pLines, int pFrom, int pTo)
+        {
+            this.accounts = pAccounts;
+            this.directories = pDirectories;
+            this.printerFactory = pPrinterFactory;
+            this.lines = pLines;
+            this.from = pFrom;
+            this.to = pTo;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > ACCOUNTS_PER_TASK)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RenderTask(accounts, directories, printerFactory, lines, from, middle),
+                        new RenderTask(accounts, directories, printerFactory, lines, middle, to));
+                return;
+            }
+            long printed = 0;
+            BufferPrinter buffer = printerFactory == null ? new BufferPrinter() : null;
+            for (int i = from; i < to; i++)
+            {
+                Printer printer = buffer == null ? printerFactory.apply(accounts[i]) : buffer;
+                long before = printer.getCounter().get();
+                accounts[i].printFullStatement(printer);
+                printed += printer.getCounter().get() - before;
+                if (buffer != null)
+                {
+                    buffer.writeTo(resolve(directories[i], accounts[i].getAccountId(), FILE_SUFFIX));
+                }
+                completedAccounts.increment();
+            }
+            lines.addAndGet(printed);
+        }
+    }
+
+    /**
+     * Printer collecting statement of one account in memory, reused for all accounts of a task.
+     */
+    private static final class BufferPrinter implements Printer
+    {
+        private final AtomicLong counter = new AtomicLong();
+
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public AtomicLong getCounter()
+        {
+            return counter;
+        }
+
+        @Override
+        public void print(String message)
+        {
+            printAll(message);
+        }
+
+        @Override
+        public void printAll(CharSequence... messages)
+        {
+            for (CharSequence message : messages)
+            {
+                text.append(message).append(System.lineSeparator());
+            }
+            counter.addAndGet(messages.length);
+        }
+
+        /**
+         * Write collected text to file and clear it.
+         */
+        private void writeTo(Path pFile)
+        {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+            text.setLength(0);
+            try (FileChannel channel = FileChannel.open(pFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                while (bytes.hasRemaining())
+                {
+                    channel.write(bytes);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Outcome of a statement cycle.
+     */
+    public static final class Report
+    {
+        private final long accountCount;
+
+        private final long lineCount;
+
+        private final long elapsedNanos;
+
+        private Report(long pAccountCount, long pLineCount, long pElapsedNanos)
+        {
+            this.accountCount = pAccountCount;
+            this.lineCount = pLineCount;
+            this.elapsedNanos = pElapsedNanos;
+        }
+
+        public long getAccountCount()
+        {
+            return accountCount;
+        }
+
+        /**
+         * Number of printed statement lines.
+         *
+         * @return
+         */
+        public long getLineCount()
+        {
+            return lineCount;
+        }
+
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        /**
+         * Throughput of the job, in accounts per second of wall time.
+         *
+         * @return
+         */
+        public double getAccountsPerSecond()
+        {
+            return elapsedNanos == 0 ? 0 : accountCount * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Report{" +
+                    "accountCount=" + accountCount +
+                    ", lineCount=" + lineCount +
+                    ", elapsedNanos=" + elapsedNanos +
+                    ", accountsPerSecond=" + getAccountsPerSecond() +
+                    '}';
+        }
+    }
+}
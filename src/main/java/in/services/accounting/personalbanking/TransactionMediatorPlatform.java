@@ -1,14 +1,33 @@
 
 package in.services.accounting.personalbanking;
 
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
 import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
 import in.services.accounting.personalbanking.views.Amount;
 import in.services.accounting.personalbanking.views.Beneficiary;
+import in.services.accounting.personalbanking.views.FxRateTable;
+import in.services.accounting.personalbanking.views.LedgerSequencer;
+import in.services.accounting.personalbanking.views.TransferBatch;
+import in.services.accounting.personalbanking.views.TransferInstruction;
+import in.services.accounting.personalbanking.views.TransferResult;
 
 public class TransactionMediatorPlatform
 {
     private static final TransactionMediatorPlatform transactionMediatorPlatform = new TransactionMediatorPlatform();
 
+    // Directory used for transfers addressed by account id only
+    private final AccountRegistry accountRegistry = new AccountRegistry();
+
+    // Rates used for transfers between accounts of different currencies, replaced as a whole on update
+    private final AtomicReference<FxRateTable> fxRateTable = new AtomicReference<>(FxRateTable.empty(Amount.DEFAULT_UNIT_OF_MEASUREMENT));
+
     private TransactionMediatorPlatform()
     {
     }
@@ -19,7 +38,104 @@ public class TransactionMediatorPlatform
     }
 
     /**
-     * Transfer amount from one account to another
+     * Returns registry used for resolving account id to account. Accounts must be registered before they can be used for
+     * transfers by account id.
+     *
+     * @return
+     */
+    public AccountRegistry getAccountRegistry()
+    {
+        return accountRegistry;
+    }
+
+    /**
+     * Returns exchange rates currently used for cross-currency transfers.
+     *
+     * @return
+     */
+    public FxRateTable getFxRateTable()
+    {
+        return fxRateTable.get();
+    }
+
+    /**
+     * Replace exchange rates used for cross-currency transfers. Transfers running meanwhile use either old or new table, never a mix.
+     *
+     * @param pFxRateTable
+     */
+    public void setFxRateTable(FxRateTable pFxRateTable)
+    {
+        fxRateTable.set(pFxRateTable);
+    }
+
+    /**
+     * Update rate of one currency against base currency of current table (copy-on-write, concurrent updates aren't lost).
+     *
+     * @param pUnitOfMeasurement
+     * @param pRate units of given currency per unit of base currency
+     */
+    public void updateFxRate(String pUnitOfMeasurement, BigDecimal pRate)
+    {
+        FxRateTable current;
+        do
+        {
+            current = fxRateTable.get();
+        }
+        while (!fxRateTable.compareAndSet(current, current.withRate(pUnitOfMeasurement, pRate)));
+    }
+
+    /**
+     * Start single writer execution of transfers: transfers published to returned sequencer are applied one by one by its
+     * business thread at current rates of the platform. Accounts used through the sequencer should not be mutated otherwise.
+     *
+     * @param pRingSize  number of pending transfers, power of two
+     * @param pListeners receive applied transfers
+     * @return started sequencer, to be closed by caller
+     */
+    public LedgerSequencer startSequencer(int pRingSize, List<LedgerSequencer.TransferListener> pListeners)
+    {
+        LedgerSequencer sequencer = new LedgerSequencer(pRingSize, this::getFxRateTable, pListeners);
+        sequencer.start();
+        return sequencer;
+    }
+
+    /**
+     * Transfer amount from one account to another, both accounts are resolved through account registry.
+     *
+     * @param pFromAccountId
+     * @param pToAccountId
+     * @param pAmount
+     * @throws AccountingOperationException
+     */
+    public void transferAmount(String pFromAccountId, String pToAccountId, Amount pAmount) throws AccountingOperationException
+    {
+        tryTransferAmount(pFromAccountId, pToAccountId, pAmount).throwIfFailed();
+    }
+
+    /**
+     * Transfer amount from one account to another, both accounts are resolved through account registry. Unknown account and
+     * declined transfer are reported as result instead of exception.
+     *
+     * @param pFromAccountId
+     * @param pToAccountId
+     * @param pAmount
+     * @return
+     * @throws AccountingOperationException only when transfer can't be made durable
+     */
+    public TransferResult tryTransferAmount(String pFromAccountId, String pToAccountId, Amount pAmount) throws AccountingOperationException
+    {
+        Account fromAccount = accountRegistry.findAccountById(pFromAccountId).orElse(null);
+        Account toAccount = accountRegistry.findAccountById(pToAccountId).orElse(null);
+        if (fromAccount == null || toAccount == null)
+        {
+            return TransferResult.ACCOUNT_NOT_FOUND;
+        }
+        return transfer(fromAccount, toAccount, pAmount);
+    }
+
+    /**
+     * Transfer amount from one account to another. Transfer is atomic, either both withdraw and deposit are applied or none of them.
+     * Platform itself holds no lock, only the two accounts involved are locked (see {@link in.services.accounting.personalbanking.views.Account#transferAmount}).
      *
      * @param pFromBeneficiary
      * @param pToBeneficiary
@@ -33,10 +149,83 @@ public class TransactionMediatorPlatform
         makeTransaction(pFromBeneficiary, pToBeneficiary, pFromBeneficiaryAccountId, pToBeneficiaryAccountId, pAmount);
     }
 
+    /**
+     * Transfer amount from one account to another, reporting unknown account and declined transfer as result instead of exception.
+     *
+     * @param pFromBeneficiary
+     * @param pToBeneficiary
+     * @param pFromBeneficiaryAccountId
+     * @param pToBeneficiaryAccountId
+     * @param pAmount
+     * @return
+     * @throws AccountingOperationException only when transfer can't be made durable
+     */
+    public TransferResult tryTransferAmount(Beneficiary pFromBeneficiary, Beneficiary pToBeneficiary, String pFromBeneficiaryAccountId, String pToBeneficiaryAccountId, Amount pAmount) throws AccountingOperationException
+    {
+        Account fromAccount = pFromBeneficiary.findAccountById(pFromBeneficiaryAccountId).orElse(null);
+        Account toAccount = pToBeneficiary.findAccountById(pToBeneficiaryAccountId).orElse(null);
+        if (fromAccount == null || toAccount == null)
+        {
+            return TransferResult.ACCOUNT_NOT_FOUND;
+        }
+        return transfer(fromAccount, toAccount, pAmount);
+    }
+
+    /**
+     * Transfer amounts for a batch of instructions. Every account is resolved and locked once per batch, transfers are netted per account
+     * and committed together (see {@link TransferBatch}). A failing instruction doesn't affect any account, remaining instructions are still applied.
+     *
+     * @param pInstructions
+     * @return result of each instruction, in instruction order
+     * @throws AccountingOperationException when applied transfers can't be made durable
+     */
+    public List<TransferResult> transferBatch(List<TransferInstruction> pInstructions) throws AccountingOperationException
+    {
+        TransferBatch batch = new TransferBatch(pInstructions.size());
+        Map<Beneficiary, Map<String, Account>> resolvedAccounts = new IdentityHashMap<>();
+        for (TransferInstruction instruction : pInstructions)
+        {
+            Account source = resolveAccount(resolvedAccounts, instruction.getFromBeneficiary(), instruction.getFromAccountId());
+            Account target = resolveAccount(resolvedAccounts, instruction.getToBeneficiary(), instruction.getToAccountId());
+            if (source == null || target == null)
+            {
+                batch.reject(TransferResult.ACCOUNT_NOT_FOUND);
+            }
+            else
+            {
+                batch.add(source, target, instruction.getAmount());
+            }
+        }
+        return batch.commit();
+    }
+
+    private static Account resolveAccount(Map<Beneficiary, Map<String, Account>> pResolvedAccounts, Beneficiary pBeneficiary, String pAccountId)
+    {
+        Map<String, Account> accounts = pResolvedAccounts.computeIfAbsent(pBeneficiary, beneficiary -> new HashMap<>());
+        Account account = accounts.get(pAccountId);
+        if (account == null && !accounts.containsKey(pAccountId))
+        {
+            account = pBeneficiary.findAccountById(pAccountId).orElse(null);
+            accounts.put(pAccountId, account);
+        }
+        return account;
+    }
+
     private void makeTransaction(Beneficiary pFromBeneficiary, Beneficiary pToBeneficiary, String pFromBeneficiaryAccountId, String pToBeneficiaryAccountId, Amount pAmount) throws AccountingOperationException
     {
-        pFromBeneficiary.getAccountById(pFromBeneficiaryAccountId).withDrawAmount(pAmount);
-        pToBeneficiary.getAccountById(pToBeneficiaryAccountId).depositAmount(pAmount);
+        transfer(pFromBeneficiary.getAccountById(pFromBeneficiaryAccountId), pToBeneficiary.getAccountById(pToBeneficiaryAccountId), pAmount).throwIfFailed();
+    }
+
+    /**
+     * Amount is in currency of source account, target account of a different currency is credited with converted amount.
+     */
+    TransferResult transfer(Account pFromAccount, Account pToAccount, Amount pAmount) throws AccountingOperationException
+    {
+        if (pFromAccount.getCurrencyCode() == pToAccount.getCurrencyCode())
+        {
+            return pFromAccount.tryTransferAmount(pToAccount, pAmount);
+        }
+        return pFromAccount.tryTransferAmount(pToAccount, pAmount, fxRateTable.get());
     }
 
 }
@@ -18,4 +18,18 @@ public interface Printer
      * @param message
      */
     void print(String message);
+
+    /**
+     * Print batch of messages, each message as a line. Messages are only valid for the duration of the call and must not be retained,
+     * callers reuse their buffers. Counter is incremented once per message.
+     *
+     * @param messages
+     */
+    default void printAll(CharSequence... messages)
+    {
+        for (CharSequence message : messages)
+        {
+            print(message.toString());
+        }
+    }
 }
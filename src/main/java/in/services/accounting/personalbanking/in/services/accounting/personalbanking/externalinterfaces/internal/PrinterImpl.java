@@ -1,5 +1,11 @@
 package in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.internal;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.concurrent.atomic.AtomicLong;
 
 import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.Printer;
@@ -9,8 +15,34 @@ import in.services.accounting.personalbanking.in.services.accounting.personalban
  */
 public class PrinterImpl implements Printer
 {
+    private static final int BUFFER_SIZE = 1 << 16;
+
     private final AtomicLong counter = new AtomicLong(0);
 
+    // Buffered sink, flushed once per print call
+    private final Writer writer;
+
+    // Scratch buffer used to copy messages into writer without creating strings
+    private final char[] chars = new char[BUFFER_SIZE];
+
+    /**
+     * Printer writing to console.
+     */
+    public PrinterImpl()
+    {
+        this(System.out);
+    }
+
+    /**
+     * Printer writing to given output stream.
+     *
+     * @param outputStream
+     */
+    public PrinterImpl(OutputStream outputStream)
+    {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream), BUFFER_SIZE);
+    }
+
     @Override
     public AtomicLong getCounter()
     {
@@ -25,7 +57,44 @@ public class PrinterImpl implements Printer
     @Override
     public void print(String message)
     {
-        System.out.println(message);
-        counter.incrementAndGet();
+        printAll(message);
+    }
+
+    /**
+     * Print all messages through buffer with a single flush, counter is incremented by number of messages.
+     *
+     * @param messages
+     */
+    @Override
+    public synchronized void printAll(CharSequence... messages)
+    {
+        try
+        {
+            for (CharSequence message : messages)
+            {
+                write(message);
+                writer.write(System.lineSeparator());
+            }
+            writer.flush();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        counter.addAndGet(messages.length);
+    }
+
+    private void write(CharSequence pMessage) throws IOException
+    {
+        int length = pMessage.length();
+        for (int start = 0; start < length; start += chars.length)
+        {
+            int end = Math.min(length, start + chars.length);
+            for (int i = start; i < end; i++)
+            {
+                chars[i - start] = pMessage.charAt(i);
+            }
+            writer.write(chars, 0, end - start);
+        }
     }
 }
@@ -0,0 +1,386 @@
+package in.services.accounting.personalbanking.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.AccountJournal;
+import in.services.accounting.personalbanking.views.ActivityLog;
+
+/**
+ * Write-ahead journal of account mutations, appended to a file.
+ * <p>
+ * Records are appended to an in-memory buffer (sequence of a record is file offset right after it). A writer waiting for its
+ * sequence either becomes leader, writing and forcing everything buffered so far with a single force() call, or waits for the
+ * current leader. Writers arriving while a force() is running are collected in the next group, so the number of force() calls
+ * stays bounded by disk latency instead of number of writers.
+ * <p>
+ * Record layout: int payload length, int crc32 of payload, payload (byte type, long epoch nanos, long minor units,
+ * account id, and target account id for transfers or unit of measurement for attach; ids as unsigned short length + utf-8 bytes;
+ * exchanges end with long minor units deposited to target, records of holds with long hold id).
+ */
+public final class Journal implements AccountJournal, Closeable
+{
+    static final int HEADER_SIZE = 8;
+
+    // type, epoch nanos, minor units, two ids of maximum length and target minor units or hold id
+    static final int MAX_PAYLOAD_SIZE = 1 + 8 + 8 + 2 * (2 + 0xFFFF) + 8;
+
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition flushed = lock.newCondition();
+
+    private final CRC32 crc = new CRC32();
+
+    // Records appended since last flush started
+    private ByteBuffer active = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+
+    // Buffer given to the leader, swapped with active when leader takes over
+    private ByteBuffer spare = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+
+    // File offset after last appended record
+    private long appendedPosition;
+
+    private volatile long durablePosition;
+
+    // Accounts attached or bound to this journal by account id, snapshots cover them whether registered or not
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    private boolean flushing;
+
+    private IOException failure;
+
+    private long forceCount;
+
+    private Journal(FileChannel pChannel) throws IOException
+    {
+        this.channel = pChannel;
+        this.appendedPosition = pChannel.size();
+        this.durablePosition = appendedPosition;
+    }
+
+    /**
+     * Open journal file for appending, file is created if it doesn't exist.
+     *
+     * @param pFile
+     * @return
+     * @throws IOException
+     */
+    public static Journal open(Path pFile) throws IOException
+    {
+        return new Journal(FileChannel.open(pFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    @Override
+    public long attached(Account pAccount, long pNetMinorUnits)
+    {
+        accounts.put(pAccount.getAccountId(), pAccount);
+        return append(JournalRecordType.ATTACH, pAccount.getAccountId(), pAccount.getNetAmount().getUnitOfMeasurement(), pNetMinorUnits, 0, 0);
+    }
+
+    @Override
+    public long deposited(Account pAccount, long pMinorUnits)
+    {
+        return append(JournalRecordType.DEPOSIT, pAccount.getAccountId(), null, pMinorUnits, 0, 0);
+    }
+
+    @Override
+    public long withdrawn(Account pAccount, long pMinorUnits)
+    {
+        return append(JournalRecordType.WITHDRAW, pAccount.getAccountId(), null, pMinorUnits, 0, 0);
+    }
+
+    @Override
+    public long transferred(Account pSource, Account pTarget, long pMinorUnits)
+    {
+        return append(JournalRecordType.TRANSFER, pSource.getAccountId(), pTarget.getAccountId(), pMinorUnits, 0, 0);
+    }
+
+    @Override
+    public long exchanged(Account pSource, Account pTarget, long pSourceMinorUnits, long pTargetMinorUnits)
+    {
+        return append(JournalRecordType.EXCHANGE, pSource.getAccountId(), pTarget.getAccountId(), pSourceMinorUnits, pTargetMinorUnits, 0);
+    }
+
+    @Override
+    public long overdraftLimitSet(Account pAccount, long pMinorUnits)
+    {
+        return append(JournalRecordType.OVERDRAFT_LIMIT, pAccount.getAccountId(), null, pMinorUnits, 0, 0);
+    }
+
+    @Override
+    public long holdPlaced(Account pAccount, long pHoldId, long pMinorUnits)
+    {
+        return append(JournalRecordType.HOLD, pAccount.getAccountId(), null, pMinorUnits, 0, pHoldId);
+    }
+
+    @Override
+    public long holdReleased(Account pAccount, long pHoldId)
+    {
+        return append(JournalRecordType.RELEASE, pAccount.getAccountId(), null, 0, 0, pHoldId);
+    }
+
+    @Override
+    public long holdCaptured(Account pAccount, long pHoldId, long pMinorUnits)
+    {
+        return append(JournalRecordType.CAPTURE, pAccount.getAccountId(), null, pMinorUnits, 0, pHoldId);
+    }
+
+    /**
+     * Track account bound to this journal without an attach record, ex: account recovered from it.
+     *
+     * @param pAccount
+     */
+    void track(Account pAccount)
+    {
+        accounts.put(pAccount.getAccountId(), pAccount);
+    }
+
+    /**
+     * Accounts attached or bound to this journal.
+     *
+     * @return
+     */
+    Collection<Account> getAccounts()
+    {
+        return accounts.values();
+    }
+
+    /**
+     * Wait until journal is durable up to given sequence. Caller becomes leader of next group commit if no flush is running.
+     *
+     * @param pSequence
+     * @throws AccountingOperationException when journal can't be written, journal stays failed afterwards.
+     */
+    @Override
+    public void awaitDurable(long pSequence) throws AccountingOperationException
+    {
+        if (durablePosition >= pSequence)
+        {
+            return;
+        }
+        lock.lock();
+        try
+        {
+            while (durablePosition < pSequence)
+            {
+                if (failure != null)
+                {
+                    throw new AccountingOperationException("Journal can't be written: " + failure.getMessage());
+                }
+                if (flushing)
+                {
+                    flushed.awaitUninterruptibly();
+                }
+                else
+                {
+                    flushGroup();
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of force() calls so far, each one made a group of records durable.
+     *
+     * @return
+     */
+    public long getForceCount()
+    {
+        lock.lock();
+        try
+        {
+            return forceCount;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * File offset after last appended record (durable or not).
+     *
+     * @return
+     */
+    public long getAppendedPosition()
+    {
+        lock.lock();
+        try
+        {
+            return appendedPosition;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * File offset up to which journal is durable.
+     *
+     * @return
+     */
+    public long getDurablePosition()
+    {
+        return durablePosition;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        long sequence;
+        lock.lock();
+        try
+        {
+            sequence = appendedPosition;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        try
+        {
+            awaitDurable(sequence);
+        }
+        catch (AccountingOperationException e)
+        {
+            throw new IOException(e.getMessage(), failure);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write and force everything appended so far. Called with lock held, lock is released during I/O.
+     */
+    private void flushGroup()
+    {
+        flushing = true;
+        ByteBuffer group = active;
+        active = spare;
+        spare = null;
+        long groupEnd = appendedPosition;
+        IOException groupFailure = null;
+        lock.unlock();
+        try
+        {
+            group.flip();
+            while (group.hasRemaining())
+            {
+                channel.write(group);
+            }
+            channel.force(false);
+        }
+        catch (IOException e)
+        {
+            groupFailure = e;
+        }
+        finally
+        {
+            lock.lock();
+        }
+        group.clear();
+        spare = group;
+        flushing = false;
+        forceCount++;
+        if (groupFailure != null)
+        {
+            failure = groupFailure;
+        }
+        else
+        {
+            durablePosition = groupEnd;
+        }
+        flushed.signalAll();
+    }
+
+    private long append(JournalRecordType pType, String pAccountId, String pSecondId, long pMinorUnits, long pTargetMinorUnits, long pHoldId)
+    {
+        byte[] accountId = pAccountId.getBytes(StandardCharsets.UTF_8);
+        byte[] secondId = pSecondId == null ? null : pSecondId.getBytes(StandardCharsets.UTF_8);
+        boolean exchange = pType == JournalRecordType.EXCHANGE;
+        int payloadSize = 1 + 8 + 8 + idSize(accountId) + (secondId == null ? 0 : idSize(secondId)) + (exchange || pType.hasHoldId() ? 8 : 0);
+        long epochNanos = ActivityLog.toEpochNanos(Instant.now());
+        lock.lock();
+        try
+        {
+            ensureCapacity(HEADER_SIZE + payloadSize);
+            int start = active.position();
+            active.putInt(payloadSize).putInt(0);
+            active.put((byte) pType.ordinal()).putLong(epochNanos).putLong(pMinorUnits);
+            putId(active, accountId);
+            if (secondId != null)
+            {
+                putId(active, secondId);
+            }
+            if (exchange)
+            {
+                active.putLong(pTargetMinorUnits);
+            }
+            else if (pType.hasHoldId())
+            {
+                active.putLong(pHoldId);
+            }
+            ByteBuffer payload = active.duplicate();
+            payload.position(start + HEADER_SIZE).limit(active.position());
+            crc.reset();
+            crc.update(payload);
+            active.putInt(start + 4, (int) crc.getValue());
+            appendedPosition += HEADER_SIZE + payloadSize;
+            return appendedPosition;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void ensureCapacity(int pSize)
+    {
+        if (active.remaining() < pSize)
+        {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(active.capacity() * 2, active.position() + pSize));
+            active.flip();
+            grown.put(active);
+            active = grown;
+        }
+    }
+
+    private static int idSize(byte[] pId)
+    {
+        if (pId.length > 0xFFFF)
+        {
+            throw new IllegalArgumentException("Account id is too long for journal.");
+        }
+        return 2 + pId.length;
+    }
+
+    private static void putId(ByteBuffer pBuffer, byte[] pId)
+    {
+        pBuffer.putShort((short) pId.length).put(pId);
+    }
+}
@@ -0,0 +1,147 @@
+package in.services.accounting.personalbanking.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Sequential reader of journal records. Reading stops at end of file or at the first incomplete or corrupt record
+ * (torn write of a crashed group), {@link #getValidPosition()} then tells where valid journal ends.
+ */
+public final class JournalReader implements Closeable
+{
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final JournalRecordType[] TYPES = JournalRecordType.values();
+
+    private final FileChannel channel;
+
+    private final CRC32 crc = new CRC32();
+
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // File offset of buffer start
+    private long bufferPosition;
+
+    private long validPosition;
+
+    private boolean endOfFile;
+
+    /**
+     * Open journal for reading records starting at given file offset (must be a record boundary).
+     *
+     * @param pFile
+     * @param pPosition
+     * @throws IOException
+     */
+    public JournalReader(Path pFile, long pPosition) throws IOException
+    {
+        this.channel = FileChannel.open(pFile, StandardOpenOption.READ);
+        this.channel.position(pPosition);
+        this.bufferPosition = pPosition;
+        this.validPosition = pPosition;
+        buffer.limit(0);
+    }
+
+    /**
+     * Returns next record, or null at end of valid journal.
+     *
+     * @return
+     * @throws IOException
+     */
+    public JournalRecord next() throws IOException
+    {
+        if (!ensureAvailable(Journal.HEADER_SIZE))
+        {
+            return null;
+        }
+        int start = buffer.position();
+        int payloadSize = buffer.getInt(start);
+        int expectedCrc = buffer.getInt(start + 4);
+        if (payloadSize <= 0 || payloadSize > Journal.MAX_PAYLOAD_SIZE || !ensureAvailable(Journal.HEADER_SIZE + payloadSize))
+        {
+            return null;
+        }
+        start = buffer.position();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + Journal.HEADER_SIZE).limit(start + Journal.HEADER_SIZE + payloadSize);
+        crc.reset();
+        crc.update(payload);
+        if ((int) crc.getValue() != expectedCrc)
+        {
+            return null;
+        }
+        buffer.position(start + Journal.HEADER_SIZE);
+        int typeOrdinal = buffer.get();
+        if (typeOrdinal < 0 || typeOrdinal >= TYPES.length)
+        {
+            return null;
+        }
+        JournalRecordType type = TYPES[typeOrdinal];
+        long epochNanos = buffer.getLong();
+        long minorUnits = buffer.getLong();
+        String accountId = getId();
+        String secondId = type == JournalRecordType.ATTACH || type == JournalRecordType.TRANSFER || type == JournalRecordType.EXCHANGE ? getId() : null;
+        long targetMinorUnits = type == JournalRecordType.EXCHANGE ? buffer.getLong() : minorUnits;
+        long holdId = type.hasHoldId() ? buffer.getLong() : 0;
+        buffer.position(start + Journal.HEADER_SIZE + payloadSize);
+        validPosition = bufferPosition + buffer.position();
+        return new JournalRecord(type, epochNanos, minorUnits, targetMinorUnits, accountId, secondId, holdId, validPosition);
+    }
+
+    /**
+     * File offset right after the last valid record read.
+     *
+     * @return
+     */
+    public long getValidPosition()
+    {
+        return validPosition;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    private String getId()
+    {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] id = new byte[length];
+        buffer.get(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Make sure given number of bytes is available from buffer position, reading more of the file if needed.
+     */
+    private boolean ensureAvailable(int pSize) throws IOException
+    {
+        if (buffer.remaining() >= pSize)
+        {
+            return true;
+        }
+        bufferPosition += buffer.position();
+        buffer.compact();
+        if (buffer.capacity() < pSize)
+        {
+            buffer.flip();
+            buffer = ByteBuffer.allocateDirect(pSize).put(buffer);
+        }
+        while (!endOfFile && buffer.position() < pSize)
+        {
+            if (channel.read(buffer) < 0)
+            {
+                endOfFile = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= pSize;
+    }
+}
@@ -0,0 +1,104 @@
+package in.services.accounting.personalbanking.journal;
+
+/**
+ * Journal record read back from journal file.
+ */
+public final class JournalRecord
+{
+    private final JournalRecordType type;
+
+    private final long epochNanos;
+
+    private final long minorUnits;
+
+    // Deposited to target of an exchange, equal to minor units for other records
+    private final long targetMinorUnits;
+
+    private final String accountId;
+
+    // Target account id for transfers and exchanges, unit of measurement for attach, null otherwise
+    private final String secondId;
+
+    // Hold placed, released or captured, zero for other records
+    private final long holdId;
+
+    // File offset right after the record
+    private final long sequence;
+
+    JournalRecord(JournalRecordType pType, long pEpochNanos, long pMinorUnits, long pTargetMinorUnits, String pAccountId, String pSecondId, long pHoldId, long pSequence)
+    {
+        this.type = pType;
+        this.epochNanos = pEpochNanos;
+        this.minorUnits = pMinorUnits;
+        this.targetMinorUnits = pTargetMinorUnits;
+        this.accountId = pAccountId;
+        this.secondId = pSecondId;
+        this.holdId = pHoldId;
+        this.sequence = pSequence;
+    }
+
+    public JournalRecordType getType()
+    {
+        return type;
+    }
+
+    public long getEpochNanos()
+    {
+        return epochNanos;
+    }
+
+    public long getMinorUnits()
+    {
+        return minorUnits;
+    }
+
+    /**
+     * Returns minor units deposited to target of a transfer or an exchange (in target currency).
+     *
+     * @return
+     */
+    public long getTargetMinorUnits()
+    {
+        return targetMinorUnits;
+    }
+
+    public String getAccountId()
+    {
+        return accountId;
+    }
+
+    /**
+     * Returns target account id of a transfer or an exchange.
+     *
+     * @return
+     */
+    public String getTargetAccountId()
+    {
+        return type == JournalRecordType.TRANSFER || type == JournalRecordType.EXCHANGE ? secondId : null;
+    }
+
+    /**
+     * Returns unit of measurement of an attached account.
+     *
+     * @return
+     */
+    public String getUnitOfMeasurement()
+    {
+        return type == JournalRecordType.ATTACH ? secondId : null;
+    }
+
+    /**
+     * Returns id of hold placed, released or captured.
+     *
+     * @return
+     */
+    public long getHoldId()
+    {
+        return holdId;
+    }
+
+    public long getSequence()
+    {
+        return sequence;
+    }
+}
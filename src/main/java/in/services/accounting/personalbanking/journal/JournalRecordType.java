@@ -0,0 +1,19 @@
+package in.services.accounting.personalbanking.journal;
+
+/**
+ * Type of journal record, stored as ordinal.
+ */
+public enum JournalRecordType
+{
+    ATTACH, DEPOSIT, WITHDRAW, TRANSFER, EXCHANGE, OVERDRAFT_LIMIT, HOLD, RELEASE, CAPTURE;
+
+    /**
+     * Record ends with hold id.
+     *
+     * @return
+     */
+    boolean hasHoldId()
+    {
+        return this == HOLD || this == RELEASE || this == CAPTURE;
+    }
+}
@@ -0,0 +1,226 @@
+package in.services.accounting.personalbanking.journal;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import in.services.accounting.personalbanking.AccountRegistry;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.AccountJournal;
+import in.services.accounting.personalbanking.views.AccountingOperationType;
+import in.services.accounting.personalbanking.views.ActivityArchive;
+
+/**
+ * Restart path of a journaled ledger: load latest snapshot (shards in parallel), then replay only the journal written after it.
+ * <p>
+ * Journal tail is read sequentially and split into legs (a transfer or an exchange is a withdraw leg and a deposit leg) partitioned by
+ * account id; partitions are replayed in parallel, each in journal order, so records of one account keep their order.
+ * Torn tail of the journal (crash during a group write) is truncated.
+ */
+public final class LedgerRecovery
+{
+    private LedgerRecovery()
+    {
+    }
+
+    /**
+     * Recover accounts into registry.
+     *
+     * @param pSnapshotDirectory
+     * @param pJournalFile
+     * @param pAccountRegistry  registry to populate, expected to be empty
+     * @param pExecutorService  used for parallel snapshot loading and replay
+     * @param pPartitions       number of replay partitions
+     * @return number of replayed journal records
+     * @throws IOException
+     */
+    public static long recover(Path pSnapshotDirectory, Path pJournalFile, AccountRegistry pAccountRegistry, ExecutorService pExecutorService, int pPartitions) throws IOException
+    {
+        return recover(pSnapshotDirectory, pJournalFile, pAccountRegistry, null, pExecutorService, pPartitions);
+    }
+
+    /**
+     * Recover accounts into registry, statement history archived before the snapshot stays in given archive.
+     *
+     * @param pSnapshotDirectory
+     * @param pJournalFile
+     * @param pAccountRegistry  registry to populate, expected to be empty
+     * @param pActivityArchive  archive reopened on the directory statements were archived to, null if none
+     * @param pExecutorService  used for parallel snapshot loading and replay
+     * @param pPartitions       number of replay partitions
+     * @return number of replayed journal records
+     * @throws IOException
+     */
+    public static long recover(Path pSnapshotDirectory, Path pJournalFile, AccountRegistry pAccountRegistry, ActivityArchive pActivityArchive,
+                               ExecutorService pExecutorService, int pPartitions) throws IOException
+    {
+        long journalPosition = LedgerSnapshot.load(pSnapshotDirectory, pAccountRegistry, pActivityArchive, pExecutorService);
+        if (!Files.exists(pJournalFile))
+        {
+            return 0;
+        }
+
+        List<List<Leg>> partitions = new ArrayList<>(pPartitions);
+        for (int i = 0; i < pPartitions; i++)
+        {
+            partitions.add(new ArrayList<>());
+        }
+        long records = 0;
+        long validPosition;
+        try (JournalReader journalReader = new JournalReader(pJournalFile, journalPosition))
+        {
+            for (JournalRecord record = journalReader.next(); record != null; record = journalReader.next())
+            {
+                records++;
+                partitionOf(partitions, record.getAccountId()).add(new Leg(record, false));
+                // transfer of an account to itself is replayed as one leg, both legs share the record sequence
+                if (record.getTargetAccountId() != null && !record.getTargetAccountId().equals(record.getAccountId()))
+                {
+                    partitionOf(partitions, record.getTargetAccountId()).add(new Leg(record, true));
+                }
+            }
+            validPosition = journalReader.getValidPosition();
+        }
+        try (FileChannel channel = FileChannel.open(pJournalFile, StandardOpenOption.WRITE))
+        {
+            if (channel.size() > validPosition)
+            {
+                channel.truncate(validPosition);
+                channel.force(true);
+            }
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final List<Leg> partition : partitions)
+        {
+            tasks.add(() -> {
+                for (Leg leg : partition)
+                {
+                    replay(leg, pAccountRegistry);
+                }
+                return null;
+            });
+        }
+        LedgerSnapshot.invokeAll(pExecutorService, tasks);
+        return records;
+    }
+
+    /**
+     * Attach recovered accounts to (reopened) journal without writing any record.
+     *
+     * @param pAccountRegistry
+     * @param pJournal
+     */
+    public static void bindJournal(AccountRegistry pAccountRegistry, AccountJournal pJournal)
+    {
+        for (int shard = 0; shard < pAccountRegistry.getShardCount(); shard++)
+        {
+            for (Account account : pAccountRegistry.getAccountsOfShard(shard))
+            {
+                account.bindJournal(pJournal);
+                if (pJournal instanceof Journal)
+                {
+                    ((Journal) pJournal).track(account);
+                }
+            }
+        }
+    }
+
+    private static void replay(Leg pLeg, AccountRegistry pAccountRegistry)
+    {
+        JournalRecord record = pLeg.record;
+        String accountId = pLeg.target ? record.getTargetAccountId() : record.getAccountId();
+        Account account = pAccountRegistry.findAccountById(accountId).orElse(null);
+        switch (record.getType())
+        {
+            case ATTACH:
+                if (account == null)
+                {
+                    account = new Account(accountId, record.getUnitOfMeasurement());
+                    pAccountRegistry.register(account);
+                }
+                account.replayNetAmount(record.getMinorUnits(), record.getSequence());
+                break;
+            case DEPOSIT:
+                replayActivity(account, AccountingOperationType.DEPOSIT, record.getMinorUnits(), record);
+                break;
+            case WITHDRAW:
+                replayActivity(account, AccountingOperationType.WITHDRAW, record.getMinorUnits(), record);
+                break;
+            case TRANSFER:
+            case EXCHANGE:
+                if (pLeg.target)
+                {
+                    replayActivity(account, AccountingOperationType.DEPOSIT, record.getTargetMinorUnits(), record);
+                }
+                else if (record.getAccountId().equals(record.getTargetAccountId()))
+                {
+                    checkAccount(account, record);
+                    account.replayTransferToSelf(record.getEpochNanos(), record.getMinorUnits(), record.getSequence());
+                }
+                else
+                {
+                    replayActivity(account, AccountingOperationType.WITHDRAW, record.getMinorUnits(), record);
+                }
+                break;
+            case OVERDRAFT_LIMIT:
+                checkAccount(account, record);
+                account.replayOverdraftLimit(record.getMinorUnits(), record.getSequence());
+                break;
+            case HOLD:
+                checkAccount(account, record);
+                account.replayHoldPlaced(record.getHoldId(), record.getMinorUnits(), record.getSequence());
+                break;
+            case RELEASE:
+            case CAPTURE:
+                checkAccount(account, record);
+                account.replayHoldRemoved(record.getHoldId(), record.getType() == JournalRecordType.CAPTURE, record.getEpochNanos(), record.getSequence());
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type " + record.getType());
+        }
+    }
+
+    private static void replayActivity(Account pAccount, AccountingOperationType pAccountingOperationType, long pMinorUnits, JournalRecord pRecord)
+    {
+        checkAccount(pAccount, pRecord);
+        pAccount.replayActivity(pAccountingOperationType, pRecord.getEpochNanos(), pMinorUnits, pRecord.getSequence());
+    }
+
+    private static void checkAccount(Account pAccount, JournalRecord pRecord)
+    {
+        // every journaled account has an attach record before its activities, a missing account means journal is inconsistent
+        if (pAccount == null)
+        {
+            throw new IllegalStateException("Journal record for unknown account " + pRecord.getAccountId() + " at " + pRecord.getSequence());
+        }
+    }
+
+    private static List<Leg> partitionOf(List<List<Leg>> pPartitions, String pAccountId)
+    {
+        return pPartitions.get(Math.floorMod(pAccountId.hashCode(), pPartitions.size()));
+    }
+
+    /**
+     * Part of a record applying to one account.
+     */
+    private static final class Leg
+    {
+        private final JournalRecord record;
+
+        // deposit leg of a transfer
+        private final boolean target;
+
+        private Leg(JournalRecord pRecord, boolean pTarget)
+        {
+            this.record = pRecord;
+            this.target = pTarget;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package in.services.accounting.personalbanking.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import in.services.accounting.personalbanking.AccountRegistry;
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.AccountStateCodec;
+import in.services.accounting.personalbanking.views.ActivityArchive;
+
+/**
+ * Snapshot of all accounts of a registry, so that recovery only replays journal written after the snapshot.
+ * <p>
+ * Every snapshot is a directory named after the journal position it was started at, holding one file per registry shard
+ * (written and loaded in parallel), one more file for accounts attached to the journal but not registered (ex: accounts
+ * linked through a beneficiary only), and a manifest written last: a snapshot without manifest is incomplete and ignored.
+ * Snapshot is taken while accounts keep changing; state of every account carries its own journal sequence, records already
+ * reflected by an account are skipped on replay.
+ */
+public final class LedgerSnapshot
+{
+    // Changed when account state layout changes, older snapshots are rejected instead of being misread
+    private static final int MAGIC = 0x4C534E53;
+
+    private static final String DIRECTORY_PREFIX = "snapshot-";
+
+    private static final String MANIFEST = "manifest";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private LedgerSnapshot()
+    {
+    }
+
+    /**
+     * Write snapshot of all registered accounts and of all accounts attached to journal, older snapshots are deleted once the
+     * new one is complete.
+     *
+     * @param pAccountRegistry
+     * @param pJournal         journal accounts are attached to, null if none
+     * @param pDirectory
+     * @param pExecutorService used for writing shards in parallel
+     * @throws IOException
+     */
+    public static void write(AccountRegistry pAccountRegistry, Journal pJournal, Path pDirectory, ExecutorService pExecutorService) throws IOException
+    {
+        long journalPosition = pJournal == null ? 0 : pJournal.getAppendedPosition();
+        Path snapshotDirectory = pDirectory.resolve(DIRECTORY_PREFIX + journalPosition);
+        Files.createDirectories(snapshotDirectory);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int shardCount = pAccountRegistry.getShardCount();
+        for (int shard = 0; shard < shardCount; shard++)
+        {
+            final int shardIndex = shard;
+            tasks.add(() -> {
+                writeShard(pAccountRegistry.getAccountsOfShard(shardIndex), snapshotDirectory.resolve(Integer.toString(shardIndex)));
+                return null;
+            });
+        }
+        // accounts journaled without being registered, their records before snapshot position would be lost otherwise
+        List<Account> unregistered = new ArrayList<>();
+        if (pJournal != null)
+        {
+            for (Account account : pJournal.getAccounts())
+            {
+                if (pAccountRegistry.findAccountById(account.getAccountId()).orElse(null) != account)
+                {
+                    unregistered.add(account);
+                }
+            }
+        }
+        tasks.add(() -> {
+            writeShard(unregistered, snapshotDirectory.resolve(Integer.toString(shardCount)));
+            return null;
+        });
+        invokeAll(pExecutorService, tasks);
+        if (pJournal != null)
+        {
+            // snapshot claims journal up to its position, and shards may reflect records appended while they were written:
+            // all of them must be durable before snapshot is complete, or a crash would leave state missing from the journal
+            try
+            {
+                pJournal.awaitDurable(pJournal.getAppendedPosition());
+            }
+            catch (AccountingOperationException e)
+            {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        Path manifest = snapshotDirectory.resolve(MANIFEST + ".tmp");
+        try (FileOutputStream fileOutputStream = new FileOutputStream(manifest.toFile());
+             DataOutputStream output = new DataOutputStream(fileOutputStream))
+        {
+            output.writeInt(MAGIC);
+            output.writeLong(journalPosition);
+            output.writeInt(shardCount + 1);
+            output.flush();
+            fileOutputStream.getFD().sync();
+        }
+        Files.move(manifest, snapshotDirectory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path snapshot : listSnapshots(pDirectory))
+        {
+            if (!snapshot.equals(snapshotDirectory))
+            {
+                delete(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Load latest complete snapshot into registry.
+     *
+     * @param pDirectory
+     * @param pAccountRegistry
+     * @param pExecutorService used for loading shards in parallel
+     * @return journal position replay has to start from, zero when there is no snapshot
+     * @throws IOException
+     */
+    public static long load(Path pDirectory, AccountRegistry pAccountRegistry, ExecutorService pExecutorService) throws IOException
+    {
+        return load(pDirectory, pAccountRegistry, null, pExecutorService);
+    }
+
+    /**
+     * Load latest complete snapshot into registry, statement chunks archived when snapshot was written are read in place from
+     * given archive.
+     *
+     * @param pDirectory
+     * @param pAccountRegistry
+     * @param pActivityArchive archive reopened on the directory statements were archived to, null if none
+     * @param pExecutorService used for loading shards in parallel
+     * @return journal position replay has to start from, zero when there is no snapshot
+     * @throws IOException
+     */
+    public static long load(Path pDirectory, AccountRegistry pAccountRegistry, ActivityArchive pActivityArchive, ExecutorService pExecutorService) throws IOException
+    {
+        Path latest = null;
+        long latestPosition = -1;
+        for (Path snapshot : listSnapshots(pDirectory))
+        {
+            long position = Long.parseLong(snapshot.getFileName().toString().substring(DIRECTORY_PREFIX.length()));
+            if (position > latestPosition && Files.exists(snapshot.resolve(MANIFEST)))
+            {
+                latest = snapshot;
+                latestPosition = position;
+            }
+        }
+        if (latest == null)
+        {
+            return 0;
+        }
+
+        final Path snapshotDirectory = latest;
+        long journalPosition;
+        int shardCount;
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(snapshotDirectory.resolve(MANIFEST))))
+        {
+            checkMagic(input);
+            journalPosition = input.readLong();
+            shardCount = input.readInt();
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++)
+        {
+            final Path shardFile = snapshotDirectory.resolve(Integer.toString(shard));
+            tasks.add(() -> {
+                loadShard(shardFile, pAccountRegistry, pActivityArchive);
+                return null;
+            });
+        }
+        invokeAll(pExecutorService, tasks);
+        return journalPosition;
+    }
+
+    private static void writeShard(List<Account> pAccounts, Path pFile) throws IOException
+    {
+        try (FileOutputStream fileOutputStream = new FileOutputStream(pFile.toFile());
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutputStream, BUFFER_SIZE)))
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(pAccounts.size());
+            for (Account account : pAccounts)
+            {
+                AccountStateCodec.write(account, output);
+            }
+            output.flush();
+            fileOutputStream.getFD().sync();
+        }
+    }
+
+    private static void loadShard(Path pFile, AccountRegistry pAccountRegistry, ActivityArchive pActivityArchive) throws IOException
+    {
+        try (InputStream inputStream = Files.newInputStream(pFile);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE)))
+        {
+            checkMagic(input);
+            int count = input.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                pAccountRegistry.register(AccountStateCodec.read(input, pActivityArchive));
+            }
+        }
+    }
+
+    private static void checkMagic(DataInputStream pInput) throws IOException
+    {
+        if (pInput.readInt() != MAGIC)
+        {
+            throw new IOException("Not a ledger snapshot.");
+        }
+    }
+
+    private static List<Path> listSnapshots(Path pDirectory) throws IOException
+    {
+        List<Path> snapshots = new ArrayList<>();
+        if (Files.isDirectory(pDirectory))
+        {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(pDirectory, DIRECTORY_PREFIX + "*"))
+            {
+                for (Path snapshot : stream)
+                {
+                    snapshots.add(snapshot);
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    private static void delete(Path pSnapshot) throws IOException
+    {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(pSnapshot))
+        {
+            for (Path file : stream)
+            {
+                Files.delete(file);
+            }
+        }
+        Files.delete(pSnapshot);
+    }
+
+    static void invokeAll(ExecutorService pExecutorService, List<Callable<Void>> pTasks) throws IOException
+    {
+        try
+        {
+            for (Future<Void> future : pExecutorService.invokeAll(pTasks))
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted.", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
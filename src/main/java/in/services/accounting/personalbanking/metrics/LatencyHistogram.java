@@ -0,0 +1,138 @@
+package in.services.accounting.personalbanking.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative values (Ex: nanoseconds) with log-linear buckets, like HDR histogram: values below
+ * 64 have a bucket each, every higher power of two range is split into 32 buckets, so a value is known within 1/32 of it.
+ * Recording is a few shifts and an atomic increment, without allocation.
+ */
+public final class LatencyHistogram
+{
+    private static final int LINEAR_BITS = 6;
+
+    private static final int LINEAR_BUCKETS = 1 << LINEAR_BITS;
+
+    private static final int SUB_BUCKETS = LINEAR_BUCKETS >>> 1;
+
+    // Linear buckets, then sub-buckets of ranges [2^6, 2^7) up to [2^62, 2^63)
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (Long.SIZE - 1 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record value, negative values are recorded as zero.
+     *
+     * @param pValue
+     */
+    public void record(long pValue)
+    {
+        long value = Math.max(pValue, 0);
+        counts.incrementAndGet(bucketOf(value));
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+        {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Number of recorded values.
+     *
+     * @return
+     */
+    public long getCount()
+    {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        long count = getCount();
+        return count == 0 ? 0 : sum.doubleValue() / count;
+    }
+
+    /**
+     * Returns value below or at which given percentage of recorded values is (highest value of bucket, at most the maximum).
+     * Values recorded meanwhile may or may not be counted.
+     *
+     * @param pPercentile 0 to 100
+     * @return zero when nothing is recorded
+     */
+    public long getValueAtPercentile(double pPercentile)
+    {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(pPercentile, 0), 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += snapshot[i];
+            if (seen >= rank)
+            {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget all recorded values. Values recorded meanwhile may be partly kept.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucketOf(long pValue)
+    {
+        if (pValue < LINEAR_BUCKETS)
+        {
+            return (int) pValue;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(pValue) - LINEAR_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (pValue >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValueOf(int pBucket)
+    {
+        if (pBucket < LINEAR_BUCKETS)
+        {
+            return pBucket;
+        }
+        int shift = (pBucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long mantissa = (pBucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,234 @@
+package in.services.accounting.personalbanking.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import in.services.accounting.personalbanking.views.LedgerOperation;
+import in.services.accounting.personalbanking.views.MetricsSink;
+import in.services.accounting.personalbanking.views.TransferResult;
+
+/**
+ * Built-in metrics sink: count of every operation, count of failures by reason, latency histogram per operation, and time
+ * spent waiting for contended account locks. Recording is lock-free and allocation-free, so it can stay installed in
+ * production. Readable through getters or JMX (see {@link #register(String)}).
+ */
+public final class LedgerMetrics implements MetricsSink, LedgerMetricsMXBean
+{
+    private static final LedgerOperation[] OPERATIONS = LedgerOperation.values();
+
+    private static final TransferResult[] RESULTS = TransferResult.values();
+
+    private final LongAdder[] operationCounts = new LongAdder[OPERATIONS.length];
+
+    // By operation and result, failure with an exception is counted after all results
+    private final LongAdder[][] resultCounts = new LongAdder[OPERATIONS.length][RESULTS.length + 1];
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+
+    private final LatencyHistogram lockWaits = new LatencyHistogram();
+
+    private final LongAdder lockWaitNanos = new LongAdder();
+
+    public LedgerMetrics()
+    {
+        for (int i = 0; i < OPERATIONS.length; i++)
+        {
+            operationCounts[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+            for (int j = 0; j <= RESULTS.length; j++)
+            {
+                resultCounts[i][j] = new LongAdder();
+            }
+        }
+    }
+
+    @Override
+    public void operationCompleted(LedgerOperation pOperation, TransferResult pResult, long pLatencyNanos)
+    {
+        int operation = pOperation.ordinal();
+        operationCounts[operation].increment();
+        resultCounts[operation][pResult == null ? RESULTS.length : pResult.ordinal()].increment();
+        latencies[operation].record(pLatencyNanos);
+    }
+
+    @Override
+    public void lockWaited(long pWaitNanos)
+    {
+        lockWaits.record(pWaitNanos);
+        lockWaitNanos.add(pWaitNanos);
+    }
+
+    /**
+     * Register with platform MBean server under given object name.
+     *
+     * @param pObjectName Ex: in.services.accounting.personalbanking:type=LedgerMetrics
+     * @throws JMException
+     */
+    public void register(String pObjectName) throws JMException
+    {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(pObjectName));
+    }
+
+    /**
+     * Unregister from platform MBean server, nothing happens when not registered.
+     *
+     * @param pObjectName
+     * @throws JMException
+     */
+    public static void unregister(String pObjectName) throws JMException
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(pObjectName);
+        if (server.isRegistered(objectName))
+        {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    public long getCount(LedgerOperation pOperation)
+    {
+        return operationCounts[pOperation.ordinal()].sum();
+    }
+
+    /**
+     * Number of operations which completed with given result (SUCCESS included).
+     *
+     * @param pOperation
+     * @param pResult
+     * @return
+     */
+    public long getResultCount(LedgerOperation pOperation, TransferResult pResult)
+    {
+        return resultCounts[pOperation.ordinal()][pResult.ordinal()].sum();
+    }
+
+    /**
+     * Number of operations which failed with an exception.
+     *
+     * @param pOperation
+     * @return
+     */
+    public long getErrorCount(LedgerOperation pOperation)
+    {
+        return resultCounts[pOperation.ordinal()][RESULTS.length].sum();
+    }
+
+    public LatencyHistogram getLatencyHistogram(LedgerOperation pOperation)
+    {
+        return latencies[pOperation.ordinal()];
+    }
+
+    public LatencyHistogram getLockWaitHistogram()
+    {
+        return lockWaits;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts()
+    {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (LedgerOperation operation : OPERATIONS)
+        {
+            counts.put(operation.name(), getCount(operation));
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts()
+    {
+        Map<String, Long> failures = new LinkedHashMap<>();
+        for (LedgerOperation operation : OPERATIONS)
+        {
+            for (TransferResult result : RESULTS)
+            {
+                long count = getResultCount(operation, result);
+                if (result != TransferResult.SUCCESS && count > 0)
+                {
+                    failures.put(operation + "." + result, count);
+                }
+            }
+            long errors = getErrorCount(operation);
+            if (errors > 0)
+            {
+                failures.put(operation + ".ERROR", errors);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMedianNanos()
+    {
+        return latencyByOperation(histogram -> histogram.getValueAtPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getLatency99thPercentileNanos()
+    {
+        return latencyByOperation(histogram -> histogram.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getLatency999thPercentileNanos()
+    {
+        return latencyByOperation(histogram -> histogram.getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMaxNanos()
+    {
+        return latencyByOperation(LatencyHistogram::getMax);
+    }
+
+    @Override
+    public long getLockWaitCount()
+    {
+        return lockWaits.getCount();
+    }
+
+    @Override
+    public long getLockWaitTotalNanos()
+    {
+        return lockWaitNanos.sum();
+    }
+
+    @Override
+    public long getLockWait99thPercentileNanos()
+    {
+        return lockWaits.getValueAtPercentile(99);
+    }
+
+    @Override
+    public void reset()
+    {
+        for (int i = 0; i < OPERATIONS.length; i++)
+        {
+            operationCounts[i].reset();
+            latencies[i].reset();
+            for (LongAdder resultCount : resultCounts[i])
+            {
+                resultCount.reset();
+            }
+        }
+        lockWaits.reset();
+        lockWaitNanos.reset();
+    }
+
+    private Map<String, Long> latencyByOperation(ToLongFunction<LatencyHistogram> pValue)
+    {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (LedgerOperation operation : OPERATIONS)
+        {
+            values.put(operation.name(), pValue.applyAsLong(getLatencyHistogram(operation)));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,33 @@
+package in.services.accounting.personalbanking.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link LedgerMetrics}. Keys are operation names, failures are keyed by operation and reason
+ * (Ex: TRANSFER.INSUFFICIENT_BALANCE, TRANSFER.ERROR for an exception).
+ */
+public interface LedgerMetricsMXBean
+{
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getFailureCounts();
+
+    Map<String, Long> getLatencyMedianNanos();
+
+    Map<String, Long> getLatency99thPercentileNanos();
+
+    Map<String, Long> getLatency999thPercentileNanos();
+
+    Map<String, Long> getLatencyMaxNanos();
+
+    long getLockWaitCount();
+
+    long getLockWaitTotalNanos();
+
+    long getLockWait99thPercentileNanos();
+
+    /**
+     * Forget everything recorded so far.
+     */
+    void reset();
+}
@@ -1,10 +1,13 @@
 package in.services.accounting.personalbanking.views;
 
+import java.io.IOException;
 import java.time.Instant;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
 
 import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
 import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.Printer;
@@ -14,6 +17,20 @@ import in.services.accounting.personalbanking.in.services.accounting.personalban
  */
 public class Account
 {
+    // Used for ordering lock acquisition between two accounts carrying the same account id.
+    static final ReentrantLock TIE_LOCK = new ReentrantLock();
+
+    // Receives latency, outcome and lock wait of operations of every account
+    private static volatile MetricsSink metricsSink = MetricsSink.NONE;
+
+    // Failed snapshot reads after which reader yields to writer
+    private static final int SNAPSHOT_SPINS = 64;
+
+    private static final AtomicLongFieldUpdater<Account> BALANCE_VERSION = AtomicLongFieldUpdater.newUpdater(Account.class, "balanceVersion");
+
+    // Guards net amount and activities. Explicit lock (instead of monitor) allows batches to lock any number of accounts in order.
+    private final ReentrantLock lock = new ReentrantLock();
+
     // Unique account id
     private final String accountId;
 
@@ -24,24 +41,159 @@ public class Account
      */
     public Amount getNetAmount()
     {
-        return netAmount;
+        HotCredits hot = hotCredits;
+        if (hot == null)
+        {
+            return Amount.ofMinorUnits(currencyCode, netAmount);
+        }
+        // net amount first, then pending credits: a credit being applied meanwhile is missed at most, never counted twice
+        long net = netAmount;
+        return Amount.ofMinorUnits(currencyCode, net + hot.getPendingMinorUnits());
+    }
+
+    /**
+     * Function will return net amount together with last activity, as of one committed write. Snapshot is read optimistically
+     * under balance version and retried while a write is in progress: readers never take account lock, so they never hold
+     * up deposits, withdrawals and transfers. Credits accepted by a hot account are included once applied, which happens
+     * here when account lock is free.
+     *
+     * @return
+     */
+    public BalanceSnapshot getBalanceSnapshot()
+    {
+        HotCredits hot = hotCredits;
+        if (hot != null && !hot.isEmpty() && lock.tryLock())
+        {
+            try
+            {
+                applyHotCredits();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+        for (int attempt = 1; ; attempt++)
+        {
+            long version = balanceVersion;
+            if ((version & 1) == 0)
+            {
+                long net = netAmount;
+                int size = activities.size();
+                long transactionNanos = 0;
+                AccountingOperationType type = null;
+                long transactionMinorUnits = 0;
+                long balanceMinorUnits = 0;
+                if (size > 0)
+                {
+                    transactionNanos = activities.getTransactionNanos(size - 1);
+                    type = activities.getAccountingOperationType(size - 1);
+                    transactionMinorUnits = activities.getTransactionMinorUnits(size - 1);
+                    balanceMinorUnits = activities.getBalanceMinorUnits(size - 1);
+                }
+                if (version == balanceVersion)
+                {
+                    return new BalanceSnapshot(currencyCode, net, size, transactionNanos, type, transactionMinorUnits, balanceMinorUnits, version);
+                }
+            }
+            if (attempt % SNAPSHOT_SPINS == 0)
+            {
+                Thread.yield();
+            }
+        }
     }
 
-    private final Amount netAmount;
+    // Interned unit of measurement of net amount, see Currencies
+    private final int currencyCode;
+
+    // Net amount in minor units of account currency. Written under account lock only.
+    private volatile long netAmount;
+
+    // Sequence lock over net amount and activities: odd while a write is in progress, moved on by every write and by every
+    // accepted hot credit. Snapshots and cached balances of an older version are stale.
+    private volatile long balanceVersion;
 
     public List<Activity> getActivities()
     {
-        return Collections.unmodifiableList(activities);
+        applyHotCreditsForRead();
+        return activities.asList();
+    }
+
+    /**
+     * Function will return statement of an account in its columnar form (no activity object per entry).
+     *
+     * @return
+     */
+    public ActivityLog getActivityLog()
+    {
+        applyHotCreditsForRead();
+        return activities;
+    }
+
+    /**
+     * Function will move activities older than given time out of heap into archive, in whole chunks. Statements keep
+     * reading archived activities in place.
+     *
+     * @param pActivityArchive
+     * @param pOlderThan
+     * @return number of archived activities
+     * @throws AccountingOperationException
+     */
+    public int archiveActivities(ActivityArchive pActivityArchive, Instant pOlderThan) throws AccountingOperationException
+    {
+        lock.lock();
+        try
+        {
+            return activities.archive(pActivityArchive, ActivityLog.toEpochNanos(pOlderThan));
+        }
+        catch (IOException e)
+        {
+            throw new AccountingOperationException("Activities can't be archived: " + e.getMessage());
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
     // Used for maitaining activities (account statement)
-    private final List<Activity> activities;
+    private final ActivityLog activities;
+
+    // Optional durability hook, written under account lock
+    private volatile AccountJournal journal;
+
+    // Journal sequence of last recorded mutation, guarded by account lock. Used by recovery to skip records already in a snapshot.
+    private long journalSequence;
+
+    // Set once account is flagged as hot, see markHot
+    private volatile HotCredits hotCredits;
+
+    // How far below zero net amount may go, in minor units. Written under account lock only.
+    private volatile long overdraftLimit;
+
+    // Amount reserved by holds, in minor units, and holds by id. Guarded by account lock.
+    private long heldAmount;
+
+    private Map<Long, Long> holds;
+
+    private long lastHoldId;
 
     public Account(String accountId)
+    {
+        this(accountId, Amount.DEFAULT_UNIT_OF_MEASUREMENT);
+    }
+
+    /**
+     * Creates account holding amount in given unit of measurement (Ex: USD, INR).
+     *
+     * @param accountId
+     * @param unitOfMeasurement
+     */
+    public Account(String accountId, String unitOfMeasurement)
     {
         this.accountId = accountId;
-        activities = new LinkedList<>();
-        netAmount = Amount.newBuilder().build();
+        this.currencyCode = Currencies.codeOf(unitOfMeasurement);
+        activities = new ActivityLog(currencyCode);
     }
 
     /**
@@ -50,76 +202,1338 @@ public class Account
      * @param pAmount
      * @throws AccountingOperationException
      */
-    public synchronized void depositAmount(Amount pAmount) throws AccountingOperationException
+    public void depositAmount(Amount pAmount) throws AccountingOperationException
     {
-        netAmount.addAmount(pAmount);
-        activities.add(Activity.newBuilder().setAccountingOperationType(AccountingOperationType.DEPOSIT).setTransactionAmount(pAmount).setBalanceAmount(netAmount).build());
+        tryDepositAmount(pAmount).throwIfFailed();
     }
 
-    public synchronized void withDrawAmount(Amount pAmount) throws AccountingOperationException
+    /**
+     * Deposit amount, reporting a declined deposit as result instead of exception.
+     *
+     * @param pAmount
+     * @return
+     * @throws AccountingOperationException only when deposit can't be made durable
+     */
+    public TransferResult tryDepositAmount(Amount pAmount) throws AccountingOperationException
     {
+        MetricsSink sink = metricsSink;
+        long start = sink == MetricsSink.NONE ? 0 : System.nanoTime();
+        TransferResult result = null;
+        try
+        {
+            result = deposit(pAmount);
+            return result;
+        }
+        finally
+        {
+            if (sink != MetricsSink.NONE)
+            {
+                sink.operationCompleted(LedgerOperation.DEPOSIT, result, System.nanoTime() - start);
+            }
+        }
+    }
 
-        netAmount.subtractAmount(pAmount);
-        activities.add(Activity.newBuilder().setAccountingOperationType(AccountingOperationType.WITHDRAW).setTransactionAmount(pAmount).setBalanceAmount(netAmount).build());
+    private TransferResult deposit(Amount pAmount) throws AccountingOperationException
+    {
+        if (currencyCode != pAmount.getCurrencyCode())
+        {
+            return TransferResult.CURRENCY_MISMATCH;
+        }
+        long minorUnits = pAmount.toMinorUnitsOrInvalid();
+        // covers INVALID_MINOR_UNITS, a zero or negative amount would bypass funds rule
+        if (minorUnits <= 0)
+        {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        HotCredits hot = hotCredits;
+        if (hot != null && journal == null)
+        {
+            return depositHot(hot, minorUnits);
+        }
+        AccountJournal accountJournal;
+        long sequence = 0;
+        acquire(lock);
+        try
+        {
+            TransferResult result = applyDeposit(minorUnits);
+            if (result != TransferResult.SUCCESS)
+            {
+                return result;
+            }
+            accountJournal = journal;
+            if (accountJournal != null)
+            {
+                sequence = journalSequence = accountJournal.deposited(this, minorUnits);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        awaitDurable(accountJournal, sequence);
+        return TransferResult.SUCCESS;
+    }
 
+    public void withDrawAmount(Amount pAmount) throws AccountingOperationException
+    {
+        tryWithDrawAmount(pAmount).throwIfFailed();
     }
 
     /**
-     * Print entire statement
+     * Withdraw amount, reporting a declined withdrawal as result instead of exception.
      *
-     * @param printer
+     * @param pAmount
+     * @return
+     * @throws AccountingOperationException only when withdrawal can't be made durable
      */
-    public void printFullStatement(Printer printer)
+    public TransferResult tryWithDrawAmount(Amount pAmount) throws AccountingOperationException
     {
-        if (printer != null)
+        MetricsSink sink = metricsSink;
+        long start = sink == MetricsSink.NONE ? 0 : System.nanoTime();
+        TransferResult result = null;
+        try
         {
-            printer.print("\n------------------------------------ ");
-            printer.print(" Account Id: " + this.accountId);
-            printer.print("\n------------------------------------");
-            StringBuilder stringBuilder;
-            for (Activity activity : activities)
+            result = withdraw(pAmount);
+            return result;
+        }
+        finally
+        {
+            if (sink != MetricsSink.NONE)
             {
-                stringBuilder = new StringBuilder();
-                stringBuilder.append("Transaction Date :").append(activity.getTransactionDate()).append(", Type: ").append(activity.getAccountingOperationType()).append(", transaction amount: ").append(activity.getTransactionAmount()).append(", Balance :").append(activity.getBalanceAmount());
-                printer.print(stringBuilder.toString());
+                sink.operationCompleted(LedgerOperation.WITHDRAW, result, System.nanoTime() - start);
             }
-            printer.print("------------------------------------\n");
         }
+    }
 
+    private TransferResult withdraw(Amount pAmount) throws AccountingOperationException
+    {
+        if (currencyCode != pAmount.getCurrencyCode())
+        {
+            return TransferResult.CURRENCY_MISMATCH;
+        }
+        long minorUnits = pAmount.toMinorUnitsOrInvalid();
+        // covers INVALID_MINOR_UNITS, a zero or negative amount would bypass funds rule
+        if (minorUnits <= 0)
+        {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        AccountJournal accountJournal;
+        long sequence = 0;
+        acquire(lock);
+        try
+        {
+            TransferResult result = applyWithdraw(minorUnits);
+            if (result != TransferResult.SUCCESS)
+            {
+                return result;
+            }
+            accountJournal = journal;
+            if (accountJournal != null)
+            {
+                sequence = journalSequence = accountJournal.withdrawn(this, minorUnits);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        awaitDurable(accountJournal, sequence);
+        return TransferResult.SUCCESS;
     }
 
     /**
-     * Print filtered statement. Filterable fields are transaction type, and date
+     * Attach journal, current net amount and every later mutation is recorded in it (see {@link AccountJournal}).
      *
-     * @param printer
-     * @param accountingOperationType
-     * @param startDate
-     * @param endDate
+     * @param pJournal
+     * @throws AccountingOperationException
      */
-    public void printFilteredStatement(Printer printer, AccountingOperationType accountingOperationType, Instant startDate, Instant endDate)
+    public void setJournal(AccountJournal pJournal) throws AccountingOperationException
     {
-        if (printer != null)
+        long sequence;
+        lock.lock();
+        try
         {
-            StringBuilder stringBuilder;
-
-            for (Activity activity : activities)
+            this.journal = pJournal;
+            sequence = journalSequence = pJournal.attached(this, netAmount);
+            // funds rule of account is part of its state: limit and holds in place are recorded right after attach
+            if (overdraftLimit != 0)
             {
-                if (
-                        (AccountingOperationType.BOTH == (accountingOperationType) || activity.getAccountingOperationType() == (accountingOperationType))
-                                &&
-                                (activity.getTransactionDate().toEpochMilli() >= startDate.toEpochMilli())
-                                &&
-                                activity.getTransactionDate().isBefore(endDate)
-                        )
+                sequence = journalSequence = pJournal.overdraftLimitSet(this, overdraftLimit);
+            }
+            if (holds != null)
+            {
+                for (Map.Entry<Long, Long> hold : holds.entrySet())
                 {
-                    stringBuilder = new StringBuilder();
+                    sequence = journalSequence = pJournal.holdPlaced(this, hold.getKey(), hold.getValue());
+                }
+            }
+            // credits of a hot account accepted before attach are journaled as deposits and waited for here, their depositors
+            // found no journal
+            applyHotCredits();
+            sequence = journalSequence;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        awaitDurable(pJournal, sequence);
+    }
+
+    /**
+     * Flag account as receiving many concurrent deposits. Deposits of a hot account don't take account lock: they are accepted
+     * into a lock-free queue and applied (in acceptance order) by the next operation holding the lock, which every withdrawal,
+     * transfer and statement does, so those still see every deposit which has returned. While a journal is attached deposits
+     * take the regular path, since they wait for durability anyway.
+     */
+    public void markHot()
+    {
+        lock.lock();
+        try
+        {
+            if (hotCredits == null)
+            {
+                hotCredits = new HotCredits();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public boolean isHot()
+    {
+        return hotCredits != null;
+    }
+
+    private TransferResult depositHot(HotCredits pHotCredits, long pMinorUnits) throws AccountingOperationException
+    {
+        // room is taken before credit is accepted, so that applying pending credits later doesn't overflow
+        if (!reserveCredit(pMinorUnits))
+        {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        pHotCredits.offer(pMinorUnits);
+        // by two, keeps a concurrent write odd
+        BALANCE_VERSION.addAndGet(this, 2);
+        // journal attached meanwhile records the credit once applied: apply it and wait like a regular deposit
+        AccountJournal accountJournal = journal;
+        if (accountJournal != null)
+        {
+            long sequence;
+            acquire(lock);
+            try
+            {
+                applyHotCredits();
+                sequence = journalSequence;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+            awaitDurable(accountJournal, sequence);
+            return TransferResult.SUCCESS;
+        }
+        // whoever finds the lock free applies pending credits, keeping the queue short without ever waiting
+        if (lock.tryLock())
+        {
+            try
+            {
+                applyHotCredits();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+        return TransferResult.SUCCESS;
+    }
 
-                    stringBuilder.append("Transaction Date :").append(activity.getTransactionDate()).append(", Type: ").append(activity.getAccountingOperationType()).append(", transaction amount: ").append(activity.getTransactionAmount()).append(", Balance :").append(activity.getBalanceAmount());
-                    printer.print(stringBuilder.toString());
+    /**
+     * Apply pending credits of a hot account. Caller must hold account lock.
+     */
+    private void applyHotCredits()
+    {
+        HotCredits hot = hotCredits;
+        if (hot == null)
+        {
+            return;
+        }
+        HotCredits.Credit credit = hot.poll();
+        if (credit == null)
+        {
+            return;
+        }
+        AccountJournal accountJournal = journal;
+        // stamped under the lock, credits are appended in queue order and times must not go backwards
+        long transactionNanos = ActivityLog.toEpochNanos(Instant.now());
+        beginBalanceWrite();
+        try
+        {
+            for (; credit != null; credit = hot.poll())
+            {
+                netAmount = netAmount + credit.minorUnits;
+                hot.release(credit.minorUnits);
+                activities.append(transactionNanos, AccountingOperationType.DEPOSIT, credit.minorUnits, netAmount);
+                // credit accepted before a journal got attached
+                if (accountJournal != null)
+                {
+                    journalSequence = accountJournal.deposited(this, credit.minorUnits);
                 }
             }
         }
+        finally
+        {
+            endBalanceWrite();
+        }
+    }
+
+    private void applyHotCreditsForRead()
+    {
+        HotCredits hot = hotCredits;
+        if (hot != null && !hot.isEmpty())
+        {
+            lock.lock();
+            try
+            {
+                applyHotCredits();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    AccountJournal getJournal()
+    {
+        return journal;
+    }
+
+    long getJournalSequence()
+    {
+        return journalSequence;
+    }
+
+    void setJournalSequence(long pJournalSequence)
+    {
+        journalSequence = pJournalSequence;
+    }
+
+    /**
+     * Attach journal without recording anything, used after recovery when state of account is already in journal or snapshot.
+     *
+     * @param pJournal
+     */
+    public void bindJournal(AccountJournal pJournal)
+    {
+        lock.lock();
+        try
+        {
+            this.journal = pJournal;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replay journaled activity without validation, used by recovery. Record is skipped when account already reflects it
+     * (sequence not after journal sequence of account).
+     *
+     * @param pAccountingOperationType
+     * @param pEpochNanos
+     * @param pMinorUnits
+     * @param pSequence
+     * @return true when applied
+     */
+    public boolean replayActivity(AccountingOperationType pAccountingOperationType, long pEpochNanos, long pMinorUnits, long pSequence)
+    {
+        lock.lock();
+        try
+        {
+            if (pSequence <= journalSequence)
+            {
+                return false;
+            }
+            beginBalanceWrite();
+            try
+            {
+                netAmount = pAccountingOperationType == AccountingOperationType.WITHDRAW ? netAmount - pMinorUnits : netAmount + pMinorUnits;
+                activities.append(pEpochNanos, pAccountingOperationType, pMinorUnits, netAmount);
+            }
+            finally
+            {
+                endBalanceWrite();
+            }
+            journalSequence = pSequence;
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replay journaled transfer of an account to itself without validation, used by recovery. Both legs carry the sequence
+     * of the record, so they are applied or skipped together.
+     *
+     * @param pEpochNanos
+     * @param pMinorUnits
+     * @param pSequence
+     * @return true when applied
+     */
+    public boolean replayTransferToSelf(long pEpochNanos, long pMinorUnits, long pSequence)
+    {
+        lock.lock();
+        try
+        {
+            if (pSequence <= journalSequence)
+            {
+                return false;
+            }
+            beginBalanceWrite();
+            try
+            {
+                activities.append(pEpochNanos, AccountingOperationType.WITHDRAW, pMinorUnits, netAmount - pMinorUnits);
+                activities.append(pEpochNanos, AccountingOperationType.DEPOSIT, pMinorUnits, netAmount);
+            }
+            finally
+            {
+                endBalanceWrite();
+            }
+            journalSequence = pSequence;
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replay journaled net amount (account attached to journal) without validation, used by recovery.
+     *
+     * @param pNetMinorUnits
+     * @param pSequence
+     * @return true when applied
+     */
+    public boolean replayNetAmount(long pNetMinorUnits, long pSequence)
+    {
+        lock.lock();
+        try
+        {
+            if (pSequence <= journalSequence)
+            {
+                return false;
+            }
+            beginBalanceWrite();
+            netAmount = pNetMinorUnits;
+            if (activities.size() == 0)
+            {
+                activities.setOpeningBalance(pNetMinorUnits);
+            }
+            endBalanceWrite();
+            journalSequence = pSequence;
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
 
+    /**
+     * Install sink receiving metrics of all accounts, {@link MetricsSink#NONE} turns instrumentation off.
+     *
+     * @param pMetricsSink
+     */
+    public static void setMetricsSink(MetricsSink pMetricsSink)
+    {
+        metricsSink = Objects.requireNonNull(pMetricsSink);
+    }
+
+    public static MetricsSink getMetricsSink()
+    {
+        return metricsSink;
+    }
+
+    /**
+     * Lock given account lock. Only a lock held by another thread is timed, uncontended acquisition costs nothing extra.
+     */
+    static void acquire(ReentrantLock pLock)
+    {
+        if (pLock.tryLock())
+        {
+            return;
+        }
+        MetricsSink sink = metricsSink;
+        if (sink == MetricsSink.NONE)
+        {
+            pLock.lock();
+            return;
+        }
+        long start = System.nanoTime();
+        pLock.lock();
+        sink.lockWaited(System.nanoTime() - start);
+    }
+
+    static void awaitDurable(AccountJournal pJournal, long pSequence) throws AccountingOperationException
+    {
+        if (pJournal != null)
+        {
+            pJournal.awaitDurable(pSequence);
+        }
+    }
+
+    /**
+     * Apply deposit of minor units. Caller must hold account lock and must have validated currency.
+     */
+    private TransferResult applyDeposit(long pMinorUnits)
+    {
+        applyHotCredits();
+        if (addOverflows(netAmount, pMinorUnits) || !reserveCredit(pMinorUnits))
+        {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        applyCredit(pMinorUnits);
+        releaseCredit(pMinorUnits);
+        return TransferResult.SUCCESS;
+    }
+
+    /**
+     * Add minor units to net amount, overflow must have been checked. Caller must hold account lock.
+     */
+    private void applyCredit(long pMinorUnits)
+    {
+        beginBalanceWrite();
+        try
+        {
+            netAmount = netAmount + pMinorUnits;
+            appendActivity(AccountingOperationType.DEPOSIT, pMinorUnits, netAmount);
+        }
+        finally
+        {
+            endBalanceWrite();
+        }
+    }
+
+    /**
+     * Take room for a credit of a hot account: net amount plus pending credits plus room already taken must not overflow.
+     * Room is taken by compare and set, so credits accepted concurrently and credits of lock holders can't overflow net
+     * amount together. Room is given back by {@link #releaseCredit} once credit is in net amount. An account which isn't hot
+     * always has room, its lock holder checks net amount.
+     *
+     * @param pMinorUnits
+     * @return false when credit would overflow
+     */
+    boolean reserveCredit(long pMinorUnits)
+    {
+        HotCredits hot = hotCredits;
+        if (hot == null)
+        {
+            return true;
+        }
+        for (; ; )
+        {
+            long reserved = hot.getReservedMinorUnits();
+            // read after room: credits reach net amount before giving back their room, so none is missed
+            long net = netAmount;
+            if (addOverflows(net, reserved) || addOverflows(net + reserved, pMinorUnits))
+            {
+                return false;
+            }
+            if (hot.compareAndSetReserved(reserved, reserved + pMinorUnits))
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back room taken by {@link #reserveCredit}, once credit is in net amount or won't be applied.
+     *
+     * @param pMinorUnits
+     */
+    void releaseCredit(long pMinorUnits)
+    {
+        HotCredits hot = hotCredits;
+        if (hot != null)
+        {
+            hot.release(pMinorUnits);
+        }
+    }
+
+    /**
+     * Apply withdrawal of minor units. Caller must hold account lock and must have validated currency.
+     */
+    private TransferResult applyWithdraw(long pMinorUnits)
+    {
+        applyHotCredits();
+        if (!hasSufficientFunds(netAmount, pMinorUnits))
+        {
+            return TransferResult.INSUFFICIENT_BALANCE;
+        }
+        if (subtractOverflows(netAmount, pMinorUnits))
+        {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        beginBalanceWrite();
+        try
+        {
+            netAmount = netAmount - pMinorUnits;
+            appendActivity(AccountingOperationType.WITHDRAW, pMinorUnits, netAmount);
+        }
+        finally
+        {
+            endBalanceWrite();
+        }
+        return TransferResult.SUCCESS;
+    }
+
+    /**
+     * Funds rule for withdrawal, shared by single and batched withdrawals: balance right after the debit must not go below
+     * minus overdraft limit, plus amount on hold. Caller must hold account lock.
+     *
+     * @param pBalance balance the debit applies to
+     * @param pDebit
+     * @return
+     */
+    boolean hasSufficientFunds(long pBalance, long pDebit)
+    {
+        if (subtractOverflows(pBalance, pDebit))
+        {
+            // only a negative debit overflows upwards, it is rejected as overflow when applied
+            return pDebit < 0;
+        }
+        // both operands are non-negative, difference can't overflow
+        return pBalance - pDebit >= heldAmount - overdraftLimit;
+    }
+
+    /**
+     * Function will set how far below zero account balance may go. Limit doesn't apply retroactively: an account already below
+     * the new limit just can't withdraw any more.
+     *
+     * @param pOverdraftLimit
+     * @throws AccountingOperationException
+     */
+    public void setOverdraftLimit(Amount pOverdraftLimit) throws AccountingOperationException
+    {
+        ensureSameCurrency(pOverdraftLimit);
+        long minorUnits = pOverdraftLimit.toMinorUnits();
+        if (minorUnits < 0)
+        {
+            throw new AccountingOperationException("Overdraft limit can't be negative.");
+        }
+        AccountJournal accountJournal;
+        long sequence = 0;
+        lock.lock();
+        try
+        {
+            overdraftLimit = minorUnits;
+            accountJournal = journal;
+            if (accountJournal != null)
+            {
+                sequence = journalSequence = accountJournal.overdraftLimitSet(this, minorUnits);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        awaitDurable(accountJournal, sequence);
+    }
+
+    public Amount getOverdraftLimit()
+    {
+        return Amount.ofMinorUnits(currencyCode, overdraftLimit);
+    }
+
+    /**
+     * Function will return amount which can be withdrawn right now: net amount plus overdraft limit, less amount on hold.
+     *
+     * @return
+     */
+    public Amount getAvailableAmount()
+    {
+        lock.lock();
+        try
+        {
+            applyHotCredits();
+            return Amount.ofMinorUnits(currencyCode, netAmount + overdraftLimit - heldAmount);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Function will reserve amount, reducing available amount until hold is released or captured. Hold is subject to the same
+     * funds rule as a withdrawal.
+     *
+     * @param pAmount
+     * @return hold id
+     * @throws AccountingOperationException
+     */
+    public long placeHold(Amount pAmount) throws AccountingOperationException
+    {
+        ensureSameCurrency(pAmount);
+        long minorUnits = pAmount.toMinorUnits();
+        if (minorUnits <= 0)
+        {
+            throw new AccountingOperationException("Hold amount must be positive.");
+        }
+        AccountJournal accountJournal;
+        long sequence = 0;
+        long holdId;
+        lock.lock();
+        try
+        {
+            applyHotCredits();
+            if (!hasSufficientFunds(netAmount, minorUnits))
+            {
+                throw new AccountingOperationException("Insufficient Balance for hold.");
+            }
+            holdId = ++lastHoldId;
+            addHold(holdId, minorUnits);
+            accountJournal = journal;
+            if (accountJournal != null)
+            {
+                sequence = journalSequence = accountJournal.holdPlaced(this, holdId, minorUnits);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        awaitDurable(accountJournal, sequence);
+        return holdId;
+    }
+
+    /**
+     * Function will release hold without withdrawing anything.
+     *
+     * @param pHoldId
+     * @throws AccountingOperationException
+     */
+    public void releaseHold(long pHoldId) throws AccountingOperationException
+    {
+        AccountJournal accountJournal;
+        long sequence = 0;
+        lock.lock();
+        try
+        {
+            heldAmount -= removeHold(pHoldId);
+            accountJournal = journal;
+            if (accountJournal != null)
+            {
+                sequence = journalSequence = accountJournal.holdReleased(this, pHoldId);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        awaitDurable(accountJournal, sequence);
+    }
+
+    /**
+     * Function will withdraw held amount and release the hold, as one operation.
+     *
+     * @param pHoldId
+     * @throws AccountingOperationException
+     */
+    public void captureHold(long pHoldId) throws AccountingOperationException
+    {
+        AccountJournal accountJournal;
+        long sequence = 0;
+        lock.lock();
+        try
+        {
+            long minorUnits = removeHold(pHoldId);
+            heldAmount -= minorUnits;
+            TransferResult result = applyWithdraw(minorUnits);
+            if (result != TransferResult.SUCCESS)
+            {
+                // overdraft limit lowered since hold was placed, hold stays in place
+                holds.put(pHoldId, minorUnits);
+                heldAmount += minorUnits;
+                result.throwIfFailed();
+            }
+            accountJournal = journal;
+            if (accountJournal != null)
+            {
+                sequence = journalSequence = accountJournal.holdCaptured(this, pHoldId, minorUnits);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        awaitDurable(accountJournal, sequence);
+    }
+
+    /**
+     * Replay journaled overdraft limit without validation, used by recovery.
+     *
+     * @param pMinorUnits
+     * @param pSequence
+     * @return true when applied
+     */
+    public boolean replayOverdraftLimit(long pMinorUnits, long pSequence)
+    {
+        lock.lock();
+        try
+        {
+            if (pSequence <= journalSequence)
+            {
+                return false;
+            }
+            overdraftLimit = pMinorUnits;
+            journalSequence = pSequence;
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replay journaled hold without validation, used by recovery.
+     *
+     * @param pHoldId
+     * @param pMinorUnits
+     * @param pSequence
+     * @return true when applied
+     */
+    public boolean replayHoldPlaced(long pHoldId, long pMinorUnits, long pSequence)
+    {
+        lock.lock();
+        try
+        {
+            if (pSequence <= journalSequence)
+            {
+                return false;
+            }
+            addHold(pHoldId, pMinorUnits);
+            lastHoldId = Math.max(lastHoldId, pHoldId);
+            journalSequence = pSequence;
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replay journaled release of a hold, or its capture (release and withdrawal of held amount as one record), without
+     * validation, used by recovery.
+     *
+     * @param pHoldId
+     * @param pCaptured
+     * @param pEpochNanos     time of capture
+     * @param pSequence
+     * @return true when applied
+     */
+    public boolean replayHoldRemoved(long pHoldId, boolean pCaptured, long pEpochNanos, long pSequence)
+    {
+        lock.lock();
+        try
+        {
+            if (pSequence <= journalSequence)
+            {
+                return false;
+            }
+            Long minorUnits = holds == null ? null : holds.remove(pHoldId);
+            if (minorUnits == null)
+            {
+                throw new IllegalStateException("Journal removes unknown hold " + pHoldId + " of account " + accountId + " at " + pSequence);
+            }
+            heldAmount -= minorUnits;
+            if (pCaptured)
+            {
+                beginBalanceWrite();
+                try
+                {
+                    netAmount = netAmount - minorUnits;
+                    activities.append(pEpochNanos, AccountingOperationType.WITHDRAW, minorUnits, netAmount);
+                }
+                finally
+                {
+                    endBalanceWrite();
+                }
+            }
+            journalSequence = pSequence;
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    long getOverdraftLimitMinorUnits()
+    {
+        return overdraftLimit;
+    }
+
+    void setOverdraftLimitMinorUnits(long pMinorUnits)
+    {
+        overdraftLimit = pMinorUnits;
+    }
+
+    /**
+     * Returns copy of holds by id. Caller must hold account lock.
+     *
+     * @return
+     */
+    Map<Long, Long> getHolds()
+    {
+        return holds == null ? new HashMap<>() : new HashMap<>(holds);
+    }
+
+    long getLastHoldId()
+    {
+        return lastHoldId;
+    }
+
+    /**
+     * Restore holds of a recovered account, before it is shared.
+     *
+     * @param pHolds
+     * @param pLastHoldId
+     */
+    void restoreHolds(Map<Long, Long> pHolds, long pLastHoldId)
+    {
+        for (Map.Entry<Long, Long> hold : pHolds.entrySet())
+        {
+            addHold(hold.getKey(), hold.getValue());
+        }
+        lastHoldId = pLastHoldId;
+    }
+
+    private void addHold(long pHoldId, long pMinorUnits)
+    {
+        if (holds == null)
+        {
+            holds = new HashMap<>();
+        }
+        holds.put(pHoldId, pMinorUnits);
+        heldAmount += pMinorUnits;
+    }
+
+    private long removeHold(long pHoldId) throws AccountingOperationException
+    {
+        Long minorUnits = holds == null ? null : holds.remove(pHoldId);
+        if (minorUnits == null)
+        {
+            throw new AccountingOperationException("Hold not found.");
+        }
+        return minorUnits;
+    }
+
+    static boolean addOverflows(long pFirst, long pSecond)
+    {
+        long sum = pFirst + pSecond;
+        return ((pFirst ^ sum) & (pSecond ^ sum)) < 0;
+    }
+
+    static boolean subtractOverflows(long pFirst, long pSecond)
+    {
+        long difference = pFirst - pSecond;
+        return ((pFirst ^ pSecond) & (pFirst ^ difference)) < 0;
+    }
+
+    /**
+     * Record activity for an already applied operation. Caller must hold account lock.
+     *
+     * @param pAccountingOperationType
+     * @param pMinorUnits
+     * @param pBalance    net amount right after the operation
+     */
+    void appendActivity(AccountingOperationType pAccountingOperationType, long pMinorUnits, long pBalance)
+    {
+        activities.append(pAccountingOperationType, pMinorUnits, pBalance);
+    }
+
+    /**
+     * Returns interned unit of measurement of account (see {@link Currencies}).
+     *
+     * @return
+     */
+    public int getCurrencyCode()
+    {
+        return currencyCode;
+    }
+
+    /**
+     * Net amount including pending credits of a hot account. Caller must hold account lock.
+     *
+     * @return
+     */
+    long getNetMinorUnits()
+    {
+        applyHotCredits();
+        return netAmount;
+    }
+
+    /**
+     * Set net amount. Caller must hold account lock, must have validated the value and must bracket it with
+     * {@link #beginBalanceWrite()} and {@link #endBalanceWrite()} once account is shared.
+     *
+     * @param pMinorUnits
+     */
+    void setNetMinorUnits(long pMinorUnits)
+    {
+        netAmount = pMinorUnits;
+    }
+
+    /**
+     * Start changing net amount and activities, snapshots read until {@link #endBalanceWrite()} are retried. Caller must
+     * hold account lock.
+     */
+    void beginBalanceWrite()
+    {
+        BALANCE_VERSION.incrementAndGet(this);
+    }
+
+    /**
+     * Publish changes of net amount and activities started by {@link #beginBalanceWrite()}.
+     */
+    void endBalanceWrite()
+    {
+        BALANCE_VERSION.incrementAndGet(this);
+    }
+
+    /**
+     * Version of net amount, changes with every deposit, withdrawal, transfer, replay and accepted hot credit. Read it before
+     * the net amount: a balance read under an unchanged version is current.
+     *
+     * @return
+     */
+    long getBalanceVersion()
+    {
+        return balanceVersion;
+    }
+
+    ReentrantLock getLock()
+    {
+        return lock;
+    }
+
+    /**
+     * Transfer amount from this account to target account. Both accounts are locked in a global order (account id),
+     * so two transfers running in opposite directions can't deadlock. Deposit leg is validated before withdraw leg is applied,
+     * hence either both legs are applied or none of them.
+     *
+     * @param pTargetAccount
+     * @param pAmount
+     * @throws AccountingOperationException
+     */
+    public void transferAmount(Account pTargetAccount, Amount pAmount) throws AccountingOperationException
+    {
+        tryTransferAmount(pTargetAccount, pAmount).throwIfFailed();
+    }
+
+    /**
+     * Transfer amount, reporting a declined transfer as result instead of exception.
+     *
+     * @param pTargetAccount
+     * @param pAmount
+     * @return
+     * @throws AccountingOperationException only when transfer can't be made durable
+     */
+    public TransferResult tryTransferAmount(Account pTargetAccount, Amount pAmount) throws AccountingOperationException
+    {
+        return transferDurably(pTargetAccount, pAmount, null);
+    }
+
+    /**
+     * Transfer amount (in currency of this account) to an account of any currency, target is credited with amount converted
+     * at rates of given table. Same guarantees as {@link #transferAmount(Account, Amount)}.
+     *
+     * @param pTargetAccount
+     * @param pAmount
+     * @param pFxRateTable
+     * @throws AccountingOperationException when there is no rate between the two currencies
+     */
+    public void transferAmount(Account pTargetAccount, Amount pAmount, FxRateTable pFxRateTable) throws AccountingOperationException
+    {
+        tryTransferAmount(pTargetAccount, pAmount, pFxRateTable).throwIfFailed();
+    }
+
+    /**
+     * Transfer amount to an account of any currency, reporting a declined transfer as result instead of exception.
+     *
+     * @param pTargetAccount
+     * @param pAmount
+     * @param pFxRateTable
+     * @return
+     * @throws AccountingOperationException only when transfer can't be made durable
+     */
+    public TransferResult tryTransferAmount(Account pTargetAccount, Amount pAmount, FxRateTable pFxRateTable) throws AccountingOperationException
+    {
+        return transferDurably(pTargetAccount, pAmount, pFxRateTable);
+    }
+
+    private TransferResult transferDurably(Account pTargetAccount, Amount pAmount, FxRateTable pFxRateTable) throws AccountingOperationException
+    {
+        MetricsSink sink = metricsSink;
+        long start = sink == MetricsSink.NONE ? 0 : System.nanoTime();
+        TransferResult result = null;
+        try
+        {
+            TransferTicket ticket = new TransferTicket();
+            TransferResult applied = transfer(pTargetAccount, pAmount.getCurrencyCode(), pAmount.toMinorUnitsOrInvalid(), pFxRateTable, ticket);
+            if (applied == TransferResult.SUCCESS)
+            {
+                ticket.awaitDurable();
+            }
+            result = applied;
+            return result;
+        }
+        finally
+        {
+            if (sink != MetricsSink.NONE)
+            {
+                sink.operationCompleted(LedgerOperation.TRANSFER, result, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Validate and apply a transfer without waiting for the journal, journal positions to wait for are left in the ticket.
+     * Amount is in minor units of given currency, it's converted at rates of given table when target currency differs
+     * (no table: currencies must match).
+     */
+    TransferResult transfer(Account pTargetAccount, int pCurrencyCode, long pMinorUnits, FxRateTable pFxRateTable, TransferTicket pTicket)
+    {
+        if (currencyCode != pCurrencyCode)
+        {
+            return TransferResult.CURRENCY_MISMATCH;
+        }
+        long targetMinorUnits = pMinorUnits;
+        if (pTargetAccount.currencyCode != currencyCode)
+        {
+            if (pFxRateTable == null)
+            {
+                return TransferResult.CURRENCY_MISMATCH;
+            }
+            if (!pFxRateTable.hasRate(currencyCode, pTargetAccount.currencyCode))
+            {
+                return TransferResult.NO_EXCHANGE_RATE;
+            }
+            if (pMinorUnits > 0)
+            {
+                targetMinorUnits = pFxRateTable.convertOrInvalid(currencyCode, pTargetAccount.currencyCode, pMinorUnits);
+            }
+        }
+        // covers INVALID_MINOR_UNITS, also rejects an amount too small to be credited in target currency
+        if (pMinorUnits <= 0 || targetMinorUnits <= 0)
+        {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        int order = compareLockOrder(this, pTargetAccount);
+        if (order == 0 && this != pTargetAccount)
+        {
+            TIE_LOCK.lock();
+            try
+            {
+                return transferInLockOrder(this, pTargetAccount, pTargetAccount, pMinorUnits, targetMinorUnits, pTicket);
+            }
+            finally
+            {
+                TIE_LOCK.unlock();
+            }
+        }
+        else if (order <= 0)
+        {
+            return transferInLockOrder(this, pTargetAccount, pTargetAccount, pMinorUnits, targetMinorUnits, pTicket);
+        }
+        else
+        {
+            return transferInLockOrder(pTargetAccount, this, pTargetAccount, pMinorUnits, targetMinorUnits, pTicket);
+        }
+    }
+
+    private TransferResult transferInLockOrder(Account pFirst, Account pSecond, Account pTargetAccount, long pMinorUnits, long pTargetMinorUnits, TransferTicket pTicket)
+    {
+        AccountJournal sourceJournal;
+        AccountJournal targetJournal;
+        long sourceSequence = 0;
+        long targetSequence = 0;
+        acquire(pFirst.lock);
+        try
+        {
+            acquire(pSecond.lock);
+            try
+            {
+                applyHotCredits();
+                pTargetAccount.applyHotCredits();
+                // overflow of deposit leg is checked before any leg is applied. A transfer to itself restores balance it withdraws,
+                // unless a hot account accepts credits in between: room is taken for its deposit leg too.
+                boolean reserved = pTargetAccount != this || hotCredits != null;
+                if (reserved && (addOverflows(pTargetAccount.netAmount, pTargetMinorUnits) || !pTargetAccount.reserveCredit(pTargetMinorUnits)))
+                {
+                    return TransferResult.INVALID_AMOUNT;
+                }
+                TransferResult result = applyWithdraw(pMinorUnits);
+                if (result != TransferResult.SUCCESS)
+                {
+                    if (reserved)
+                    {
+                        pTargetAccount.releaseCredit(pTargetMinorUnits);
+                    }
+                    return result;
+                }
+                pTargetAccount.applyCredit(pTargetMinorUnits);
+                if (reserved)
+                {
+                    pTargetAccount.releaseCredit(pTargetMinorUnits);
+                }
+
+                sourceJournal = journal;
+                targetJournal = pTargetAccount.journal;
+                if (sourceJournal != null && sourceJournal == targetJournal)
+                {
+                    sourceSequence = journalSequence = currencyCode == pTargetAccount.currencyCode
+                            ? sourceJournal.transferred(this, pTargetAccount, pMinorUnits)
+                            : sourceJournal.exchanged(this, pTargetAccount, pMinorUnits, pTargetMinorUnits);
+                    pTargetAccount.journalSequence = sourceSequence;
+                }
+                else
+                {
+                    if (sourceJournal != null)
+                    {
+                        sourceSequence = journalSequence = sourceJournal.withdrawn(this, pMinorUnits);
+                    }
+                    if (targetJournal != null)
+                    {
+                        targetSequence = pTargetAccount.journalSequence = targetJournal.deposited(pTargetAccount, pTargetMinorUnits);
+                    }
+                }
+            }
+            finally
+            {
+                pSecond.lock.unlock();
+            }
+        }
+        finally
+        {
+            pFirst.lock.unlock();
+        }
+        pTicket.targetMinorUnits = pTargetMinorUnits;
+        pTicket.sourceJournal = sourceJournal;
+        pTicket.sourceSequence = sourceSequence;
+        pTicket.targetJournal = targetJournal;
+        pTicket.targetSequence = targetSequence;
+        return TransferResult.SUCCESS;
+    }
+
+    /**
+     * Global lock order for accounts. Accounts are ordered by account id, identity hash code is used as tie-breaker.
+     * Returns zero only for the same account or for two accounts which can't be ordered (must be guarded by tie lock).
+     */
+    static int compareLockOrder(Account pFirst, Account pSecond)
+    {
+        int order = pFirst.accountId.compareTo(pSecond.accountId);
+        if (order == 0)
+        {
+            order = Integer.compare(System.identityHashCode(pFirst), System.identityHashCode(pSecond));
+        }
+        return order;
+    }
+
+    private void ensureSameCurrency(Amount pAmount) throws AccountingOperationException
+    {
+        if (currencyCode != pAmount.getCurrencyCode())
+        {
+            throw new AccountingOperationException("Operation can't be performed either due to different unit of measurement.");
+        }
+    }
+
+    /**
+     * Print entire statement. Lines are streamed to printer in batches (see {@link StatementRenderer}).
+     *
+     * @param printer
+     */
+    public void printFullStatement(Printer printer)
+    {
+        if (printer != null)
+        {
+            MetricsSink sink = metricsSink;
+            long start = sink == MetricsSink.NONE ? 0 : System.nanoTime();
+            applyHotCreditsForRead();
+            StatementRenderer renderer = new StatementRenderer(printer);
+            renderer.append("\n------------------------------------ ").endLine();
+            renderer.append(" Account Id: ").append(this.accountId).endLine();
+            renderer.append("\n------------------------------------").endLine();
+            int size = activities.size();
+            for (int index = 0; index < size; index++)
+            {
+                renderer.appendActivity(activities, index);
+            }
+            renderer.append("------------------------------------\n").endLine();
+            renderer.flush();
+            statementPrinted(sink, start);
+        }
+
+    }
+
+    /**
+     * Function will return totals of activities of given type (all activities for {@link AccountingOperationType#BOTH}) with
+     * transaction date in range [start, end): deposits, withdrawals, their counts, and balance before and after the period.
+     * Whole days are taken from per day totals, so cost doesn't grow with length of the period.
+     *
+     * @param pAccountingOperationType
+     * @param pStartDate inclusive
+     * @param pEndDate   exclusive
+     * @return
+     */
+    public StatementSummary getSummary(AccountingOperationType pAccountingOperationType, Instant pStartDate, Instant pEndDate)
+    {
+        applyHotCreditsForRead();
+        return activities.getSummary(pAccountingOperationType, ActivityLog.toEpochNanos(pStartDate), ActivityLog.toEpochNanos(pEndDate));
+    }
+
+    /**
+     * Print filtered statement. Filterable fields are transaction type, and date.
+     * Date range is located by binary search over statement, type filter uses per type index, so cost is O(log n + k)
+     * for k printed activities.
+     *
+     * @param printer
+     * @param accountingOperationType
+     * @param startDate
+     * @param endDate
+     */
+    public void printFilteredStatement(Printer printer, AccountingOperationType accountingOperationType, Instant startDate, Instant endDate)
+    {
+        if (printer != null)
+        {
+            MetricsSink sink = metricsSink;
+            long start = sink == MetricsSink.NONE ? 0 : System.nanoTime();
+            applyHotCreditsForRead();
+            // start is compared at millisecond precision, end at full precision
+            long startNanos = Math.multiplyExact(startDate.toEpochMilli(), 1_000_000L);
+            StatementRenderer renderer = new StatementRenderer(printer);
+            activities.forEachIndex(accountingOperationType, startNanos, ActivityLog.toEpochNanos(endDate), index -> renderer.appendActivity(activities, index));
+            renderer.flush();
+            statementPrinted(sink, start);
+        }
+
+    }
+
+    private static void statementPrinted(MetricsSink pSink, long pStartNanos)
+    {
+        if (pSink != MetricsSink.NONE)
+        {
+            pSink.operationCompleted(LedgerOperation.STATEMENT, TransferResult.SUCCESS, System.nanoTime() - pStartNanos);
+        }
     }
 
     public String getAccountId()
@@ -140,13 +1554,14 @@ public class Account
         }
         Account account = (Account) o;
         return Objects.equals(accountId, account.accountId) &&
-                Objects.equals(netAmount, account.netAmount) &&
-                Objects.equals(activities, account.activities);
+                currencyCode == account.currencyCode &&
+                netAmount == account.netAmount &&
+                Objects.equals(activities.asList(), account.activities.asList());
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(accountId, netAmount, activities);
+        return Objects.hash(accountId, currencyCode, netAmount, activities.asList());
     }
 }
@@ -0,0 +1,105 @@
+package in.services.accounting.personalbanking.views;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+/**
+ * Durability hook for account mutations. Account records every applied mutation while it still holds its lock (so records of
+ * an account are in mutation order) and waits for durability of the record after releasing the lock.
+ * Record methods are called under account lock and must not block on I/O.
+ */
+public interface AccountJournal
+{
+    /**
+     * Record account being attached to journal, with its net amount at that point.
+     *
+     * @param pAccount
+     * @param pNetMinorUnits
+     * @return sequence to wait for
+     */
+    long attached(Account pAccount, long pNetMinorUnits);
+
+    /**
+     * Record deposit.
+     *
+     * @param pAccount
+     * @param pMinorUnits
+     * @return sequence to wait for
+     */
+    long deposited(Account pAccount, long pMinorUnits);
+
+    /**
+     * Record withdrawal.
+     *
+     * @param pAccount
+     * @param pMinorUnits
+     * @return sequence to wait for
+     */
+    long withdrawn(Account pAccount, long pMinorUnits);
+
+    /**
+     * Record transfer as a single record, so that it is recovered either completely or not at all.
+     *
+     * @param pSource
+     * @param pTarget
+     * @param pMinorUnits
+     * @return sequence to wait for
+     */
+    long transferred(Account pSource, Account pTarget, long pMinorUnits);
+
+    /**
+     * Record transfer between accounts of different currencies as a single record.
+     *
+     * @param pSource
+     * @param pTarget
+     * @param pSourceMinorUnits withdrawn from source, in source currency
+     * @param pTargetMinorUnits deposited to target, in target currency
+     * @return sequence to wait for
+     */
+    long exchanged(Account pSource, Account pTarget, long pSourceMinorUnits, long pTargetMinorUnits);
+
+    /**
+     * Record new overdraft limit.
+     *
+     * @param pAccount
+     * @param pMinorUnits
+     * @return sequence to wait for
+     */
+    long overdraftLimitSet(Account pAccount, long pMinorUnits);
+
+    /**
+     * Record hold placed on account.
+     *
+     * @param pAccount
+     * @param pHoldId
+     * @param pMinorUnits
+     * @return sequence to wait for
+     */
+    long holdPlaced(Account pAccount, long pHoldId, long pMinorUnits);
+
+    /**
+     * Record hold released without withdrawal.
+     *
+     * @param pAccount
+     * @param pHoldId
+     * @return sequence to wait for
+     */
+    long holdReleased(Account pAccount, long pHoldId);
+
+    /**
+     * Record capture of a hold: its release and withdrawal of held amount as a single record.
+     *
+     * @param pAccount
+     * @param pHoldId
+     * @param pMinorUnits
+     * @return sequence to wait for
+     */
+    long holdCaptured(Account pAccount, long pHoldId, long pMinorUnits);
+
+    /**
+     * Wait until all records up to given sequence are durable.
+     *
+     * @param pSequence
+     * @throws AccountingOperationException when journal can't be written
+     */
+    void awaitDurable(long pSequence) throws AccountingOperationException;
+}
@@ -0,0 +1,151 @@
+package in.services.accounting.personalbanking.views;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary form of complete account state (net amount, journal sequence, overdraft limit, holds and statement), used by
+ * snapshots.
+ * <p>
+ * Everything but statement entries is captured together under account lock, statement entries below captured size never
+ * change and are written without holding the lock. Archived statement chunks are written as the position of their archive
+ * region and read back in place, together with the day index covering them: only entries still on heap are copied, so size
+ * and load time of a snapshot follow number of accounts and their recent activity rather than their whole history.
+ */
+public final class AccountStateCodec
+{
+    private static final AccountingOperationType[] TYPES = AccountingOperationType.values();
+
+    private AccountStateCodec()
+    {
+    }
+
+    /**
+     * Write account state.
+     *
+     * @param pAccount
+     * @param pOutput
+     * @throws IOException
+     */
+    public static void write(Account pAccount, DataOutput pOutput) throws IOException
+    {
+        long netMinorUnits;
+        long journalSequence;
+        long overdraftLimit;
+        Map<Long, Long> holds;
+        long lastHoldId;
+        int size;
+        int archivedChunks;
+        long[] totals;
+        pAccount.getLock().lock();
+        try
+        {
+            netMinorUnits = pAccount.getNetMinorUnits();
+            journalSequence = pAccount.getJournalSequence();
+            overdraftLimit = pAccount.getOverdraftLimitMinorUnits();
+            holds = pAccount.getHolds();
+            lastHoldId = pAccount.getLastHoldId();
+            size = pAccount.getActivityLog().size();
+            archivedChunks = pAccount.getActivityLog().getArchivedSize() / ActivityLog.CHUNK_SIZE;
+            totals = pAccount.getActivityLog().getTotals();
+        }
+        finally
+        {
+            pAccount.getLock().unlock();
+        }
+        ActivityLog activityLog = pAccount.getActivityLog();
+        pOutput.writeUTF(pAccount.getAccountId());
+        pOutput.writeUTF(Currencies.unitOf(pAccount.getCurrencyCode()));
+        pOutput.writeLong(netMinorUnits);
+        pOutput.writeLong(journalSequence);
+        pOutput.writeLong(overdraftLimit);
+        pOutput.writeLong(lastHoldId);
+        pOutput.writeInt(holds.size());
+        for (Map.Entry<Long, Long> hold : holds.entrySet())
+        {
+            pOutput.writeLong(hold.getKey());
+            pOutput.writeLong(hold.getValue());
+        }
+        pOutput.writeInt(archivedChunks);
+        for (int chunk = 0; chunk < archivedChunks; chunk++)
+        {
+            ActivityArchive.Region region = activityLog.getArchivedRegion(chunk);
+            pOutput.writeInt(region.getSegment());
+            pOutput.writeInt(region.getIndex());
+        }
+        activityLog.writeDays(pOutput, archivedChunks * ActivityLog.CHUNK_SIZE, size, totals);
+        pOutput.writeInt(size - archivedChunks * ActivityLog.CHUNK_SIZE);
+        for (int i = archivedChunks * ActivityLog.CHUNK_SIZE; i < size; i++)
+        {
+            pOutput.writeLong(activityLog.getTransactionNanos(i));
+            pOutput.writeByte(activityLog.getAccountingOperationType(i).ordinal());
+            pOutput.writeLong(activityLog.getTransactionMinorUnits(i));
+            pOutput.writeLong(activityLog.getBalanceMinorUnits(i));
+        }
+    }
+
+    /**
+     * Read account state written by {@link #write}.
+     *
+     * @param pInput
+     * @return
+     * @throws IOException
+     */
+    public static Account read(DataInput pInput) throws IOException
+    {
+        return read(pInput, null);
+    }
+
+    /**
+     * Read account state written by {@link #write}, archived statement chunks are read in place from given archive.
+     *
+     * @param pInput
+     * @param pActivityArchive archive statement chunks were moved to, null if none
+     * @return
+     * @throws IOException when state refers to archived chunks not found in archive
+     */
+    public static Account read(DataInput pInput, ActivityArchive pActivityArchive) throws IOException
+    {
+        Account account = new Account(pInput.readUTF(), pInput.readUTF());
+        long netMinorUnits = pInput.readLong();
+        long journalSequence = pInput.readLong();
+        long overdraftLimit = pInput.readLong();
+        long lastHoldId = pInput.readLong();
+        int holdCount = pInput.readInt();
+        Map<Long, Long> holds = new HashMap<>();
+        for (int i = 0; i < holdCount; i++)
+        {
+            holds.put(pInput.readLong(), pInput.readLong());
+        }
+        ActivityLog activityLog = account.getActivityLog();
+        int archivedChunks = pInput.readInt();
+        if (archivedChunks > 0 && pActivityArchive == null)
+        {
+            throw new IOException("Statement of account " + account.getAccountId() + " is archived, archive is required.");
+        }
+        for (int chunk = 0; chunk < archivedChunks; chunk++)
+        {
+            activityLog.appendArchived(pActivityArchive.getRegion(pInput.readInt(), pInput.readInt()));
+        }
+        activityLog.readDays(pInput);
+        int size = pInput.readInt();
+        for (int i = 0; i < size; i++)
+        {
+            long transactionNanos = pInput.readLong();
+            AccountingOperationType type = TYPES[pInput.readByte()];
+            activityLog.append(transactionNanos, type, pInput.readLong(), pInput.readLong());
+        }
+        account.setNetMinorUnits(netMinorUnits);
+        if (activityLog.size() == 0)
+        {
+            activityLog.setOpeningBalance(netMinorUnits);
+        }
+        account.setJournalSequence(journalSequence);
+        account.setOverdraftLimitMinorUnits(overdraftLimit);
+        account.restoreHolds(holds, lastHoldId);
+        return account;
+    }
+}
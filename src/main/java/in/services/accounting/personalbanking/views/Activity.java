@@ -3,6 +3,8 @@ package in.services.accounting.personalbanking.views;
 import java.time.Instant;
 import java.util.Objects;
 
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
 /**
  * Activity class is used for statement printing.
  */
@@ -14,11 +16,14 @@ public final class Activity
     // Accounting operation (DEPOSIT,WITHDRAW)
     private final AccountingOperationType accountingOperationType;
 
-    // Transaction amount
-    private final Amount transactionAmount;
+    // Interned unit of measurement of transaction and balance amount
+    private final int currencyCode;
+
+    // Transaction amount in minor units
+    private final long transactionAmount;
 
-    // Balance Amount
-    private final Amount balanceAmount;
+    // Balance Amount in minor units, snapshot taken when activity was recorded
+    private final long balanceAmount;
 
     /**
      * Function used to construct Activity object
@@ -34,6 +39,7 @@ public final class Activity
     {
         this.transactionDate = pActivityBuilder.date;
         this.accountingOperationType = pActivityBuilder.accountingOperationType;
+        this.currencyCode = pActivityBuilder.currencyCode;
         this.balanceAmount = pActivityBuilder.balanceAmount;
         this.transactionAmount = pActivityBuilder.transactionAmount;
     }
@@ -65,15 +71,46 @@ public final class Activity
      */
     public Amount getTransactionAmount()
     {
-        return transactionAmount;
+        return Amount.ofMinorUnits(currencyCode, transactionAmount);
     }
 
     /**
-     * Function will return balance amount.
+     * Function will return balance amount right after this transaction. Balance is captured as a value when activity is recorded,
+     * later operations on the account don't change it.
      *
      * @return
      */
     public Amount getBalanceAmount()
+    {
+        return Amount.ofMinorUnits(currencyCode, balanceAmount);
+    }
+
+    /**
+     * Function will return interned unit of measurement of transaction and balance amount.
+     *
+     * @return
+     */
+    public int getCurrencyCode()
+    {
+        return currencyCode;
+    }
+
+    /**
+     * Function will return transaction amount in minor units.
+     *
+     * @return
+     */
+    public long getTransactionMinorUnits()
+    {
+        return transactionAmount;
+    }
+
+    /**
+     * Function will return balance amount in minor units.
+     *
+     * @return
+     */
+    public long getBalanceMinorUnits()
     {
         return balanceAmount;
     }
@@ -107,6 +144,12 @@ public final class Activity
             this.date = Instant.now();
         }
 
+        public ActivityBuilder setTransactionDate(Instant pTransactionDate)
+        {
+            this.date = pTransactionDate;
+            return this;
+        }
+
         public ActivityBuilder setAccountingOperationType(AccountingOperationType accountingOperationType)
         {
             this.accountingOperationType = accountingOperationType;
@@ -115,27 +158,59 @@ public final class Activity
 
         public ActivityBuilder setTransactionAmount(Amount transactionAmount)
         {
-            this.transactionAmount = transactionAmount;
+            this.currencyCode = transactionAmount.getCurrencyCode();
+            this.transactionAmount = toMinorUnits(transactionAmount);
             return this;
         }
 
         public ActivityBuilder setBalanceAmount(Amount balanceAmount)
         {
-            this.balanceAmount = balanceAmount;
+            this.currencyCode = balanceAmount.getCurrencyCode();
+            this.balanceAmount = toMinorUnits(balanceAmount);
+            return this;
+        }
+
+        /**
+         * Set transaction and balance amount in minor units of given currency.
+         *
+         * @param pCurrencyCode
+         * @param pTransactionAmount
+         * @param pBalanceAmount
+         * @return
+         */
+        public ActivityBuilder setAmounts(int pCurrencyCode, long pTransactionAmount, long pBalanceAmount)
+        {
+            this.currencyCode = pCurrencyCode;
+            this.transactionAmount = pTransactionAmount;
+            this.balanceAmount = pBalanceAmount;
             return this;
         }
 
+        private static long toMinorUnits(Amount pAmount)
+        {
+            try
+            {
+                return pAmount.toMinorUnits();
+            }
+            catch (AccountingOperationException e)
+            {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+
         public Activity build()
         {
             return new Activity(this);
         }
 
-        private final Instant date;
+        private Instant date;
 
         private AccountingOperationType accountingOperationType;
 
-        private Amount transactionAmount;
+        private int currencyCode;
+
+        private long transactionAmount;
 
-        private Amount balanceAmount;
+        private long balanceAmount;
     }
 }
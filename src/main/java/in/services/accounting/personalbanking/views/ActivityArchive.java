@@ -0,0 +1,479 @@
+package in.services.accounting.personalbanking.views;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap tier for cold statement entries, shared by any number of accounts.
+ * <p>
+ * Storage is a sequence of fixed size segment files in a directory, each memory-mapped once. A segment is cut into regions of
+ * {@link ActivityLog#CHUNK_SIZE} fixed width entries, laid out column wise like a heap chunk (transaction nanos, amount, balance,
+ * type), so an archived chunk is read in place through the mapping without copying or creating objects. Each region also holds
+ * offsets of its entries grouped by operation type, which replace the heap posting lists of the chunk.
+ * <p>
+ * One archive at a time uses a directory: it holds an exclusive lock on a lock file in the directory while open, a second
+ * archive on the same directory fails instead of overwriting live segments.
+ * <p>
+ * Segments outlive the archive: reopening a directory maps its segments again and allocates after the last written region,
+ * so a region is named by its segment and its position in it (see {@link #getRegion(int, int)}) and snapshots refer to
+ * archived history instead of copying it. A region is marked written by its postings, which are put last, and is forced to
+ * disk before its chunk is published. Space of regions no snapshot refers to any more isn't reclaimed.
+ */
+public final class ActivityArchive implements Closeable
+{
+    // transaction nanos, amount, balance (8 bytes each) and type (1 byte)
+    static final int ENTRY_SIZE = 8 + 8 + 8 + 1;
+
+    // offset of each entry (2 bytes) grouped by operation type, then first position of each type and end of postings
+    private static final int POSTINGS_SIZE = ActivityLog.CHUNK_SIZE * 2 + (AccountingOperationType.values().length + 1) * 2;
+
+    static final int REGION_SIZE = ActivityLog.CHUNK_SIZE * ENTRY_SIZE + POSTINGS_SIZE;
+
+    private static final int DEFAULT_REGIONS_PER_SEGMENT = 4096;
+
+    private final Path directory;
+
+    private final int regionsPerSegment;
+
+    private final List<RandomAccessFile> files = new ArrayList<>();
+
+    // Guarded by this, mapping of each segment file
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    // Channel of lock file, its lock is held until archive is closed
+    private final FileChannel lockChannel;
+
+    // Guarded by this, regions handed out of current (last) segment
+    private int usedRegions;
+
+    // Guarded by this, number of regions of current segment
+    private int segmentRegions;
+
+    // Guarded by this, first segment written since last force
+    private int firstUnforcedSegment;
+
+    public ActivityArchive(Path pDirectory) throws IOException
+    {
+        this(pDirectory, DEFAULT_REGIONS_PER_SEGMENT);
+    }
+
+    /**
+     * @param pDirectory         directory for segment files, created if missing
+     * @param pRegionsPerSegment number of archived chunks per segment file
+     * @throws IOException
+     */
+    public ActivityArchive(Path pDirectory, int pRegionsPerSegment) throws IOException
+    {
+        if (pRegionsPerSegment <= 0 || (long) pRegionsPerSegment * REGION_SIZE > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Invalid number of regions per segment " + pRegionsPerSegment);
+        }
+        this.directory = Files.createDirectories(pDirectory);
+        this.regionsPerSegment = pRegionsPerSegment;
+        lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try
+        {
+            lock = lockChannel.tryLock();
+        }
+        catch (OverlappingFileLockException e)
+        {
+            // locked by another archive of this process
+            lock = null;
+        }
+        catch (IOException e)
+        {
+            lockChannel.close();
+            throw e;
+        }
+        if (lock == null)
+        {
+            lockChannel.close();
+            throw new IOException("Archive directory " + directory + " is in use by another archive.");
+        }
+        try
+        {
+            openSegments();
+        }
+        catch (IOException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map segments left in directory by an earlier archive, allocation goes on after last written region of the last one.
+     */
+    private void openSegments() throws IOException
+    {
+        for (Path file = segmentFile(0); Files.exists(file); file = segmentFile(files.size()))
+        {
+            mapSegment(new RandomAccessFile(file.toFile(), "rw"), -1);
+        }
+        if (segments.isEmpty())
+        {
+            return;
+        }
+        // regions may be completed out of allocation order, anything up to last written one may be referred to
+        usedRegions = segmentRegions;
+        while (usedRegions > 0 && !isWritten(segments.size() - 1, usedRegions - 1))
+        {
+            usedRegions--;
+        }
+        firstUnforcedSegment = segments.size() - 1;
+    }
+
+    private Path segmentFile(int pSegment)
+    {
+        return directory.resolve("segment-" + pSegment);
+    }
+
+    /**
+     * Map segment file, extended to given length unless negative.
+     */
+    private void mapSegment(RandomAccessFile pFile, long pLength) throws IOException
+    {
+        try
+        {
+            if (pLength >= 0)
+            {
+                pFile.setLength(pLength);
+            }
+            long length = pFile.length();
+            if (length % REGION_SIZE != 0 || length > Integer.MAX_VALUE)
+            {
+                throw new IOException("Archive segment of unexpected length " + length + " in " + directory);
+            }
+            segments.add(pFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length));
+            segmentRegions = (int) (length / REGION_SIZE);
+        }
+        catch (IOException e)
+        {
+            pFile.close();
+            throw e;
+        }
+        files.add(pFile);
+    }
+
+    private boolean isWritten(int pSegment, int pRegion)
+    {
+        return new Region(segments.get(pSegment), files.get(pSegment).getChannel(), pSegment, pRegion).isWritten();
+    }
+
+    /**
+     * Number of segment files created so far.
+     *
+     * @return
+     */
+    public synchronized int getSegmentCount()
+    {
+        return files.size();
+    }
+
+    /**
+     * Reserve region for one chunk, opening a new segment when current one is full.
+     *
+     * @return region over which entries are written and read
+     * @throws IOException
+     */
+    synchronized Region allocate() throws IOException
+    {
+        if (segments.isEmpty() || usedRegions == segmentRegions)
+        {
+            mapSegment(new RandomAccessFile(segmentFile(files.size()).toFile(), "rw"), (long) regionsPerSegment * REGION_SIZE);
+            usedRegions = 0;
+        }
+        int segment = segments.size() - 1;
+        return new Region(segments.get(segment), files.get(segment).getChannel(), segment, usedRegions++);
+    }
+
+    /**
+     * Returns written region at given position, ex: region of a chunk archived before archive was reopened.
+     *
+     * @param pSegment
+     * @param pRegion
+     * @return
+     * @throws IOException when there is no written region at that position
+     */
+    synchronized Region getRegion(int pSegment, int pRegion) throws IOException
+    {
+        if (pSegment < 0 || pSegment >= segments.size() || pRegion < 0 || pRegion >= segments.get(pSegment).capacity() / REGION_SIZE
+                || !isWritten(pSegment, pRegion))
+        {
+            throw new IOException("No archived chunk at region " + pRegion + " of segment " + pSegment + " in " + directory);
+        }
+        return new Region(segments.get(pSegment), files.get(pSegment).getChannel(), pSegment, pRegion);
+    }
+
+    /**
+     * Force regions written since last call to disk, before chunks archived in them are published.
+     */
+    void force()
+    {
+        List<MappedByteBuffer> written;
+        synchronized (this)
+        {
+            written = new ArrayList<>(segments.subList(firstUnforcedSegment, segments.size()));
+            firstUnforcedSegment = Math.max(0, segments.size() - 1);
+        }
+        // outside of archive lock, other accounts keep allocating meanwhile
+        for (MappedByteBuffer segment : written)
+        {
+            segment.force();
+        }
+    }
+
+    /**
+     * Close segment files and release directory. Mappings stay readable until the chunks referring to them are collected.
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        IOException failure = null;
+        for (RandomAccessFile file : files)
+        {
+            try
+            {
+                file.close();
+            }
+            catch (IOException e)
+            {
+                failure = e;
+            }
+        }
+        files.clear();
+        segments.clear();
+        try
+        {
+            lockChannel.close();
+        }
+        catch (IOException e)
+        {
+            failure = e;
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * Slot of one chunk inside a mapped segment. Only absolute get/put are used on the shared buffer, so regions of one segment
+     * are read and written by different threads without coordination.
+     */
+    static final class Region
+    {
+        private static final int AMOUNTS = ActivityLog.CHUNK_SIZE * 8;
+
+        private static final int BALANCES = ActivityLog.CHUNK_SIZE * 16;
+
+        private static final int TYPES = ActivityLog.CHUNK_SIZE * 24;
+
+        private static final int POSTINGS = ActivityLog.CHUNK_SIZE * 25;
+
+        private static final int POSTING_STARTS = ActivityLog.CHUNK_SIZE * 27;
+
+        private final MappedByteBuffer buffer;
+
+        // Channel of segment file, mapped from its start
+        private final FileChannel channel;
+
+        private final int segment;
+
+        // Position of region in its segment
+        private final int index;
+
+        private final int base;
+
+        private Region(MappedByteBuffer pBuffer, FileChannel pChannel, int pSegment, int pIndex)
+        {
+            this.buffer = pBuffer;
+            this.channel = pChannel;
+            this.segment = pSegment;
+            this.index = pIndex;
+            this.base = pIndex * REGION_SIZE;
+        }
+
+        int getSegment()
+        {
+            return segment;
+        }
+
+        int getIndex()
+        {
+            return index;
+        }
+
+        /**
+         * Region is written once its postings are put, postings of all entries end at chunk size.
+         *
+         * @return
+         */
+        boolean isWritten()
+        {
+            return buffer.getShort(base + POSTING_STARTS + (AccountingOperationType.values().length << 1)) == ActivityLog.CHUNK_SIZE;
+        }
+
+        /**
+         * Number of entries of given type.
+         *
+         * @param pType
+         * @return
+         */
+        int getPostingCount(int pType)
+        {
+            return buffer.getShort(base + POSTING_STARTS + ((pType + 1) << 1)) - buffer.getShort(base + POSTING_STARTS + (pType << 1));
+        }
+
+        /**
+         * Write columns of given entries to target (transaction nanos, amounts, balances, then types), straight from segment file
+         * with transferTo. Falls back to writing from the mapping once archive is closed.
+         *
+         * @param pOffset
+         * @param pCount
+         * @param pTarget
+         * @throws IOException
+         */
+        void transferTo(int pOffset, int pCount, WritableByteChannel pTarget) throws IOException
+        {
+            transferColumn(base + (pOffset << 3), pCount << 3, pTarget);
+            transferColumn(base + AMOUNTS + (pOffset << 3), pCount << 3, pTarget);
+            transferColumn(base + BALANCES + (pOffset << 3), pCount << 3, pTarget);
+            transferColumn(base + TYPES + pOffset, pCount, pTarget);
+        }
+
+        private void transferColumn(long pPosition, long pLength, WritableByteChannel pTarget) throws IOException
+        {
+            long position = pPosition;
+            long remaining = pLength;
+            while (remaining > 0 && channel.isOpen())
+            {
+                long transferred = channel.transferTo(position, remaining, pTarget);
+                if (transferred <= 0)
+                {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            if (remaining > 0)
+            {
+                ByteBuffer column = buffer.duplicate();
+                column.limit((int) (position + remaining)).position((int) position);
+                while (column.hasRemaining())
+                {
+                    pTarget.write(column);
+                }
+            }
+        }
+
+        void put(int pOffset, long pTransactionNanos, byte pType, long pMinorUnits, long pBalance)
+        {
+            buffer.putLong(base + (pOffset << 3), pTransactionNanos);
+            buffer.putLong(base + AMOUNTS + (pOffset << 3), pMinorUnits);
+            buffer.putLong(base + BALANCES + (pOffset << 3), pBalance);
+            buffer.put(base + TYPES + pOffset, pType);
+        }
+
+        long getTransactionNanos(int pOffset)
+        {
+            return buffer.getLong(base + (pOffset << 3));
+        }
+
+        long getMinorUnits(int pOffset)
+        {
+            return buffer.getLong(base + AMOUNTS + (pOffset << 3));
+        }
+
+        long getBalance(int pOffset)
+        {
+            return buffer.getLong(base + BALANCES + (pOffset << 3));
+        }
+
+        byte getType(int pOffset)
+        {
+            return buffer.get(base + TYPES + pOffset);
+        }
+
+        /**
+         * Group offsets of entries by operation type, ascending within a type. Called once, after every entry of the region is
+         * put and before region is published.
+         *
+         * @param pTypeCount
+         */
+        void putPostings(int pTypeCount)
+        {
+            int[] starts = new int[pTypeCount + 1];
+            for (int offset = 0; offset < ActivityLog.CHUNK_SIZE; offset++)
+            {
+                starts[getType(offset) + 1]++;
+            }
+            for (int type = 0; type < pTypeCount; type++)
+            {
+                starts[type + 1] += starts[type];
+            }
+            int[] next = starts.clone();
+            for (int offset = 0; offset < ActivityLog.CHUNK_SIZE; offset++)
+            {
+                buffer.putShort(base + POSTINGS + (next[getType(offset)]++ << 1), (short) offset);
+            }
+            // starts last, end of postings marks region written
+            for (int type = 0; type <= pTypeCount; type++)
+            {
+                buffer.putShort(base + POSTING_STARTS + (type << 1), (short) starts[type]);
+            }
+        }
+
+        /**
+         * Returns position of first posting of given type having offset not less than given offset.
+         *
+         * @param pType
+         * @param pOffset
+         * @return
+         */
+        int postingOf(int pType, int pOffset)
+        {
+            int low = buffer.getShort(base + POSTING_STARTS + (pType << 1));
+            int high = buffer.getShort(base + POSTING_STARTS + ((pType + 1) << 1));
+            while (low < high)
+            {
+                int middle = (low + high) >>> 1;
+                if (getPosting(middle) < pOffset)
+                {
+                    low = middle + 1;
+                }
+                else
+                {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns offset of entry at given posting position.
+         *
+         * @param pPosition
+         * @return
+         */
+        int getPosting(int pPosition)
+        {
+            return buffer.getShort(base + POSTINGS + (pPosition << 1));
+        }
+    }
+}
@@ -0,0 +1,931 @@
+package in.services.accounting.personalbanking.views;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+
+/**
+ * Append-only statement of an account, stored column wise in chunks of primitive arrays
+ * (transaction time in epoch nanos, operation type, transaction amount and balance amount in minor units).
+ * <p>
+ * Transaction time is non-decreasing, so a time range is located by binary search. Each operation type additionally keeps
+ * a posting list (indexes of its entries), so type filtered range queries cost O(log n + k).
+ * <p>
+ * Single writer (holder of account lock) appends, any number of readers read without locking: an entry is written before
+ * size is published (volatile), readers only look at entries below the size they have read.
+ * {@link Activity} objects are created lazily when an entry is read.
+ * <p>
+ * Full chunks of old entries can be moved to an {@link ActivityArchive}, after which they are read from a memory-mapped
+ * segment instead of the heap. Their postings move with them, heap posting lists only hold entries still on heap.
+ * <p>
+ * Totals are kept per day (UTC) at append time, so a period summary adds up whole days from the day index and scans only
+ * entries of the partial days at both ends of the period.
+ */
+public final class ActivityLog
+{
+    private static final int CHUNK_SHIFT = 10;
+
+    // Entries per chunk
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Capacity of first chunk, first chunk grows up to chunk size so that small accounts stay small.
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final AccountingOperationType[] TYPES = AccountingOperationType.values();
+
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
+
+    private final int currencyCode;
+
+    // Replaced (never modified in place for published slots) when a chunk is added or the first chunk grows.
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    private volatile int size;
+
+    // Indexes of entries per operation type, indexed by type ordinal.
+    private final PostingList[] postings = new PostingList[TYPES.length];
+
+    // Leading chunks moved to archive, chunks are archived in order. Written by the single writer only.
+    private volatile int archivedChunks;
+
+    // Last transaction time, used to keep transaction time non-decreasing even if wall clock goes backwards.
+    private long lastTransactionNanos = Long.MIN_VALUE;
+
+    private final DayIndex days = new DayIndex();
+
+    // Balance before first entry while log is empty, ex: balance recovered from journal. Written by the single writer only.
+    private volatile long openingBalance;
+
+    public ActivityLog(int pCurrencyCode)
+    {
+        this.currencyCode = pCurrencyCode;
+        for (int i = 0; i < postings.length; i++)
+        {
+            postings[i] = new PostingList();
+        }
+    }
+
+    /**
+     * Append entry with current time. Caller must be the single writer (hold account lock).
+     *
+     * @param pAccountingOperationType
+     * @param pMinorUnits
+     * @param pBalance
+     */
+    void append(AccountingOperationType pAccountingOperationType, long pMinorUnits, long pBalance)
+    {
+        append(toEpochNanos(Instant.now()), pAccountingOperationType, pMinorUnits, pBalance);
+    }
+
+    /**
+     * Append entry. Caller must be the single writer (hold account lock).
+     *
+     * @param pTransactionNanos
+     * @param pAccountingOperationType
+     * @param pMinorUnits
+     * @param pBalance
+     */
+    void append(long pTransactionNanos, AccountingOperationType pAccountingOperationType, long pMinorUnits, long pBalance)
+    {
+        int index = size;
+        HeapChunk chunk = chunkForWrite(index);
+        int offset = index & CHUNK_MASK;
+        lastTransactionNanos = Math.max(lastTransactionNanos, pTransactionNanos);
+        chunk.transactionNanos[offset] = lastTransactionNanos;
+        chunk.types[offset] = (byte) pAccountingOperationType.ordinal();
+        chunk.amounts[offset] = pMinorUnits;
+        chunk.balances[offset] = pBalance;
+        // posting and day are published before size, a reader bounds them by the size it has read
+        postings[pAccountingOperationType.ordinal()].add(index);
+        days.add(index, lastTransactionNanos, pAccountingOperationType, pMinorUnits);
+        size = index + 1;
+    }
+
+    /**
+     * Set balance the account had before its first entry, for an account whose balance was recovered without its history.
+     * Caller must be the single writer (hold account lock), once entries exist it is derived from the first one.
+     *
+     * @param pBalance
+     */
+    void setOpeningBalance(long pBalance)
+    {
+        openingBalance = pBalance;
+    }
+
+    /**
+     * Number of entries.
+     *
+     * @return
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public int getCurrencyCode()
+    {
+        return currencyCode;
+    }
+
+    public long getTransactionNanos(int pIndex)
+    {
+        return chunk(pIndex).transactionNanos(pIndex & CHUNK_MASK);
+    }
+
+    public AccountingOperationType getAccountingOperationType(int pIndex)
+    {
+        return TYPES[chunk(pIndex).type(pIndex & CHUNK_MASK)];
+    }
+
+    public long getTransactionMinorUnits(int pIndex)
+    {
+        return chunk(pIndex).amount(pIndex & CHUNK_MASK);
+    }
+
+    public long getBalanceMinorUnits(int pIndex)
+    {
+        return chunk(pIndex).balance(pIndex & CHUNK_MASK);
+    }
+
+    /**
+     * Returns entry as {@link Activity}.
+     *
+     * @param pIndex
+     * @return
+     */
+    public Activity getActivity(int pIndex)
+    {
+        Chunk chunk = chunk(pIndex);
+        int offset = pIndex & CHUNK_MASK;
+        long nanos = chunk.transactionNanos(offset);
+        return Activity.newBuilder()
+                .setTransactionDate(Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L)))
+                .setAccountingOperationType(TYPES[chunk.type(offset)])
+                .setAmounts(currencyCode, chunk.amount(offset), chunk.balance(offset))
+                .build();
+    }
+
+    /**
+     * Returns index of first entry with transaction time at or after given time, or size if there is none.
+     *
+     * @param pTransactionNanos
+     * @return
+     */
+    public int indexOf(long pTransactionNanos)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (getTransactionNanos(middle) < pTransactionNanos)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Visit index of every entry of given type (all entries for {@link AccountingOperationType#BOTH}) having transaction time
+     * in range [from, to), in append order.
+     *
+     * @param pAccountingOperationType
+     * @param pFromNanos inclusive
+     * @param pToNanos   exclusive
+     * @param pConsumer
+     */
+    public void forEachIndex(AccountingOperationType pAccountingOperationType, long pFromNanos, long pToNanos, IntConsumer pConsumer)
+    {
+        int end = indexOf(pToNanos);
+        if (pAccountingOperationType == AccountingOperationType.BOTH)
+        {
+            for (int index = indexOf(pFromNanos); index < end; index++)
+            {
+                pConsumer.accept(index);
+            }
+        }
+        else
+        {
+            int type = pAccountingOperationType.ordinal();
+            PostingList postingList = postings[type];
+            // size before postings, postings before chunks: chunks below first heap index are then seen archived
+            int postingCount = postingList.size;
+            HeapPostings heap = postingList.heap;
+            int start = indexOf(pFromNanos);
+            Chunk[] current = chunks;
+            for (int index = start; index < Math.min(end, heap.firstIndex); )
+            {
+                int chunkStart = index & ~CHUNK_MASK;
+                int chunkEnd = Math.min(Math.min(end, heap.firstIndex), chunkStart + CHUNK_SIZE);
+                ActivityArchive.Region region = ((ArchivedChunk) current[index >>> CHUNK_SHIFT]).region;
+                int postingEnd = region.postingOf(type, chunkEnd - chunkStart);
+                for (int posting = region.postingOf(type, index - chunkStart); posting < postingEnd; posting++)
+                {
+                    pConsumer.accept(chunkStart + region.getPosting(posting));
+                }
+                index = chunkEnd;
+            }
+            int[] entries = heap.entries;
+            int postingEnd = lowerBound(entries, postingCount - heap.dropped, end);
+            for (int posting = lowerBound(entries, postingEnd, Math.max(start, heap.firstIndex)); posting < postingEnd; posting++)
+            {
+                pConsumer.accept(entries[posting]);
+            }
+        }
+    }
+
+    /**
+     * Number of entries of given type having index in range [from, to).
+     */
+    private int count(AccountingOperationType pAccountingOperationType, int pFromIndex, int pToIndex)
+    {
+        int type = pAccountingOperationType.ordinal();
+        PostingList postingList = postings[type];
+        int postingCount = postingList.size;
+        HeapPostings heap = postingList.heap;
+        Chunk[] current = chunks;
+        int count = 0;
+        for (int index = pFromIndex; index < Math.min(pToIndex, heap.firstIndex); )
+        {
+            int chunkStart = index & ~CHUNK_MASK;
+            int chunkEnd = Math.min(Math.min(pToIndex, heap.firstIndex), chunkStart + CHUNK_SIZE);
+            ActivityArchive.Region region = ((ArchivedChunk) current[index >>> CHUNK_SHIFT]).region;
+            count += region.postingOf(type, chunkEnd - chunkStart) - region.postingOf(type, index - chunkStart);
+            index = chunkEnd;
+        }
+        int[] entries = heap.entries;
+        int end = lowerBound(entries, postingCount - heap.dropped, pToIndex);
+        return count + end - lowerBound(entries, end, Math.max(pFromIndex, heap.firstIndex));
+    }
+
+    /**
+     * Summarize entries of given type (all entries for {@link AccountingOperationType#BOTH}) having transaction time in range
+     * [from, to). Whole days of the range are added up from the day index, only entries of the first and last day are read.
+     *
+     * @param pAccountingOperationType
+     * @param pFromNanos inclusive
+     * @param pToNanos   exclusive
+     * @return
+     */
+    public StatementSummary getSummary(AccountingOperationType pAccountingOperationType, long pFromNanos, long pToNanos)
+    {
+        int limit = size;
+        int start = Math.min(indexOf(pFromNanos), limit);
+        int end = Math.max(start, Math.min(indexOf(pToNanos), limit));
+        long openingBalance = balanceBefore(start, limit);
+        long closingBalance = balanceBefore(end, limit);
+
+        long[] totals = new long[TYPES.length];
+        int dayCount = days.size;
+        int[] dayStarts = days.starts;
+        // first day starting within range, and last day boundary within range
+        int firstDay = lowerBound(dayStarts, dayCount, start);
+        int boundaryDay = lowerBound(dayStarts, dayCount, end);
+        if (boundaryDay == dayCount || dayStarts[boundaryDay] != end)
+        {
+            boundaryDay--;
+        }
+        if (firstDay < dayCount && firstDay <= boundaryDay)
+        {
+            long[] before = days.totalsBefore;
+            for (int type = 0; type < TYPES.length; type++)
+            {
+                // running totals may wrap, the difference is still exact while the period total fits
+                totals[type] = before[boundaryDay * TYPES.length + type] - before[firstDay * TYPES.length + type];
+            }
+            addEntries(totals, start, dayStarts[firstDay]);
+            addEntries(totals, dayStarts[boundaryDay], end);
+        }
+        else
+        {
+            addEntries(totals, start, end);
+        }
+
+        int deposit = AccountingOperationType.DEPOSIT.ordinal();
+        int withdraw = AccountingOperationType.WITHDRAW.ordinal();
+        boolean deposits = pAccountingOperationType != AccountingOperationType.WITHDRAW;
+        boolean withdrawals = pAccountingOperationType != AccountingOperationType.DEPOSIT;
+        return new StatementSummary(currencyCode,
+                deposits ? totals[deposit] : 0,
+                deposits ? count(AccountingOperationType.DEPOSIT, start, end) : 0,
+                withdrawals ? totals[withdraw] : 0,
+                withdrawals ? count(AccountingOperationType.WITHDRAW, start, end) : 0,
+                openingBalance, closingBalance);
+    }
+
+    private long balanceBefore(int pIndex, int pLimit)
+    {
+        if (pIndex > 0)
+        {
+            return getBalanceMinorUnits(pIndex - 1);
+        }
+        if (pLimit == 0)
+        {
+            return openingBalance;
+        }
+        // first entry may follow a recovered balance, undo its amount
+        long minorUnits = getTransactionMinorUnits(0);
+        return getAccountingOperationType(0) == AccountingOperationType.WITHDRAW ? getBalanceMinorUnits(0) + minorUnits : getBalanceMinorUnits(0) - minorUnits;
+    }
+
+    private void addEntries(long[] pTotals, int pFrom, int pTo)
+    {
+        for (int index = pFrom; index < pTo; index++)
+        {
+            Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+            int offset = index & CHUNK_MASK;
+            pTotals[chunk.type(offset)] += chunk.amount(offset);
+        }
+    }
+
+    /**
+     * Returns first position (below pLimit) holding a value not less than given value.
+     */
+    private static int lowerBound(int[] pValues, int pLimit, int pValue)
+    {
+        int low = 0;
+        int high = Math.min(pLimit, pValues.length);
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (pValues[middle] < pValue)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Converts instant to epoch nanos, saturating at range of long.
+     *
+     * @param pInstant
+     * @return
+     */
+    public static long toEpochNanos(Instant pInstant)
+    {
+        try
+        {
+            return Math.addExact(Math.multiplyExact(pInstant.getEpochSecond(), 1_000_000_000L), pInstant.getNano());
+        }
+        catch (ArithmeticException e)
+        {
+            return pInstant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Returns read only list view of entries appended so far. Activities are created on access.
+     *
+     * @return
+     */
+    public List<Activity> asList()
+    {
+        return new ActivityList(size);
+    }
+
+    /**
+     * Move every full chunk whose last entry is older than given time to archive. Caller must be the single writer
+     * (hold account lock); readers keep reading while chunks are moved, from either copy.
+     *
+     * @param pActivityArchive
+     * @param pOlderThanNanos
+     * @return number of entries moved
+     * @throws IOException
+     */
+    int archive(ActivityArchive pActivityArchive, long pOlderThanNanos) throws IOException
+    {
+        Chunk[] current = chunks;
+        int fullChunks = size >>> CHUNK_SHIFT;
+        Chunk[] updated = null;
+        int chunkIndex = archivedChunks;
+        for (; chunkIndex < fullChunks && current[chunkIndex].transactionNanos(CHUNK_MASK) < pOlderThanNanos; chunkIndex++)
+        {
+            Chunk chunk = current[chunkIndex];
+            ActivityArchive.Region region = pActivityArchive.allocate();
+            for (int offset = 0; offset < CHUNK_SIZE; offset++)
+            {
+                region.put(offset, chunk.transactionNanos(offset), chunk.type(offset), chunk.amount(offset), chunk.balance(offset));
+            }
+            region.putPostings(TYPES.length);
+            if (updated == null)
+            {
+                updated = current.clone();
+            }
+            updated[chunkIndex] = new ArchivedChunk(region);
+        }
+        if (updated == null)
+        {
+            return 0;
+        }
+        // archived copy is durable before a snapshot can refer to it
+        pActivityArchive.force();
+        int moved = (chunkIndex - archivedChunks) << CHUNK_SHIFT;
+        archivedChunks = chunkIndex;
+        chunks = updated;
+        // postings of archived entries are read from their regions from now on
+        for (PostingList postingList : postings)
+        {
+            postingList.dropBelow(chunkIndex << CHUNK_SHIFT);
+        }
+        return moved;
+    }
+
+    /**
+     * Append chunk archived earlier, ex: by a previous process, read in place from its region. Caller must be the single writer
+     * and must restore archived chunks before appending any entry, and their days with {@link #readDays} once all are appended.
+     *
+     * @param pRegion
+     */
+    void appendArchived(ActivityArchive.Region pRegion)
+    {
+        if (size != archivedChunks << CHUNK_SHIFT)
+        {
+            throw new IllegalStateException("Archived chunks are restored before entries.");
+        }
+        int chunkIndex = archivedChunks;
+        Chunk[] updated = Arrays.copyOf(chunks, chunkIndex + 1);
+        updated[chunkIndex] = new ArchivedChunk(pRegion);
+        chunks = updated;
+        archivedChunks = chunkIndex + 1;
+        for (int type = 0; type < TYPES.length; type++)
+        {
+            postings[type].skip(pRegion.getPostingCount(type), (chunkIndex + 1) << CHUNK_SHIFT);
+        }
+        lastTransactionNanos = Math.max(lastTransactionNanos, pRegion.getTransactionNanos(CHUNK_MASK));
+        size = (chunkIndex + 1) << CHUNK_SHIFT;
+    }
+
+    /**
+     * Returns totals per operation type of all entries so far. Caller must be the single writer (hold account lock).
+     *
+     * @return
+     */
+    long[] getTotals()
+    {
+        return days.totals.clone();
+    }
+
+    /**
+     * Write day index as it was after entries below given end, appending entries from end on again rebuilds the rest of it.
+     * Entries from end to given size must be on heap, totals are those of entries below given size (see {@link #getTotals()}).
+     *
+     * @param pOutput
+     * @param pEnd
+     * @param pSize
+     * @param pTotals
+     * @throws IOException
+     */
+    void writeDays(DataOutput pOutput, int pEnd, int pSize, long[] pTotals) throws IOException
+    {
+        if (pEnd == 0)
+        {
+            pOutput.writeInt(0);
+            return;
+        }
+        long[] totals = pTotals.clone();
+        for (int index = pEnd; index < pSize; index++)
+        {
+            Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+            int offset = index & CHUNK_MASK;
+            totals[chunk.type(offset)] -= chunk.amount(offset);
+        }
+        // days starting below end were published before entry at end
+        int dayCount = days.size;
+        int[] dayStarts = days.starts;
+        long[] before = days.totalsBefore;
+        int count = lowerBound(dayStarts, dayCount, pEnd);
+        pOutput.writeInt(count);
+        pOutput.writeLong(Math.floorDiv(getTransactionNanos(pEnd - 1), NANOS_PER_DAY));
+        for (long total : totals)
+        {
+            pOutput.writeLong(total);
+        }
+        for (int day = 0; day < count; day++)
+        {
+            pOutput.writeInt(dayStarts[day]);
+            for (int type = 0; type < TYPES.length; type++)
+            {
+                pOutput.writeLong(before[day * TYPES.length + type]);
+            }
+        }
+    }
+
+    /**
+     * Read day index written by {@link #writeDays}, covering entries restored so far. Caller must be the single writer.
+     *
+     * @param pInput
+     * @throws IOException
+     */
+    void readDays(DataInput pInput) throws IOException
+    {
+        int count = pInput.readInt();
+        if (count == 0)
+        {
+            return;
+        }
+        long lastDay = pInput.readLong();
+        long[] totals = new long[TYPES.length];
+        for (int type = 0; type < TYPES.length; type++)
+        {
+            totals[type] = pInput.readLong();
+        }
+        int[] dayStarts = new int[Math.max(4, count)];
+        long[] before = new long[dayStarts.length * TYPES.length];
+        for (int day = 0; day < count; day++)
+        {
+            dayStarts[day] = pInput.readInt();
+            for (int type = 0; type < TYPES.length; type++)
+            {
+                before[day * TYPES.length + type] = pInput.readLong();
+            }
+        }
+        days.restore(dayStarts, before, count, lastDay, totals);
+    }
+
+    /**
+     * Returns region of given archived chunk.
+     *
+     * @param pChunk below {@link #getArchivedSize()} in chunks
+     * @return
+     */
+    ActivityArchive.Region getArchivedRegion(int pChunk)
+    {
+        return ((ArchivedChunk) chunks[pChunk]).region;
+    }
+
+    /**
+     * Visit entries in range [from, to) chunk by chunk, in order, handing out the storage they are held in.
+     *
+     * @param pFromIndex
+     * @param pToIndex
+     * @param pBlockVisitor
+     * @throws IOException
+     */
+    void forEachBlock(int pFromIndex, int pToIndex, BlockVisitor pBlockVisitor) throws IOException
+    {
+        if (pFromIndex < 0 || pToIndex > size || pFromIndex > pToIndex)
+        {
+            throw new IndexOutOfBoundsException("Range: [" + pFromIndex + ", " + pToIndex + "), Size: " + size);
+        }
+        Chunk[] current = chunks;
+        for (int index = pFromIndex; index < pToIndex; )
+        {
+            int offset = index & CHUNK_MASK;
+            int count = Math.min(pToIndex - index, CHUNK_SIZE - offset);
+            current[index >>> CHUNK_SHIFT].visit(pBlockVisitor, offset, count);
+            index += count;
+        }
+    }
+
+    /**
+     * Receives consecutive entries of one chunk, either heap columns or an archive region.
+     */
+    interface BlockVisitor
+    {
+        void heapBlock(long[] pTransactionNanos, byte[] pTypes, long[] pAmounts, long[] pBalances, int pOffset, int pCount) throws IOException;
+
+        void archivedBlock(ActivityArchive.Region pRegion, int pOffset, int pCount) throws IOException;
+    }
+
+    /**
+     * Number of entries held in archive.
+     *
+     * @return
+     */
+    public int getArchivedSize()
+    {
+        return archivedChunks << CHUNK_SHIFT;
+    }
+
+    private Chunk chunk(int pIndex)
+    {
+        if (pIndex < 0 || pIndex >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + pIndex + ", Size: " + size);
+        }
+        return chunks[pIndex >>> CHUNK_SHIFT];
+    }
+
+    private HeapChunk chunkForWrite(int pIndex)
+    {
+        Chunk[] current = chunks;
+        int chunkIndex = pIndex >>> CHUNK_SHIFT;
+        int offset = pIndex & CHUNK_MASK;
+        // chunk being written is never archived, only full chunks are
+        if (chunkIndex < current.length && offset < current[chunkIndex].capacity())
+        {
+            return (HeapChunk) current[chunkIndex];
+        }
+        Chunk[] updated = Arrays.copyOf(current, chunkIndex + 1);
+        if (chunkIndex < current.length)
+        {
+            // only the first chunk grows, entries below size are copied before the new chunk is published
+            updated[chunkIndex] = ((HeapChunk) current[chunkIndex]).grow(Math.min(CHUNK_SIZE, current[chunkIndex].capacity() * 2), offset);
+        }
+        else
+        {
+            updated[chunkIndex] = new HeapChunk(chunkIndex == 0 ? INITIAL_CAPACITY : CHUNK_SIZE);
+        }
+        chunks = updated;
+        return (HeapChunk) updated[chunkIndex];
+    }
+
+    /**
+     * Columns of up to {@link #CHUNK_SIZE} consecutive entries.
+     */
+    private abstract static class Chunk
+    {
+        abstract int capacity();
+
+        abstract long transactionNanos(int pOffset);
+
+        abstract byte type(int pOffset);
+
+        abstract long amount(int pOffset);
+
+        abstract long balance(int pOffset);
+
+        abstract void visit(BlockVisitor pBlockVisitor, int pOffset, int pCount) throws IOException;
+    }
+
+    private static final class HeapChunk extends Chunk
+    {
+        private final long[] transactionNanos;
+
+        private final byte[] types;
+
+        private final long[] amounts;
+
+        private final long[] balances;
+
+        private HeapChunk(int pCapacity)
+        {
+            transactionNanos = new long[pCapacity];
+            types = new byte[pCapacity];
+            amounts = new long[pCapacity];
+            balances = new long[pCapacity];
+        }
+
+        @Override
+        int capacity()
+        {
+            return types.length;
+        }
+
+        @Override
+        long transactionNanos(int pOffset)
+        {
+            return transactionNanos[pOffset];
+        }
+
+        @Override
+        byte type(int pOffset)
+        {
+            return types[pOffset];
+        }
+
+        @Override
+        long amount(int pOffset)
+        {
+            return amounts[pOffset];
+        }
+
+        @Override
+        long balance(int pOffset)
+        {
+            return balances[pOffset];
+        }
+
+        @Override
+        void visit(BlockVisitor pBlockVisitor, int pOffset, int pCount) throws IOException
+        {
+            pBlockVisitor.heapBlock(transactionNanos, types, amounts, balances, pOffset, pCount);
+        }
+
+        private HeapChunk grow(int pCapacity, int pUsed)
+        {
+            HeapChunk chunk = new HeapChunk(pCapacity);
+            System.arraycopy(transactionNanos, 0, chunk.transactionNanos, 0, pUsed);
+            System.arraycopy(types, 0, chunk.types, 0, pUsed);
+            System.arraycopy(amounts, 0, chunk.amounts, 0, pUsed);
+            System.arraycopy(balances, 0, chunk.balances, 0, pUsed);
+            return chunk;
+        }
+    }
+
+    /**
+     * Full chunk moved to a memory-mapped archive region, read in place.
+     */
+    private static final class ArchivedChunk extends Chunk
+    {
+        private final ActivityArchive.Region region;
+
+        private ArchivedChunk(ActivityArchive.Region pRegion)
+        {
+            this.region = pRegion;
+        }
+
+        @Override
+        int capacity()
+        {
+            return CHUNK_SIZE;
+        }
+
+        @Override
+        long transactionNanos(int pOffset)
+        {
+            return region.getTransactionNanos(pOffset);
+        }
+
+        @Override
+        byte type(int pOffset)
+        {
+            return region.getType(pOffset);
+        }
+
+        @Override
+        long amount(int pOffset)
+        {
+            return region.getMinorUnits(pOffset);
+        }
+
+        @Override
+        long balance(int pOffset)
+        {
+            return region.getBalance(pOffset);
+        }
+
+        @Override
+        void visit(BlockVisitor pBlockVisitor, int pOffset, int pCount) throws IOException
+        {
+            pBlockVisitor.archivedBlock(region, pOffset, pCount);
+        }
+    }
+
+    /**
+     * Ascending indexes of entries of one operation type. Same publication rule as the log: entry is written before size.
+     * Postings of archived entries are dropped once their chunks are published archived, readers find them in archive regions.
+     */
+    private static final class PostingList
+    {
+        // Replaced when it grows or postings are dropped
+        private volatile HeapPostings heap = new HeapPostings(new int[4], 0, 0);
+
+        // Number of postings added, dropped ones included
+        private volatile int size;
+
+        private void add(int pIndex)
+        {
+            HeapPostings current = heap;
+            int position = size - current.dropped;
+            if (position == current.entries.length)
+            {
+                current = new HeapPostings(Arrays.copyOf(current.entries, position * 2), current.firstIndex, current.dropped);
+            }
+            current.entries[position] = pIndex;
+            heap = current;
+            size = size + 1;
+        }
+
+        /**
+         * Account for postings held elsewhere (in an archive region), entries below given index are archived.
+         */
+        private void skip(int pCount, int pFirstIndex)
+        {
+            HeapPostings current = heap;
+            heap = new HeapPostings(current.entries, pFirstIndex, current.dropped + pCount);
+            size = size + pCount;
+        }
+
+        /**
+         * Drop postings of entries below given index.
+         */
+        private void dropBelow(int pFirstIndex)
+        {
+            HeapPostings current = heap;
+            int heapSize = size - current.dropped;
+            int dropped = lowerBound(current.entries, heapSize, pFirstIndex);
+            int[] kept = Arrays.copyOfRange(current.entries, dropped, dropped + Math.max(4, heapSize - dropped));
+            heap = new HeapPostings(kept, pFirstIndex, current.dropped + dropped);
+        }
+    }
+
+    /**
+     * Postings of entries at or after first index, never modified except for slots at or above published size.
+     */
+    private static final class HeapPostings
+    {
+        private final int[] entries;
+
+        // Entries below it are archived
+        private final int firstIndex;
+
+        // Number of postings dropped before first one held
+        private final int dropped;
+
+        private HeapPostings(int[] pEntries, int pFirstIndex, int pDropped)
+        {
+            this.entries = pEntries;
+            this.firstIndex = pFirstIndex;
+            this.dropped = pDropped;
+        }
+    }
+
+    /**
+     * Days having entries, in ascending order: index of first entry of the day and running totals per operation type of all
+     * entries before it. Values of a published day never change, readers use them without locking.
+     */
+    private static final class DayIndex
+    {
+        private volatile int[] starts = new int[4];
+
+        // Totals before each day, TYPES.length values per day
+        private volatile long[] totalsBefore = new long[4 * TYPES.length];
+
+        private volatile int size;
+
+        // Epoch day of last day, written by the single writer only
+        private long lastDay = Long.MIN_VALUE;
+
+        // Totals of all entries so far, written by the single writer only
+        private final long[] totals = new long[TYPES.length];
+
+        private void restore(int[] pStarts, long[] pTotalsBefore, int pSize, long pLastDay, long[] pTotals)
+        {
+            totalsBefore = pTotalsBefore;
+            starts = pStarts;
+            size = pSize;
+            lastDay = pLastDay;
+            System.arraycopy(pTotals, 0, totals, 0, TYPES.length);
+        }
+
+        private void add(int pIndex, long pTransactionNanos, AccountingOperationType pAccountingOperationType, long pMinorUnits)
+        {
+            long day = Math.floorDiv(pTransactionNanos, NANOS_PER_DAY);
+            if (day != lastDay)
+            {
+                int[] currentStarts = starts;
+                long[] currentTotals = totalsBefore;
+                if (size == currentStarts.length)
+                {
+                    currentStarts = Arrays.copyOf(currentStarts, currentStarts.length * 2);
+                    currentTotals = Arrays.copyOf(currentTotals, currentTotals.length * 2);
+                }
+                currentStarts[size] = pIndex;
+                System.arraycopy(totals, 0, currentTotals, size * TYPES.length, TYPES.length);
+                totalsBefore = currentTotals;
+                starts = currentStarts;
+                size = size + 1;
+                lastDay = day;
+            }
+            totals[pAccountingOperationType.ordinal()] += pMinorUnits;
+        }
+    }
+
+    /**
+     * Fixed size view over entries appended before the view was created.
+     */
+    private final class ActivityList extends AbstractList<Activity> implements RandomAccess
+    {
+        private final int size;
+
+        private ActivityList(int pSize)
+        {
+            this.size = pSize;
+        }
+
+        @Override
+        public Activity get(int pIndex)
+        {
+            if (pIndex >= size)
+            {
+                throw new IndexOutOfBoundsException("Index: " + pIndex + ", Size: " + size);
+            }
+            return getActivity(pIndex);
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+}
@@ -12,9 +12,21 @@ import in.services.accounting.personalbanking.exceptions.AccountingOperationExce
  */
 public final class Amount
 {
+    public static final String DEFAULT_UNIT_OF_MEASUREMENT = "inr";
+
+    // Marks amount not representable in minor units, never a valid amount itself
+    static final long INVALID_MINOR_UNITS = Long.MIN_VALUE;
+
+    private static final BigDecimal MIN_MINOR_UNITS = BigDecimal.valueOf(Long.MIN_VALUE + 1);
+
+    private static final BigDecimal MAX_MINOR_UNITS = BigDecimal.valueOf(Long.MAX_VALUE);
+
     // Unit of measurement Ex: USD, INR
     private final String unitOfMeasurement;
 
+    // Interned unit of measurement, see Currencies
+    private final int currencyCode;
+
     // Amount value
     private BigDecimal value;
 
@@ -26,14 +38,84 @@ public final class Amount
     private Amount(AmountBuilder pBuilder)
     {
         this.unitOfMeasurement = pBuilder.unitOfMeasurement;
+        this.currencyCode = Currencies.codeOf(pBuilder.unitOfMeasurement);
         this.value = pBuilder.value;
     }
 
+    /**
+     * Creates amount from count of minor units (Ex: paise for INR). Used at API edge, balances are kept in minor units internally.
+     * Value carries no trailing zeros (1000 paise is 10, not 10.00), since minor units don't remember the scale amounts were
+     * given in: an amount read back from an account equals an amount given with the same scale only, compare values with
+     * {@link BigDecimal#compareTo} to ignore scale.
+     *
+     * @param pCurrencyCode
+     * @param pMinorUnits
+     * @return
+     */
+    public static Amount ofMinorUnits(int pCurrencyCode, long pMinorUnits)
+    {
+        BigDecimal value = BigDecimal.valueOf(pMinorUnits, Currencies.scaleOf(pCurrencyCode)).stripTrailingZeros();
+        if (value.scale() < 0)
+        {
+            value = value.setScale(0);
+        }
+        return newBuilder().setUnitOfMeasurement(Currencies.unitOf(pCurrencyCode)).setValue(value).build();
+    }
+
     public String getUnitOfMeasurement()
     {
         return unitOfMeasurement;
     }
 
+    /**
+     * Returns interned unit of measurement (see {@link Currencies}).
+     *
+     * @return
+     */
+    public int getCurrencyCode()
+    {
+        return currencyCode;
+    }
+
+    /**
+     * Returns amount value as count of minor units of its currency.
+     *
+     * @return
+     * @throws AccountingOperationException when value has more digits than currency minor unit or doesn't fit in long.
+     */
+    public long toMinorUnits() throws AccountingOperationException
+    {
+        long minorUnits = toMinorUnitsOrInvalid();
+        if (minorUnits == INVALID_MINOR_UNITS)
+        {
+            throw new AccountingOperationException("Amount can't be represented in minor units of " + unitOfMeasurement + ".");
+        }
+        return minorUnits;
+    }
+
+    /**
+     * Same as {@link #toMinorUnits()}, returning {@link #INVALID_MINOR_UNITS} instead of raising exception.
+     *
+     * @return
+     */
+    long toMinorUnitsOrInvalid()
+    {
+        BigDecimal minorUnits = value.movePointRight(Currencies.scaleOf(currencyCode));
+        if (minorUnits.scale() > 0)
+        {
+            minorUnits = minorUnits.stripTrailingZeros();
+            if (minorUnits.scale() > 0)
+            {
+                return INVALID_MINOR_UNITS;
+            }
+        }
+        if (minorUnits.compareTo(MIN_MINOR_UNITS) < 0 || minorUnits.compareTo(MAX_MINOR_UNITS) > 0)
+        {
+            return INVALID_MINOR_UNITS;
+        }
+        return minorUnits.longValue();
+    }
+
     /**
      * Function used for amount addition. Function will sum-up amount having same unit of measurement and raise exception in case of different unit of measurement.
      * Scope of amount addition is limited up to amount of same unit of measurement.
@@ -63,14 +145,13 @@ public final class Amount
      */
     public void subtractAmount(Amount pAmount) throws AccountingOperationException
     {
-
-        if (this.getValue().doubleValue() <= 0)
-        {
-            throw new AccountingOperationException("Insufficient Balance for withdrawal.");
-        }
-
         if (this.unitOfMeasurement.equals(pAmount.getUnitOfMeasurement()))
         {
+            // exact comparison of the result, amount never goes below zero
+            if (this.value.compareTo(pAmount.getValue()) < 0)
+            {
+                throw new AccountingOperationException("Insufficient Balance for withdrawal.");
+            }
             this.value = this.value.subtract(pAmount.getValue());
         }
         else
@@ -108,6 +189,9 @@ public final class Amount
                 '}';
     }
 
+    /**
+     * Amounts are equal when unit of measurement and value are equal, scale of value included (10.0 isn't 10).
+     */
     @Override
     public boolean equals(Object o)
     {
@@ -138,7 +222,7 @@ public final class Amount
 
         public AmountBuilder()
         {
-            this.unitOfMeasurement = "inr";
+            this.unitOfMeasurement = DEFAULT_UNIT_OF_MEASUREMENT;
             this.value = new BigDecimal(0);
         }
 
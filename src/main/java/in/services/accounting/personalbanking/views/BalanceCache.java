@@ -0,0 +1,269 @@
+package in.services.accounting.personalbanking.views;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+/**
+ * Read-through cache of account balances by account id, for front ends answering many more balance enquiries than they make
+ * deposits and withdrawals. Accounts are resolved through given loader on a miss, ex: {@link Beneficiary#getAccountById} or
+ * account registry.
+ * <p>
+ * Size is bounded: entries are partitioned by hash of account id across shards, each shard has its own lock and evicts its
+ * least recently used entry when full. Cached balances are never stale: every write of an account moves its balance version
+ * on, and an entry of an older version is reloaded instead of being returned. Writers never touch the cache.
+ */
+public final class BalanceCache
+{
+    private final Shard[] shards;
+
+    private final int shardMask;
+
+    private final AccountLoader accountLoader;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates cache of at most given number of accounts, shard count derived from number of available processors.
+     *
+     * @param pCapacity
+     * @param pAccountLoader
+     */
+    public BalanceCache(int pCapacity, AccountLoader pAccountLoader)
+    {
+        this(pCapacity, Runtime.getRuntime().availableProcessors() * 4, pAccountLoader);
+    }
+
+    /**
+     * Creates cache of at most given number of accounts, with at most given number of shards (rounded down to power of two,
+     * and to capacity).
+     *
+     * @param pCapacity
+     * @param pShardCount
+     * @param pAccountLoader
+     */
+    public BalanceCache(int pCapacity, int pShardCount, AccountLoader pAccountLoader)
+    {
+        if (pCapacity <= 0)
+        {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        int shardCount = Integer.highestOneBit(Math.max(1, Math.min(pShardCount, pCapacity)));
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            // spread remainder of capacity over first shards, so that capacities add up
+            shards[i] = new Shard(pCapacity / shardCount + (i < pCapacity % shardCount ? 1 : 0));
+        }
+        shardMask = shardCount - 1;
+        this.accountLoader = pAccountLoader;
+    }
+
+    /**
+     * Returns current net amount of account with given id, loading account on a miss.
+     *
+     * @param pAccountId
+     * @return
+     * @throws AccountingOperationException when loader can't resolve account id.
+     */
+    public Amount getBalance(String pAccountId) throws AccountingOperationException
+    {
+        Shard shard = shardOf(pAccountId);
+        CachedBalance cached;
+        shard.lock.lock();
+        try
+        {
+            cached = shard.entries.get(pAccountId);
+        }
+        finally
+        {
+            shard.lock.unlock();
+        }
+        if (cached != null && cached.version == cached.account.getBalanceVersion())
+        {
+            hits.increment();
+            return cached.balance;
+        }
+        misses.increment();
+        // stale entry still knows its account, only balance is reloaded
+        Account account = cached != null ? cached.account : accountLoader.load(pAccountId);
+        long version = account.getBalanceVersion();
+        CachedBalance loaded = new CachedBalance(account, account.getNetAmount(), version);
+        shard.lock.lock();
+        try
+        {
+            CachedBalance current = shard.entries.get(pAccountId);
+            // a concurrent miss may have loaded a newer balance meanwhile
+            if (current == null || current.account == account && current.version < version)
+            {
+                shard.entries.put(pAccountId, loaded);
+            }
+        }
+        finally
+        {
+            shard.lock.unlock();
+        }
+        return loaded.balance;
+    }
+
+    /**
+     * Remove entry of given account id, needed only when account id gets resolved to another account (ex: account
+     * unregistered). Balance changes invalidate entries without it.
+     *
+     * @param pAccountId
+     */
+    public void invalidate(String pAccountId)
+    {
+        Shard shard = shardOf(pAccountId);
+        shard.lock.lock();
+        try
+        {
+            shard.entries.remove(pAccountId);
+        }
+        finally
+        {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Remove all entries, counts are kept.
+     */
+    public void clear()
+    {
+        for (Shard shard : shards)
+        {
+            shard.lock.lock();
+            try
+            {
+                shard.entries.clear();
+            }
+            finally
+            {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Number of cached accounts.
+     *
+     * @return
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Shard shard : shards)
+        {
+            shard.lock.lock();
+            try
+            {
+                size += shard.entries.size();
+            }
+            finally
+            {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Number of balances returned from cache.
+     *
+     * @return
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Number of balances loaded, because account wasn't cached or its cached balance was stale.
+     *
+     * @return
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Number of entries evicted to keep cache within capacity.
+     *
+     * @return
+     */
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    public int getShardCount()
+    {
+        return shards.length;
+    }
+
+    private Shard shardOf(String pAccountId)
+    {
+        int hash = pAccountId.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    /**
+     * Resolves account id to account on a cache miss.
+     */
+    @FunctionalInterface
+    public interface AccountLoader
+    {
+        Account load(String pAccountId) throws AccountingOperationException;
+    }
+
+    private static final class CachedBalance
+    {
+        private final Account account;
+
+        private final Amount balance;
+
+        // Balance version of account read before balance
+        private final long version;
+
+        private CachedBalance(Account pAccount, Amount pBalance, long pVersion)
+        {
+            this.account = pAccount;
+            this.balance = pBalance;
+            this.version = pVersion;
+        }
+    }
+
+    private final class Shard
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Map<String, CachedBalance> entries;
+
+        private Shard(int pCapacity)
+        {
+            // access order, eldest entry is least recently used
+            entries = new LinkedHashMap<String, CachedBalance>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedBalance> pEldest)
+                {
+                    if (size() > pCapacity)
+                    {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
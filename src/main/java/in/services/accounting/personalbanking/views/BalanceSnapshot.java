@@ -0,0 +1,109 @@
+package in.services.accounting.personalbanking.views;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Net amount and last activity of an account as of one committed write, see {@link Account#getBalanceSnapshot()}.
+ */
+public final class BalanceSnapshot
+{
+    // Interned unit of measurement of all amounts
+    private final int currencyCode;
+
+    // Amounts in minor units
+    private final long netAmount;
+
+    private final int activityCount;
+
+    // Last activity, type is null when account has no activity
+    private final long lastTransactionNanos;
+
+    private final AccountingOperationType lastAccountingOperationType;
+
+    private final long lastTransactionAmount;
+
+    private final long lastBalanceAmount;
+
+    // Balance version of account the snapshot was read under
+    private final long version;
+
+    BalanceSnapshot(int pCurrencyCode, long pNetAmount, int pActivityCount, long pLastTransactionNanos, AccountingOperationType pLastAccountingOperationType,
+            long pLastTransactionAmount, long pLastBalanceAmount, long pVersion)
+    {
+        this.currencyCode = pCurrencyCode;
+        this.netAmount = pNetAmount;
+        this.activityCount = pActivityCount;
+        this.lastTransactionNanos = pLastTransactionNanos;
+        this.lastAccountingOperationType = pLastAccountingOperationType;
+        this.lastTransactionAmount = pLastTransactionAmount;
+        this.lastBalanceAmount = pLastBalanceAmount;
+        this.version = pVersion;
+    }
+
+    /**
+     * Function will return net amount of account.
+     *
+     * @return
+     */
+    public Amount getNetAmount()
+    {
+        return Amount.ofMinorUnits(currencyCode, netAmount);
+    }
+
+    public long getNetMinorUnits()
+    {
+        return netAmount;
+    }
+
+    /**
+     * Function will return number of activities recorded up to the snapshot, archived ones included.
+     *
+     * @return
+     */
+    public int getActivityCount()
+    {
+        return activityCount;
+    }
+
+    /**
+     * Function will return last activity recorded up to the snapshot, or empty when account has no activity.
+     *
+     * @return
+     */
+    public Optional<Activity> getLastActivity()
+    {
+        if (lastAccountingOperationType == null)
+        {
+            return Optional.empty();
+        }
+        return Optional.of(Activity.newBuilder()
+                .setTransactionDate(Instant.ofEpochSecond(Math.floorDiv(lastTransactionNanos, 1_000_000_000L), Math.floorMod(lastTransactionNanos, 1_000_000_000L)))
+                .setAccountingOperationType(lastAccountingOperationType)
+                .setAmounts(currencyCode, lastTransactionAmount, lastBalanceAmount)
+                .build());
+    }
+
+    /**
+     * Function will return balance version of account the snapshot was read under, a later snapshot of the same version saw
+     * no write in between.
+     *
+     * @return
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BalanceSnapshot{" +
+                "netAmount=" + getNetAmount() +
+                ", activityCount=" + activityCount +
+                ", lastAccountingOperationType=" + lastAccountingOperationType +
+                ", lastTransactionNanos=" + lastTransactionNanos +
+                ", version=" + version +
+                '}';
+    }
+}
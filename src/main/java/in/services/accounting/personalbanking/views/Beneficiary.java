@@ -3,7 +3,10 @@ package in.services.accounting.personalbanking.views;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
 
@@ -16,17 +19,23 @@ public final class Beneficiary
 
     private final String beneficiaryName;
 
-    // one beneficiary can have more than one account associated with them.
+    // one beneficiary can have more than one account associated with them. Guarded by itself, linking appends in place.
     private final List<Account> accounts;
 
+    // Index of linked accounts by account id, first linked account wins for duplicate ids.
+    private final Map<String, Account> accountIndex;
+
     /**
-     * Returns list of all account associated with beneficiary.
+     * Returns list of all account associated with beneficiary, as linked when called.
      *
      * @return
      */
     public List<Account> getAccounts()
     {
-        return Collections.unmodifiableList(accounts);
+        synchronized (accounts)
+        {
+            return Collections.unmodifiableList(new ArrayList<>(accounts));
+        }
     }
 
     /**
@@ -38,19 +47,32 @@ public final class Beneficiary
      */
     public Account getAccountById(String pAccountId) throws AccountingOperationException
     {
-        for (Account account : accounts)
+        Account account = accountIndex.get(pAccountId);
+        if (account == null)
         {
-            if (account.getAccountId().equals(pAccountId))
-            {
-                return account;
-            }
+            throw new AccountingOperationException("Account not found.");
         }
-        throw new AccountingOperationException("Account not found.");
+        return account;
+    }
+
+    /**
+     * Returns account based on account id (passed in argument), or empty when account is not linked with beneficiary.
+     *
+     * @param pAccountId
+     * @return
+     */
+    public Optional<Account> findAccountById(String pAccountId)
+    {
+        return Optional.ofNullable(accountIndex.get(pAccountId));
     }
 
     public boolean linkAccount(Account pAccount)
     {
-        return this.accounts.add(pAccount);
+        synchronized (accounts)
+        {
+            accountIndex.putIfAbsent(pAccount.getAccountId(), pAccount);
+            return this.accounts.add(pAccount);
+        }
     }
 
     private Beneficiary(BeneficiaryBuilder pBuilder)
@@ -58,6 +80,7 @@ public final class Beneficiary
         this.beneficiaryId = pBuilder.beneficiaryId;
         this.beneficiaryName = pBuilder.beneficiaryName;
         this.accounts = new ArrayList<>();
+        this.accountIndex = new ConcurrentHashMap<>();
     }
 
     public static BeneficiaryBuilder newBuilder()
@@ -99,13 +122,13 @@ public final class Beneficiary
         Beneficiary that = (Beneficiary) o;
         return Objects.equals(beneficiaryId, that.beneficiaryId) &&
                 Objects.equals(beneficiaryName, that.beneficiaryName) &&
-                Objects.equals(accounts, that.accounts);
+                Objects.equals(getAccounts(), that.getAccounts());
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(beneficiaryId, beneficiaryName, accounts);
+        return Objects.hash(beneficiaryId, beneficiaryName, getAccounts());
     }
 
     public static class BeneficiaryBuilder
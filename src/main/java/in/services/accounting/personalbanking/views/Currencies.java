@@ -0,0 +1,104 @@
+package in.services.accounting.personalbanking.views;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns unit of measurement (Ex: USD, INR) to a small integer code, so that balance arithmetic compares ints instead of strings.
+ * Every currency has a scale (number of minor unit digits), amounts are kept as long count of minor units on the hot path.
+ */
+public final class Currencies
+{
+    // Scale used for units which are not ISO 4217 currencies.
+    private static final int DEFAULT_SCALE = 2;
+
+    private static final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+    // Indexed by currency code. Replaced (never modified) on registration.
+    private static volatile String[] units = new String[0];
+
+    private static volatile int[] scales = new int[0];
+
+    private Currencies()
+    {
+    }
+
+    /**
+     * Returns code of unit of measurement, unit is registered on first use.
+     *
+     * @param pUnitOfMeasurement
+     * @return
+     */
+    public static int codeOf(String pUnitOfMeasurement)
+    {
+        Integer code = codes.get(pUnitOfMeasurement);
+        return code != null ? code : register(pUnitOfMeasurement);
+    }
+
+    /**
+     * Returns unit of measurement of a registered code.
+     *
+     * @param pCode
+     * @return
+     */
+    public static String unitOf(int pCode)
+    {
+        return units[pCode];
+    }
+
+    /**
+     * Returns number of minor unit digits of a registered code.
+     *
+     * @param pCode
+     * @return
+     */
+    public static int scaleOf(int pCode)
+    {
+        return scales[pCode];
+    }
+
+    /**
+     * Number of registered currencies, codes are in range [0, count).
+     *
+     * @return
+     */
+    public static int count()
+    {
+        return units.length;
+    }
+
+    private static synchronized int register(String pUnitOfMeasurement)
+    {
+        Integer code = codes.get(pUnitOfMeasurement);
+        if (code != null)
+        {
+            return code;
+        }
+        int newCode = units.length;
+        String[] newUnits = Arrays.copyOf(units, newCode + 1);
+        int[] newScales = Arrays.copyOf(scales, newCode + 1);
+        newUnits[newCode] = pUnitOfMeasurement;
+        newScales[newCode] = scaleFor(pUnitOfMeasurement);
+        // scales first, a reader seeing the new unit must see its scale as well
+        scales = newScales;
+        units = newUnits;
+        codes.put(pUnitOfMeasurement, newCode);
+        return newCode;
+    }
+
+    private static int scaleFor(String pUnitOfMeasurement)
+    {
+        try
+        {
+            int digits = Currency.getInstance(pUnitOfMeasurement.toUpperCase(Locale.ROOT)).getDefaultFractionDigits();
+            return digits < 0 ? DEFAULT_SCALE : digits;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return DEFAULT_SCALE;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package in.services.accounting.personalbanking.views;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+/**
+ * Immutable table of exchange rates between currencies, precomputed into a dense matrix indexed by currency code
+ * (see {@link Currencies}). Every cell is a fixed-point multiplier turning minor units of one currency into minor units of
+ * another (scaled by 10^{@value #RATE_DIGITS}), so a conversion is a lookup plus integer arithmetic, no allocation.
+ * <p>
+ * Rates are quoted against one base currency (1 base = rate quote); rate of every pair is derived from the two quotes.
+ * An update creates a new table ({@link #withRate}), a table in use never changes.
+ */
+public final class FxRateTable
+{
+    // Decimal digits of fixed-point multipliers
+    static final int RATE_DIGITS = 9;
+
+    private static final long RATE_ONE = 1_000_000_000L;
+
+    // Marks pair without known rate
+    private static final long NO_RATE = -1;
+
+    private final int baseCurrencyCode;
+
+    // Rate per currency code as given to withRate, null when not quoted. Never written once table is built, withRate copies it.
+    private final BigDecimal[] quotes;
+
+    // multipliers[from * dimension + to]
+    private final long[] multipliers;
+
+    private final int dimension;
+
+    private FxRateTable(int pBaseCurrencyCode, BigDecimal[] pQuotes)
+    {
+        this.baseCurrencyCode = pBaseCurrencyCode;
+        this.quotes = pQuotes;
+        this.dimension = pQuotes.length;
+        this.multipliers = new long[dimension * dimension];
+        Arrays.fill(multipliers, NO_RATE);
+        for (int from = 0; from < dimension; from++)
+        {
+            multipliers[from * dimension + from] = RATE_ONE;
+            for (int to = 0; to < dimension; to++)
+            {
+                if (from != to && pQuotes[from] != null && pQuotes[to] != null)
+                {
+                    multipliers[from * dimension + to] = multiplier(from, pQuotes[from], to, pQuotes[to]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns table without any rate, converting only between same currency.
+     *
+     * @param pBaseUnitOfMeasurement
+     * @return
+     */
+    public static FxRateTable empty(String pBaseUnitOfMeasurement)
+    {
+        int baseCode = Currencies.codeOf(pBaseUnitOfMeasurement);
+        BigDecimal[] quotes = new BigDecimal[Currencies.count()];
+        quotes[baseCode] = BigDecimal.ONE;
+        return new FxRateTable(baseCode, quotes);
+    }
+
+    /**
+     * Returns copy of this table with rate of given currency against base currency set.
+     *
+     * @param pUnitOfMeasurement quote currency
+     * @param pRate              units of quote currency per unit of base currency
+     * @return
+     */
+    public FxRateTable withRate(String pUnitOfMeasurement, BigDecimal pRate)
+    {
+        if (pRate.signum() <= 0)
+        {
+            throw new IllegalArgumentException("Exchange rate must be positive.");
+        }
+        int code = Currencies.codeOf(pUnitOfMeasurement);
+        if (code == baseCurrencyCode)
+        {
+            throw new IllegalArgumentException("Rate of base currency is fixed.");
+        }
+        BigDecimal[] updated = Arrays.copyOf(quotes, Math.max(quotes.length, Currencies.count()));
+        updated[code] = pRate;
+        return new FxRateTable(baseCurrencyCode, updated);
+    }
+
+    public String getBaseUnitOfMeasurement()
+    {
+        return Currencies.unitOf(baseCurrencyCode);
+    }
+
+    /**
+     * Returns true when amounts can be converted between the two currencies.
+     *
+     * @param pFromCurrencyCode
+     * @param pToCurrencyCode
+     * @return
+     */
+    public boolean hasRate(int pFromCurrencyCode, int pToCurrencyCode)
+    {
+        return pFromCurrencyCode == pToCurrencyCode || multiplierOf(pFromCurrencyCode, pToCurrencyCode) != NO_RATE;
+    }
+
+    /**
+     * Convert minor units of one currency into minor units of another, rounded to nearest minor unit (half up).
+     *
+     * @param pFromCurrencyCode
+     * @param pToCurrencyCode
+     * @param pMinorUnits
+     * @return
+     * @throws AccountingOperationException when there is no rate for the pair or result doesn't fit
+     */
+    public long convert(int pFromCurrencyCode, int pToCurrencyCode, long pMinorUnits) throws AccountingOperationException
+    {
+        if (pFromCurrencyCode == pToCurrencyCode)
+        {
+            return pMinorUnits;
+        }
+        if (!hasRate(pFromCurrencyCode, pToCurrencyCode))
+        {
+            throw new AccountingOperationException("No exchange rate from " + Currencies.unitOf(pFromCurrencyCode) + " to " + Currencies.unitOf(pToCurrencyCode) + ".");
+        }
+        long minorUnits = convertOrInvalid(pFromCurrencyCode, pToCurrencyCode, pMinorUnits);
+        if (minorUnits == Amount.INVALID_MINOR_UNITS)
+        {
+            throw new AccountingOperationException("Amount overflow.");
+        }
+        return minorUnits;
+    }
+
+    /**
+     * Same as {@link #convert}, returning {@link Amount#INVALID_MINOR_UNITS} instead of raising exception.
+     */
+    long convertOrInvalid(int pFromCurrencyCode, int pToCurrencyCode, long pMinorUnits)
+    {
+        if (pFromCurrencyCode == pToCurrencyCode)
+        {
+            return pMinorUnits;
+        }
+        long multiplier = multiplierOf(pFromCurrencyCode, pToCurrencyCode);
+        if (multiplier == NO_RATE)
+        {
+            return Amount.INVALID_MINOR_UNITS;
+        }
+        // minorUnits * multiplier / RATE_ONE without a 128 bit product: multiplier = high * RATE_ONE + low,
+        // minorUnits = quotient * RATE_ONE + remainder, remainder * low stays below 10^18 and is the only fractional part
+        long high = multiplier / RATE_ONE;
+        long low = multiplier % RATE_ONE;
+        long quotient = Math.floorDiv(pMinorUnits, RATE_ONE);
+        long remainder = Math.floorMod(pMinorUnits, RATE_ONE);
+        long whole = pMinorUnits * high;
+        long part = quotient * low;
+        if (high != 0 && whole / high != pMinorUnits || low != 0 && part / low != quotient)
+        {
+            return Amount.INVALID_MINOR_UNITS;
+        }
+        long fraction = (remainder * low + RATE_ONE / 2) / RATE_ONE;
+        if (Account.addOverflows(whole, part) || Account.addOverflows(whole + part, fraction))
+        {
+            return Amount.INVALID_MINOR_UNITS;
+        }
+        return whole + part + fraction;
+    }
+
+    private long multiplierOf(int pFromCurrencyCode, int pToCurrencyCode)
+    {
+        if (pFromCurrencyCode >= dimension || pToCurrencyCode >= dimension)
+        {
+            return NO_RATE;
+        }
+        return multipliers[pFromCurrencyCode * dimension + pToCurrencyCode];
+    }
+
+    /**
+     * Multiplier from minor units of one currency to minor units of another: (quote to / quote from) * 10^(scale to - scale from).
+     */
+    private static long multiplier(int pFrom, BigDecimal pFromQuote, int pTo, BigDecimal pToQuote)
+    {
+        BigDecimal rate = pToQuote.divide(pFromQuote, RATE_DIGITS + 10, RoundingMode.HALF_EVEN)
+                .movePointRight(Currencies.scaleOf(pTo) - Currencies.scaleOf(pFrom) + RATE_DIGITS)
+                .setScale(0, RoundingMode.HALF_EVEN);
+        if (rate.signum() <= 0 || rate.toBigInteger().bitLength() >= 63)
+        {
+            return NO_RATE;
+        }
+        return rate.longValueExact();
+    }
+}
@@ -0,0 +1,87 @@
+package in.services.accounting.personalbanking.views;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Credits accepted for a hot account without taking account lock, waiting to be applied by the next holder of the lock.
+ * <p>
+ * Depositors add to a striped sum first and then enqueue into a lock-free multi-producer queue; the lock holder takes credits
+ * out of the queue and subtracts them from the sum before adding them to net amount, so net amount plus pending sum
+ * (read in that order) never counts a credit twice.
+ * <p>
+ * Overflow is ruled out through a separate room count: every credit, accepted here or applied by a lock holder, first takes
+ * room by compare and set against net amount (see {@link Account#reserveCredit}) and gives it back only once it is in net
+ * amount.
+ */
+final class HotCredits
+{
+    private final LongAdder pendingMinorUnits = new LongAdder();
+
+    private final ConcurrentLinkedQueue<Credit> credits = new ConcurrentLinkedQueue<>();
+
+    // Minor units of credits which have taken room and aren't in net amount yet
+    private final AtomicLong reservedMinorUnits = new AtomicLong();
+
+    /**
+     * Accept credit, its transaction time is taken by the lock holder applying it.
+     *
+     * @param pMinorUnits
+     */
+    void offer(long pMinorUnits)
+    {
+        pendingMinorUnits.add(pMinorUnits);
+        credits.offer(new Credit(pMinorUnits));
+    }
+
+    /**
+     * Take oldest pending credit. Caller must hold account lock.
+     *
+     * @return null if there is none
+     */
+    Credit poll()
+    {
+        Credit credit = credits.poll();
+        if (credit != null)
+        {
+            pendingMinorUnits.add(-credit.minorUnits);
+        }
+        return credit;
+    }
+
+    boolean isEmpty()
+    {
+        return credits.isEmpty();
+    }
+
+    long getPendingMinorUnits()
+    {
+        return pendingMinorUnits.sum();
+    }
+
+    long getReservedMinorUnits()
+    {
+        return reservedMinorUnits.get();
+    }
+
+    boolean compareAndSetReserved(long pExpected, long pReserved)
+    {
+        return reservedMinorUnits.compareAndSet(pExpected, pReserved);
+    }
+
+    void release(long pMinorUnits)
+    {
+        reservedMinorUnits.addAndGet(-pMinorUnits);
+    }
+
+    static final class Credit
+    {
+        final long minorUnits;
+
+        private Credit(long pMinorUnits)
+        {
+            this.minorUnits = pMinorUnits;
+        }
+    }
+}
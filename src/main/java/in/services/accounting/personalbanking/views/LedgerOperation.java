@@ -0,0 +1,11 @@
+package in.services.accounting.personalbanking.views;
+
+/**
+ * Account operations reported to {@link MetricsSink}. A {@link TransferBatch} commit is reported once as BATCH (latency of the
+ * whole commit); a transfer of {@link LedgerSequencer} as SEQUENCED_TRANSFER, latency from publish until its outcome is
+ * durable.
+ */
+public enum LedgerOperation
+{
+    TRANSFER, DEPOSIT, WITHDRAW, STATEMENT, BATCH, SEQUENCED_TRANSFER
+}
@@ -0,0 +1,501 @@
+package in.services.accounting.personalbanking.views;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+/**
+ * Single writer execution of transfers. Producers publish transfer commands into a preallocated ring, one business thread
+ * applies them to accounts in sequence order, and two downstream stages follow it:
+ * <ul>
+ * <li>journal stage waits until applied transfers are durable (one group commit covers the whole batch applied so far) and
+ * reports outcome to the producer,</li>
+ * <li>fan-out stage hands applied transfers to listeners (Ex: statement feeds) without delaying the business thread.</li>
+ * </ul>
+ * A slot is reused once both stages are past it, producers wait while the ring is full.
+ * <p>
+ * Business thread takes account locks like any other caller, as long as accounts are only mutated through the sequencer these
+ * locks are never contended. Threads spin, then yield, then park briefly while idle; business thread may be pinned to a core
+ * through the thread factory.
+ * <p>
+ * Producers must have stopped publishing before {@link #close()}, which waits until every published transfer went through
+ * all stages.
+ */
+public final class LedgerSequencer implements Closeable
+{
+    /**
+     * Receives outcome of a published transfer on the journal stage thread, once the transfer is durable.
+     */
+    public interface TransferCallback
+    {
+        /**
+         * @param pResult  outcome, null when transfer failed
+         * @param pFailure failure (Ex: journal can't be written), null when there is an outcome
+         */
+        void transferCompleted(TransferResult pResult, Exception pFailure);
+    }
+
+    /**
+     * Receives every applied transfer on the fan-out stage thread, in sequence order.
+     */
+    public interface TransferListener
+    {
+        void transferApplied(Account pSource, Account pTarget, long pMinorUnits, long pTargetMinorUnits);
+    }
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final int YIELD_TRIES = 200;
+
+    private static final long PARK_NANOS = 1000;
+
+    private final Command[] ring;
+
+    private final int mask;
+
+    private final int indexShift;
+
+    // Round of the sequence last published into each slot
+    private final AtomicIntegerArray published;
+
+    // Last claimed sequence
+    private final Sequence cursor = new Sequence();
+
+    // Last sequence applied by business thread
+    private final Sequence applied = new Sequence();
+
+    private final Sequence journaled = new Sequence();
+
+    private final Sequence fannedOut = new Sequence();
+
+    private final Supplier<FxRateTable> fxRateTable;
+
+    private final List<TransferListener> listeners;
+
+    private final AtomicLong listenerFailures = new AtomicLong();
+
+    private final Thread businessThread;
+
+    private final Thread journalThread;
+
+    private final Thread fanOutThread;
+
+    private volatile boolean closed;
+
+    private volatile boolean running = true;
+
+    public LedgerSequencer(int pRingSize, Supplier<FxRateTable> pFxRateTable, List<TransferListener> pListeners)
+    {
+        this(pRingSize, pFxRateTable, pListeners, pRunnable ->
+        {
+            Thread thread = new Thread(pRunnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param pRingSize      number of slots, power of two
+     * @param pFxRateTable   rates for transfers between currencies, read once per applied batch
+     * @param pListeners
+     * @param pThreadFactory creates business, journal and fan-out threads
+     */
+    public LedgerSequencer(int pRingSize, Supplier<FxRateTable> pFxRateTable, List<TransferListener> pListeners, ThreadFactory pThreadFactory)
+    {
+        if (pRingSize <= 0 || Integer.bitCount(pRingSize) != 1)
+        {
+            throw new IllegalArgumentException("Ring size must be a power of two.");
+        }
+        this.ring = new Command[pRingSize];
+        for (int i = 0; i < pRingSize; i++)
+        {
+            ring[i] = new Command();
+        }
+        this.mask = pRingSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(pRingSize);
+        this.published = new AtomicIntegerArray(pRingSize);
+        for (int i = 0; i < pRingSize; i++)
+        {
+            published.set(i, -1);
+        }
+        this.fxRateTable = pFxRateTable;
+        this.listeners = new ArrayList<>(pListeners);
+        this.businessThread = newThread(pThreadFactory, this::runBusinessStage, "ledger-business");
+        this.journalThread = newThread(pThreadFactory, this::runJournalStage, "ledger-journal");
+        this.fanOutThread = newThread(pThreadFactory, this::runFanOutStage, "ledger-fan-out");
+    }
+
+    /**
+     * Start business and downstream threads.
+     */
+    public void start()
+    {
+        fanOutThread.start();
+        journalThread.start();
+        businessThread.start();
+    }
+
+    /**
+     * Publish transfer of amount from source to target account (converted at current rates when currencies differ).
+     * Waits only while the ring is full.
+     *
+     * @param pSource
+     * @param pTarget
+     * @param pAmount
+     * @param pCallback receives outcome once transfer is durable, may be null
+     * @return sequence of the transfer
+     */
+    public long publish(Account pSource, Account pTarget, Amount pAmount, TransferCallback pCallback)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Sequencer is closed.");
+        }
+        Objects.requireNonNull(pSource, "Source account is required.");
+        Objects.requireNonNull(pTarget, "Target account is required.");
+        Objects.requireNonNull(pAmount, "Amount is required.");
+        // inputs are read before claiming a sequence, a claimed sequence must always be published
+        int currencyCode = pAmount.getCurrencyCode();
+        long minorUnits = pAmount.toMinorUnitsOrInvalid();
+        long sequence = cursor.incrementAndGet();
+        long wrapPoint = sequence - ring.length;
+        int idleCount = 0;
+        while (wrapPoint > Math.min(journaled.get(), fannedOut.get()))
+        {
+            idleCount = idle(idleCount);
+        }
+        Command command = ring[(int) sequence & mask];
+        command.source = pSource;
+        command.target = pTarget;
+        command.currencyCode = currencyCode;
+        command.minorUnits = minorUnits;
+        command.callback = pCallback;
+        command.metricsSink = Account.getMetricsSink();
+        command.publishNanos = command.metricsSink == MetricsSink.NONE ? 0 : System.nanoTime();
+        published.set((int) sequence & mask, (int) (sequence >>> indexShift));
+        return sequence;
+    }
+
+    /**
+     * Publish transfer, outcome is reported through returned future.
+     *
+     * @param pSource
+     * @param pTarget
+     * @param pAmount
+     * @return future completed with outcome, or exceptionally when transfer can't be made durable
+     */
+    public CompletableFuture<TransferResult> transferAmount(Account pSource, Account pTarget, Amount pAmount)
+    {
+        CompletableFuture<TransferResult> future = new CompletableFuture<>();
+        publish(pSource, pTarget, pAmount, (pResult, pFailure) ->
+        {
+            if (pFailure != null)
+            {
+                future.completeExceptionally(pFailure);
+            }
+            else
+            {
+                future.complete(pResult);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Sequence of the last transfer which went through all stages.
+     *
+     * @return
+     */
+    public long getCompletedSequence()
+    {
+        return Math.min(journaled.get(), fannedOut.get());
+    }
+
+    /**
+     * Number of exceptions thrown by listeners and callbacks, they don't stop the stages.
+     *
+     * @return
+     */
+    public long getListenerFailureCount()
+    {
+        return listenerFailures.get();
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        long last = cursor.get();
+        int idleCount = 0;
+        while (businessThread.isAlive() && getCompletedSequence() < last)
+        {
+            idleCount = idle(idleCount);
+        }
+        running = false;
+        boolean interrupted = false;
+        for (Thread thread : new Thread[] { businessThread, journalThread, fanOutThread })
+        {
+            while (thread.isAlive())
+            {
+                try
+                {
+                    thread.join();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runBusinessStage()
+    {
+        long next = 0;
+        int idleCount = 0;
+        while (true)
+        {
+            if (!isPublished(next))
+            {
+                if (!running)
+                {
+                    return;
+                }
+                idleCount = idle(idleCount);
+                continue;
+            }
+            idleCount = 0;
+            FxRateTable rates = fxRateTable.get();
+            long sequence = next;
+            do
+            {
+                apply(ring[(int) sequence & mask], rates);
+                sequence++;
+            }
+            while (isPublished(sequence));
+            applied.set(sequence - 1);
+            next = sequence;
+        }
+    }
+
+    private void apply(Command pCommand, FxRateTable pFxRateTable)
+    {
+        pCommand.ticket.clear();
+        pCommand.result = null;
+        pCommand.failure = null;
+        try
+        {
+            pCommand.result = pCommand.source.transfer(pCommand.target, pCommand.currencyCode, pCommand.minorUnits, pFxRateTable, pCommand.ticket);
+        }
+        catch (RuntimeException e)
+        {
+            pCommand.failure = e;
+        }
+    }
+
+    private void runJournalStage()
+    {
+        long next = 0;
+        int idleCount = 0;
+        while (true)
+        {
+            long available = applied.get();
+            if (available < next)
+            {
+                if (!running)
+                {
+                    return;
+                }
+                idleCount = idle(idleCount);
+                continue;
+            }
+            idleCount = 0;
+            for (long sequence = next; sequence <= available; sequence++)
+            {
+                complete(ring[(int) sequence & mask]);
+            }
+            journaled.set(available);
+            next = available + 1;
+        }
+    }
+
+    private void complete(Command pCommand)
+    {
+        TransferResult result = pCommand.result;
+        Exception failure = pCommand.failure;
+        if (result == TransferResult.SUCCESS)
+        {
+            try
+            {
+                pCommand.ticket.awaitDurable();
+            }
+            catch (AccountingOperationException e)
+            {
+                result = null;
+                failure = e;
+            }
+        }
+        if (pCommand.metricsSink != MetricsSink.NONE)
+        {
+            pCommand.metricsSink.operationCompleted(LedgerOperation.SEQUENCED_TRANSFER, result, System.nanoTime() - pCommand.publishNanos);
+        }
+        if (pCommand.callback != null)
+        {
+            try
+            {
+                pCommand.callback.transferCompleted(result, failure);
+            }
+            catch (RuntimeException e)
+            {
+                listenerFailures.incrementAndGet();
+            }
+        }
+    }
+
+    private void runFanOutStage()
+    {
+        long next = 0;
+        int idleCount = 0;
+        while (true)
+        {
+            long available = applied.get();
+            if (available < next)
+            {
+                if (!running)
+                {
+                    return;
+                }
+                idleCount = idle(idleCount);
+                continue;
+            }
+            idleCount = 0;
+            for (long sequence = next; sequence <= available; sequence++)
+            {
+                Command command = ring[(int) sequence & mask];
+                if (command.result == TransferResult.SUCCESS)
+                {
+                    fanOut(command);
+                }
+            }
+            fannedOut.set(available);
+            next = available + 1;
+        }
+    }
+
+    private void fanOut(Command pCommand)
+    {
+        for (TransferListener listener : listeners)
+        {
+            try
+            {
+                listener.transferApplied(pCommand.source, pCommand.target, pCommand.minorUnits, pCommand.ticket.targetMinorUnits);
+            }
+            catch (RuntimeException e)
+            {
+                listenerFailures.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean isPublished(long pSequence)
+    {
+        return published.get((int) pSequence & mask) == (int) (pSequence >>> indexShift);
+    }
+
+    private static int idle(int pIdleCount)
+    {
+        if (pIdleCount < SPIN_TRIES)
+        {
+            // busy spin
+        }
+        else if (pIdleCount < SPIN_TRIES + YIELD_TRIES)
+        {
+            Thread.yield();
+        }
+        else
+        {
+            LockSupport.parkNanos(PARK_NANOS);
+            return pIdleCount;
+        }
+        return pIdleCount + 1;
+    }
+
+    private static Thread newThread(ThreadFactory pThreadFactory, Runnable pRunnable, String pName)
+    {
+        Thread thread = pThreadFactory.newThread(pRunnable);
+        thread.setName(pName);
+        return thread;
+    }
+
+    /**
+     * Preallocated ring slot. Producer fields are published by the round flag, outcome (written by business thread only) by the
+     * applied sequence.
+     */
+    private static final class Command
+    {
+        private Account source;
+
+        private Account target;
+
+        private int currencyCode;
+
+        private long minorUnits;
+
+        private TransferCallback callback;
+
+        // Sink installed at publish, reported to once outcome is durable
+        private MetricsSink metricsSink;
+
+        private long publishNanos;
+
+        private TransferResult result;
+
+        private Exception failure;
+
+        private final TransferTicket ticket = new TransferTicket();
+    }
+
+    /**
+     * Sequence counter padded against false sharing with neighbouring counters.
+     */
+    private static final class Sequence
+    {
+        private static final int VALUE_INDEX = 7;
+
+        private final AtomicLongArray padded = new AtomicLongArray(2 * VALUE_INDEX + 1);
+
+        private Sequence()
+        {
+            padded.set(VALUE_INDEX, -1);
+        }
+
+        private long get()
+        {
+            return padded.get(VALUE_INDEX);
+        }
+
+        private void set(long pValue)
+        {
+            padded.lazySet(VALUE_INDEX, pValue);
+        }
+
+        private long incrementAndGet()
+        {
+            return padded.incrementAndGet(VALUE_INDEX);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package in.services.accounting.personalbanking.views;
+
+/**
+ * Instrumentation hook for account operations, installed with {@link Account#setMetricsSink(MetricsSink)}. Methods are called
+ * on the calling thread of every operation, so they must not block and should not allocate.
+ */
+public interface MetricsSink
+{
+    /**
+     * Sink which records nothing, accounts don't even read the clock while it's installed.
+     */
+    MetricsSink NONE = new MetricsSink()
+    {
+        @Override
+        public void operationCompleted(LedgerOperation pOperation, TransferResult pResult, long pLatencyNanos)
+        {
+        }
+
+        @Override
+        public void lockWaited(long pWaitNanos)
+        {
+        }
+    };
+
+    /**
+     * Record completed operation.
+     *
+     * @param pOperation
+     * @param pResult       outcome, null when operation failed with an exception
+     * @param pLatencyNanos
+     */
+    void operationCompleted(LedgerOperation pOperation, TransferResult pResult, long pLatencyNanos);
+
+    /**
+     * Record time spent waiting for an account lock held by another thread. Uncontended acquisitions aren't reported.
+     *
+     * @param pWaitNanos
+     */
+    void lockWaited(long pWaitNanos);
+}
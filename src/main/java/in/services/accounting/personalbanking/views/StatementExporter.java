@@ -0,0 +1,313 @@
+package in.services.accounting.personalbanking.views;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Exports statement entries of an account to a file, straight from {@link ActivityLog} columns, without creating objects per
+ * entry. Output is assembled in reusable direct buffers written with gathering writes; entries of archived chunks are copied
+ * from archive segment files with transferTo.
+ * <p>
+ * Binary layout (big endian): int magic, short version, account id and unit of measurement (unsigned short length + utf-8
+ * bytes each), byte scale of amounts, long entry count, then blocks of at most {@link ActivityLog#CHUNK_SIZE} entries: int
+ * entry count followed by columns of transaction nanos, amounts and balances (longs, in minor units) and operation types
+ * (byte ordinal of {@link AccountingOperationType}). Columns have the layout of archive regions.
+ * <p>
+ * CSV layout (utf-8): header line, then transaction date, type, amount, balance and unit of measurement per line, in the
+ * formats of statement lines. Unit of measurement is quoted when it holds a separator.
+ * <p>
+ * Exporter is not thread safe, buffers are reused between exports.
+ */
+public final class StatementExporter
+{
+    public static final int BINARY_MAGIC = 0x53544D54;
+
+    public static final short BINARY_VERSION = 1;
+
+    private static final byte[] CSV_HEADER = "transactionDate,type,amount,balance,unitOfMeasurement\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final AccountingOperationType[] TYPES = AccountingOperationType.values();
+
+    private static final int BUFFER_SIZE = 1 << 18;
+
+    // Buffers filled before they are written with one gathering write
+    private static final int BATCH_SIZE = 16;
+
+    private final ByteBuffer[] buffers = new ByteBuffer[BATCH_SIZE];
+
+    // Buffers of current batch, last one is being filled
+    private int used;
+
+    private final StringBuilder line = new StringBuilder(128);
+
+    private final BinaryWriter binaryWriter = new BinaryWriter();
+
+    private final CsvWriter csvWriter = new CsvWriter();
+
+    private FileChannel channel;
+
+    /**
+     * Export activities with transaction date in range [start, end) in binary layout, replacing given file.
+     *
+     * @param pAccount
+     * @param pStartDate inclusive
+     * @param pEndDate   exclusive
+     * @param pFile
+     * @return number of exported activities
+     * @throws IOException
+     */
+    public int exportBinary(Account pAccount, Instant pStartDate, Instant pEndDate, Path pFile) throws IOException
+    {
+        try (FileChannel fileChannel = open(pFile))
+        {
+            return exportBinary(pAccount, pStartDate, pEndDate, fileChannel);
+        }
+    }
+
+    /**
+     * Export activities with transaction date in range [start, end) in binary layout, at current position of channel.
+     *
+     * @param pAccount
+     * @param pStartDate inclusive
+     * @param pEndDate   exclusive
+     * @param pFileChannel
+     * @return number of exported activities
+     * @throws IOException
+     */
+    public int exportBinary(Account pAccount, Instant pStartDate, Instant pEndDate, FileChannel pFileChannel) throws IOException
+    {
+        ActivityLog activityLog = pAccount.getActivityLog();
+        int limit = activityLog.size();
+        int from = Math.min(activityLog.indexOf(ActivityLog.toEpochNanos(pStartDate)), limit);
+        int to = Math.max(from, Math.min(activityLog.indexOf(ActivityLog.toEpochNanos(pEndDate)), limit));
+        byte[] accountId = pAccount.getAccountId().getBytes(StandardCharsets.UTF_8);
+        byte[] unit = Currencies.unitOf(activityLog.getCurrencyCode()).getBytes(StandardCharsets.UTF_8);
+        if (accountId.length > 0xFFFF)
+        {
+            throw new IllegalArgumentException("Account id is too long for export.");
+        }
+        if (unit.length > 0xFFFF)
+        {
+            throw new IllegalArgumentException("Unit of measurement is too long for export.");
+        }
+        channel = pFileChannel;
+        try
+        {
+            ByteBuffer header = reserve(4 + 2 + 2 + accountId.length + 2 + unit.length + 1 + 8);
+            header.putInt(BINARY_MAGIC).putShort(BINARY_VERSION);
+            header.putShort((short) accountId.length).put(accountId);
+            header.putShort((short) unit.length).put(unit);
+            header.put((byte) Currencies.scaleOf(activityLog.getCurrencyCode()));
+            header.putLong(to - from);
+            activityLog.forEachBlock(from, to, binaryWriter);
+            flush();
+        }
+        finally
+        {
+            release();
+        }
+        return to - from;
+    }
+
+    /**
+     * Export activities with transaction date in range [start, end) as CSV, replacing given file.
+     *
+     * @param pAccount
+     * @param pStartDate inclusive
+     * @param pEndDate   exclusive
+     * @param pFile
+     * @return number of exported activities
+     * @throws IOException
+     */
+    public int exportCsv(Account pAccount, Instant pStartDate, Instant pEndDate, Path pFile) throws IOException
+    {
+        try (FileChannel fileChannel = open(pFile))
+        {
+            return exportCsv(pAccount, pStartDate, pEndDate, fileChannel);
+        }
+    }
+
+    /**
+     * Export activities with transaction date in range [start, end) as CSV, at current position of channel.
+     *
+     * @param pAccount
+     * @param pStartDate inclusive
+     * @param pEndDate   exclusive
+     * @param pFileChannel
+     * @return number of exported activities
+     * @throws IOException
+     */
+    public int exportCsv(Account pAccount, Instant pStartDate, Instant pEndDate, FileChannel pFileChannel) throws IOException
+    {
+        ActivityLog activityLog = pAccount.getActivityLog();
+        int limit = activityLog.size();
+        int from = Math.min(activityLog.indexOf(ActivityLog.toEpochNanos(pStartDate)), limit);
+        int to = Math.max(from, Math.min(activityLog.indexOf(ActivityLog.toEpochNanos(pEndDate)), limit));
+        channel = pFileChannel;
+        try
+        {
+            reserve(CSV_HEADER.length).put(CSV_HEADER);
+            csvWriter.currencyCode = activityLog.getCurrencyCode();
+            csvWriter.unit = csvField(Currencies.unitOf(csvWriter.currencyCode));
+            activityLog.forEachBlock(from, to, csvWriter);
+            flush();
+        }
+        finally
+        {
+            release();
+        }
+        return to - from;
+    }
+
+    /**
+     * Returns utf-8 bytes of given CSV field, quoted (inner quotes doubled) when it holds a separator, quote or line break.
+     */
+    private static byte[] csvField(String pValue)
+    {
+        byte[] field = pValue.getBytes(StandardCharsets.UTF_8);
+        if (field.length > 0xFFFF)
+        {
+            throw new IllegalArgumentException("Unit of measurement is too long for export.");
+        }
+        for (char c : pValue.toCharArray())
+        {
+            if (c == ',' || c == '"' || c == '\n' || c == '\r')
+            {
+                return ('"' + pValue.replace("\"", "\"\"") + '"').getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return field;
+    }
+
+    private static FileChannel open(Path pFile) throws IOException
+    {
+        return FileChannel.open(pFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Returns buffer of current batch with room for given number of bytes, batch is written when it's full.
+     */
+    private ByteBuffer reserve(int pBytes) throws IOException
+    {
+        if (used > 0 && buffers[used - 1].remaining() >= pBytes)
+        {
+            return buffers[used - 1];
+        }
+        if (used == BATCH_SIZE)
+        {
+            flush();
+        }
+        if (buffers[used] == null)
+        {
+            buffers[used] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        ByteBuffer buffer = buffers[used++];
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Write current batch with gathering writes.
+     */
+    private void flush() throws IOException
+    {
+        if (used == 0)
+        {
+            return;
+        }
+        for (int i = 0; i < used; i++)
+        {
+            buffers[i].flip();
+        }
+        while (buffers[used - 1].hasRemaining())
+        {
+            channel.write(buffers, 0, used);
+        }
+        used = 0;
+    }
+
+    private void release()
+    {
+        used = 0;
+        channel = null;
+    }
+
+    private final class BinaryWriter implements ActivityLog.BlockVisitor
+    {
+        @Override
+        public void heapBlock(long[] pTransactionNanos, byte[] pTypes, long[] pAmounts, long[] pBalances, int pOffset, int pCount) throws IOException
+        {
+            ByteBuffer buffer = reserve(4 + pCount * ActivityArchive.ENTRY_SIZE);
+            buffer.putInt(pCount);
+            putColumn(buffer, pTransactionNanos, pOffset, pCount);
+            putColumn(buffer, pAmounts, pOffset, pCount);
+            putColumn(buffer, pBalances, pOffset, pCount);
+            buffer.put(pTypes, pOffset, pCount);
+        }
+
+        @Override
+        public void archivedBlock(ActivityArchive.Region pRegion, int pOffset, int pCount) throws IOException
+        {
+            reserve(4).putInt(pCount);
+            flush();
+            pRegion.transferTo(pOffset, pCount, channel);
+        }
+
+        private void putColumn(ByteBuffer pBuffer, long[] pColumn, int pOffset, int pCount)
+        {
+            pBuffer.asLongBuffer().put(pColumn, pOffset, pCount);
+            pBuffer.position(pBuffer.position() + (pCount << 3));
+        }
+    }
+
+    private final class CsvWriter implements ActivityLog.BlockVisitor
+    {
+        private int currencyCode;
+
+        // Unit of measurement as CSV field, encoded once per export
+        private byte[] unit;
+
+        @Override
+        public void heapBlock(long[] pTransactionNanos, byte[] pTypes, long[] pAmounts, long[] pBalances, int pOffset, int pCount) throws IOException
+        {
+            for (int offset = pOffset; offset < pOffset + pCount; offset++)
+            {
+                putLine(pTransactionNanos[offset], pTypes[offset], pAmounts[offset], pBalances[offset]);
+            }
+        }
+
+        @Override
+        public void archivedBlock(ActivityArchive.Region pRegion, int pOffset, int pCount) throws IOException
+        {
+            for (int offset = pOffset; offset < pOffset + pCount; offset++)
+            {
+                putLine(pRegion.getTransactionNanos(offset), pRegion.getType(offset), pRegion.getMinorUnits(offset), pRegion.getBalance(offset));
+            }
+        }
+
+        private void putLine(long pTransactionNanos, byte pType, long pMinorUnits, long pBalance) throws IOException
+        {
+            int scale = Currencies.scaleOf(currencyCode);
+            line.setLength(0);
+            StatementRenderer.appendInstant(line, pTransactionNanos);
+            line.append(',').append(TYPES[pType].name()).append(',');
+            StatementRenderer.appendDecimal(line, pMinorUnits, scale);
+            line.append(',');
+            StatementRenderer.appendDecimal(line, pBalance, scale);
+            line.append(',');
+            int length = line.length();
+            ByteBuffer buffer = reserve(length + unit.length + 1);
+            // rest of the line is ascii: digits, dates and type names
+            for (int i = 0; i < length; i++)
+            {
+                buffer.put((byte) line.charAt(i));
+            }
+            buffer.put(unit).put((byte) '\n');
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package in.services.accounting.personalbanking.views;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+
+import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.Printer;
+
+/**
+ * Streams statement lines to a {@link Printer} in batches. Lines are rendered straight from {@link ActivityLog} columns into
+ * one reusable buffer (dates and amounts are formatted without intermediate strings) and handed to {@link Printer#printAll}
+ * whenever batch is full, so memory stays bounded irrespective of statement length.
+ * <p>
+ * Renderer is not thread safe, use one renderer per statement.
+ */
+public final class StatementRenderer
+{
+    private static final int BATCH_SIZE = 256;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // Years rendered by fast path, other years fall back to Instant.toString()
+    private static final long MAX_FAST_YEAR = 9999;
+
+    private final Printer printer;
+
+    private final StringBuilder buffer = new StringBuilder(BATCH_SIZE * 160);
+
+    private final Line[] lines = new Line[BATCH_SIZE];
+
+    private int lineCount;
+
+    private int lineStart;
+
+    public StatementRenderer(Printer pPrinter)
+    {
+        this.printer = pPrinter;
+        for (int i = 0; i < lines.length; i++)
+        {
+            lines[i] = new Line();
+        }
+    }
+
+    /**
+     * Append text to current line.
+     *
+     * @param pText
+     * @return
+     */
+    public StatementRenderer append(CharSequence pText)
+    {
+        buffer.append(pText);
+        return this;
+    }
+
+    /**
+     * Complete current line, batch is printed when full.
+     *
+     * @return
+     */
+    public StatementRenderer endLine()
+    {
+        Line line = lines[lineCount++];
+        line.start = lineStart;
+        line.end = buffer.length();
+        lineStart = buffer.length();
+        if (lineCount == BATCH_SIZE)
+        {
+            flush();
+        }
+        return this;
+    }
+
+    /**
+     * Render entry of activity log as a line.
+     *
+     * @param pActivityLog
+     * @param pIndex
+     * @return
+     */
+    public StatementRenderer appendActivity(ActivityLog pActivityLog, int pIndex)
+    {
+        buffer.append("Transaction Date :");
+        appendInstant(buffer, pActivityLog.getTransactionNanos(pIndex));
+        buffer.append(", Type: ").append(pActivityLog.getAccountingOperationType(pIndex).name()).append(", transaction amount: ");
+        appendAmount(buffer, pActivityLog.getCurrencyCode(), pActivityLog.getTransactionMinorUnits(pIndex));
+        buffer.append(", Balance :");
+        appendAmount(buffer, pActivityLog.getCurrencyCode(), pActivityLog.getBalanceMinorUnits(pIndex));
+        return endLine();
+    }
+
+    /**
+     * Print completed lines.
+     */
+    public void flush()
+    {
+        if (lineCount > 0)
+        {
+            printer.printAll(lineCount == BATCH_SIZE ? lines : Arrays.copyOf(lines, lineCount));
+        }
+        // keep text of current (incomplete) line
+        buffer.delete(0, lineStart);
+        lineStart = 0;
+        lineCount = 0;
+    }
+
+    /**
+     * Append amount in the format of {@link Amount#toString()}.
+     */
+    static void appendAmount(StringBuilder pBuffer, int pCurrencyCode, long pMinorUnits)
+    {
+        pBuffer.append("Amount{unitOfMeasurement='").append(Currencies.unitOf(pCurrencyCode)).append("', value=");
+        appendDecimal(pBuffer, pMinorUnits, Currencies.scaleOf(pCurrencyCode));
+        pBuffer.append('}');
+    }
+
+    /**
+     * Append minor units as plain decimal without trailing fraction zeros (same as value of {@link Amount#ofMinorUnits}).
+     */
+    static void appendDecimal(StringBuilder pBuffer, long pMinorUnits, int pScale)
+    {
+        if (pMinorUnits == Long.MIN_VALUE)
+        {
+            pBuffer.append(BigDecimal.valueOf(pMinorUnits, pScale).stripTrailingZeros().toPlainString());
+            return;
+        }
+        if (pMinorUnits < 0)
+        {
+            pBuffer.append('-');
+        }
+        long value = Math.abs(pMinorUnits);
+        long divisor = 1;
+        for (int i = 0; i < pScale; i++)
+        {
+            divisor *= 10;
+        }
+        pBuffer.append(value / divisor);
+        long fraction = value % divisor;
+        if (fraction != 0)
+        {
+            int digits = pScale;
+            while (fraction % 10 == 0)
+            {
+                fraction /= 10;
+                digits--;
+            }
+            pBuffer.append('.');
+            appendPadded(pBuffer, fraction, digits);
+        }
+    }
+
+    /**
+     * Append instant in the format of {@link Instant#toString()}.
+     */
+    static void appendInstant(StringBuilder pBuffer, long pEpochNanos)
+    {
+        long epochSecond = Math.floorDiv(pEpochNanos, NANOS_PER_SECOND);
+        int nano = (int) Math.floorMod(pEpochNanos, NANOS_PER_SECOND);
+        long epochDay = Math.floorDiv(epochSecond, 86_400L);
+        int secondOfDay = (int) Math.floorMod(epochSecond, 86_400L);
+
+        // civil date from epoch day (proleptic gregorian calendar)
+        long shifted = epochDay + 719_468L;
+        long era = Math.floorDiv(shifted, 146_097L);
+        long dayOfEra = shifted - era * 146_097L;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > MAX_FAST_YEAR)
+        {
+            pBuffer.append(Instant.ofEpochSecond(epochSecond, nano));
+            return;
+        }
+        appendPadded(pBuffer, year, 4);
+        pBuffer.append('-');
+        appendPadded(pBuffer, month, 2);
+        pBuffer.append('-');
+        appendPadded(pBuffer, day, 2);
+        pBuffer.append('T');
+        appendPadded(pBuffer, secondOfDay / 3600, 2);
+        pBuffer.append(':');
+        appendPadded(pBuffer, secondOfDay / 60 % 60, 2);
+        pBuffer.append(':');
+        appendPadded(pBuffer, secondOfDay % 60, 2);
+        if (nano != 0)
+        {
+            pBuffer.append('.');
+            if (nano % 1_000_000 == 0)
+            {
+                appendPadded(pBuffer, nano / 1_000_000, 3);
+            }
+            else if (nano % 1000 == 0)
+            {
+                appendPadded(pBuffer, nano / 1000, 6);
+            }
+            else
+            {
+                appendPadded(pBuffer, nano, 9);
+            }
+        }
+        pBuffer.append('Z');
+    }
+
+    private static void appendPadded(StringBuilder pBuffer, long pValue, int pDigits)
+    {
+        for (long limit = 10, digits = 1; digits < pDigits; limit *= 10, digits++)
+        {
+            if (pValue < limit)
+            {
+                pBuffer.append('0');
+            }
+        }
+        pBuffer.append(pValue);
+    }
+
+    /**
+     * Reusable view over a line of the buffer.
+     */
+    private final class Line implements CharSequence
+    {
+        private int start;
+
+        private int end;
+
+        @Override
+        public int length()
+        {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int pIndex)
+        {
+            return buffer.charAt(start + pIndex);
+        }
+
+        @Override
+        public CharSequence subSequence(int pStart, int pEnd)
+        {
+            return buffer.subSequence(start + pStart, start + pEnd);
+        }
+
+        @Override
+        public String toString()
+        {
+            return buffer.substring(start, end);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package in.services.accounting.personalbanking.views;
+
+/**
+ * Totals of an account over a period, see {@link Account#getSummary(AccountingOperationType, java.time.Instant, java.time.Instant)}.
+ */
+public final class StatementSummary
+{
+    // Interned unit of measurement of all amounts
+    private final int currencyCode;
+
+    // Amounts in minor units
+    private final long totalDeposits;
+
+    private final int depositCount;
+
+    private final long totalWithdrawals;
+
+    private final int withdrawalCount;
+
+    private final long openingBalance;
+
+    private final long closingBalance;
+
+    StatementSummary(int pCurrencyCode, long pTotalDeposits, int pDepositCount, long pTotalWithdrawals, int pWithdrawalCount, long pOpeningBalance, long pClosingBalance)
+    {
+        this.currencyCode = pCurrencyCode;
+        this.totalDeposits = pTotalDeposits;
+        this.depositCount = pDepositCount;
+        this.totalWithdrawals = pTotalWithdrawals;
+        this.withdrawalCount = pWithdrawalCount;
+        this.openingBalance = pOpeningBalance;
+        this.closingBalance = pClosingBalance;
+    }
+
+    /**
+     * Function will return sum of deposits of the period.
+     *
+     * @return
+     */
+    public Amount getTotalDeposits()
+    {
+        return Amount.ofMinorUnits(currencyCode, totalDeposits);
+    }
+
+    public int getDepositCount()
+    {
+        return depositCount;
+    }
+
+    /**
+     * Function will return sum of withdrawals of the period.
+     *
+     * @return
+     */
+    public Amount getTotalWithdrawals()
+    {
+        return Amount.ofMinorUnits(currencyCode, totalWithdrawals);
+    }
+
+    public int getWithdrawalCount()
+    {
+        return withdrawalCount;
+    }
+
+    /**
+     * Function will return number of summarized activities.
+     *
+     * @return
+     */
+    public int getCount()
+    {
+        return depositCount + withdrawalCount;
+    }
+
+    /**
+     * Function will return balance before first activity of the period (balance after last earlier activity).
+     *
+     * @return
+     */
+    public Amount getOpeningBalance()
+    {
+        return Amount.ofMinorUnits(currencyCode, openingBalance);
+    }
+
+    /**
+     * Function will return balance after last activity of the period (opening balance when period has no activity).
+     *
+     * @return
+     */
+    public Amount getClosingBalance()
+    {
+        return Amount.ofMinorUnits(currencyCode, closingBalance);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StatementSummary{" +
+                "totalDeposits=" + getTotalDeposits() +
+                ", depositCount=" + depositCount +
+                ", totalWithdrawals=" + getTotalWithdrawals() +
+                ", withdrawalCount=" + withdrawalCount +
+                ", openingBalance=" + getOpeningBalance() +
+                ", closingBalance=" + getClosingBalance() +
+                '}';
+    }
+}
@@ -0,0 +1,316 @@
+package in.services.accounting.personalbanking.views;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+/**
+ * Set of transfers committed together. Every account of the batch is locked once (in global lock order), transfers are validated
+ * one by one against the running net position of each account, and net amount of each account is written once on commit.
+ * Result of every transfer is reported in the same order as transfers were added.
+ */
+public final class TransferBatch
+{
+    private final List<Account> sources;
+
+    private final List<Account> targets;
+
+    private final List<Amount> amounts;
+
+    // Amount of each transfer in minor units
+    private long[] minorUnits;
+
+    private final List<TransferResult> results;
+
+    private boolean committed;
+
+    // Highest sequence to wait for, per journal of accounts touched by the batch
+    private final Map<AccountJournal, Long> journalSequences = new IdentityHashMap<>();
+
+    public TransferBatch(int pExpectedSize)
+    {
+        sources = new ArrayList<>(pExpectedSize);
+        targets = new ArrayList<>(pExpectedSize);
+        amounts = new ArrayList<>(pExpectedSize);
+        minorUnits = new long[Math.max(pExpectedSize, 16)];
+        results = new ArrayList<>(pExpectedSize);
+    }
+
+    /**
+     * Add transfer between two resolved accounts.
+     *
+     * @param pSource
+     * @param pTarget
+     * @param pAmount
+     */
+    public void add(Account pSource, Account pTarget, Amount pAmount)
+    {
+        long value = pAmount.toMinorUnitsOrInvalid();
+        // covers INVALID_MINOR_UNITS, a zero or negative amount would bypass funds rule
+        if (value <= 0)
+        {
+            reject(TransferResult.INVALID_AMOUNT);
+            return;
+        }
+        if (minorUnits.length == sources.size())
+        {
+            minorUnits = Arrays.copyOf(minorUnits, minorUnits.length * 2);
+        }
+        minorUnits[sources.size()] = value;
+        sources.add(pSource);
+        targets.add(pTarget);
+        amounts.add(pAmount);
+        results.add(null);
+    }
+
+    /**
+     * Add transfer which is already known to fail (Ex: account could not be resolved).
+     *
+     * @param pResult
+     */
+    public void reject(TransferResult pResult)
+    {
+        sources.add(null);
+        targets.add(null);
+        amounts.add(null);
+        results.add(pResult);
+    }
+
+    /**
+     * Apply all valid transfers of the batch. Transfers which can't be applied don't affect any account.
+     *
+     * @return per transfer result
+     * @throws AccountingOperationException when applied transfers can't be made durable
+     */
+    public List<TransferResult> commit() throws AccountingOperationException
+    {
+        if (committed)
+        {
+            throw new IllegalStateException("Batch is already committed.");
+        }
+        committed = true;
+        MetricsSink sink = Account.getMetricsSink();
+        long start = sink == MetricsSink.NONE ? 0 : System.nanoTime();
+        TransferResult result = null;
+        try
+        {
+            List<TransferResult> transferResults = commitInLockOrder();
+            result = TransferResult.SUCCESS;
+            return transferResults;
+        }
+        finally
+        {
+            if (sink != MetricsSink.NONE)
+            {
+                sink.operationCompleted(LedgerOperation.BATCH, result, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private List<TransferResult> commitInLockOrder() throws AccountingOperationException
+    {
+
+        Map<Account, Position> positions = new IdentityHashMap<>();
+        for (int i = 0; i < sources.size(); i++)
+        {
+            if (sources.get(i) != null)
+            {
+                positions.computeIfAbsent(sources.get(i), Position::new);
+                positions.computeIfAbsent(targets.get(i), Position::new);
+            }
+        }
+        List<Account> accounts = new ArrayList<>(positions.keySet());
+        accounts.sort(Account::compareLockOrder);
+
+        boolean tie = false;
+        for (int i = 1; i < accounts.size(); i++)
+        {
+            tie |= Account.compareLockOrder(accounts.get(i - 1), accounts.get(i)) == 0;
+        }
+
+        int locked = 0;
+        if (tie)
+        {
+            Account.TIE_LOCK.lock();
+        }
+        try
+        {
+            for (Account account : accounts)
+            {
+                Account.acquire(account.getLock());
+                locked++;
+            }
+            apply(positions);
+        }
+        finally
+        {
+            for (int i = locked - 1; i >= 0; i--)
+            {
+                accounts.get(i).getLock().unlock();
+            }
+            if (tie)
+            {
+                Account.TIE_LOCK.unlock();
+            }
+        }
+        for (Map.Entry<AccountJournal, Long> journalSequence : journalSequences.entrySet())
+        {
+            journalSequence.getKey().awaitDurable(journalSequence.getValue());
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    private void apply(Map<Account, Position> pPositions)
+    {
+        for (Position position : pPositions.values())
+        {
+            position.open();
+        }
+        for (int i = 0; i < sources.size(); i++)
+        {
+            if (results.get(i) == null)
+            {
+                results.set(i, validateAndNet(pPositions.get(sources.get(i)), pPositions.get(targets.get(i)), amounts.get(i).getCurrencyCode(), minorUnits[i]));
+            }
+        }
+        for (Position position : pPositions.values())
+        {
+            position.close();
+        }
+    }
+
+    private TransferResult validateAndNet(Position pSource, Position pTarget, int pCurrencyCode, long pMinorUnits)
+    {
+        if (pTarget.currencyCode != pCurrencyCode)
+        {
+            return TransferResult.CURRENCY_MISMATCH;
+        }
+        if (!pSource.account.hasSufficientFunds(pSource.balance, pMinorUnits))
+        {
+            return TransferResult.INSUFFICIENT_BALANCE;
+        }
+        if (pSource.currencyCode != pCurrencyCode)
+        {
+            return TransferResult.CURRENCY_MISMATCH;
+        }
+        // a transfer to the same account restores balance it withdraws, it can't overflow; room in a hot target is taken last,
+        // a transfer declined after taking it would have to give it back
+        if (Account.subtractOverflows(pSource.balance, pMinorUnits)
+                || pTarget != pSource && (Account.addOverflows(pTarget.balance, pMinorUnits) || !pTarget.reserveCredit(pMinorUnits)))
+        {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        // legs are applied one after the other: deposit leg of a transfer to the same account starts from withdrawn balance
+        pSource.record(AccountingOperationType.WITHDRAW, pMinorUnits, pSource.balance - pMinorUnits);
+        pTarget.record(AccountingOperationType.DEPOSIT, pMinorUnits, pTarget.balance + pMinorUnits);
+        journal(pSource.account, pTarget.account, pMinorUnits);
+        return TransferResult.SUCCESS;
+    }
+
+    private void journal(Account pSource, Account pTarget, long pMinorUnits)
+    {
+        AccountJournal sourceJournal = pSource.getJournal();
+        AccountJournal targetJournal = pTarget.getJournal();
+        if (sourceJournal != null && sourceJournal == targetJournal)
+        {
+            long sequence = sourceJournal.transferred(pSource, pTarget, pMinorUnits);
+            pSource.setJournalSequence(sequence);
+            pTarget.setJournalSequence(sequence);
+            journalSequences.put(sourceJournal, sequence);
+            return;
+        }
+        if (sourceJournal != null)
+        {
+            long sequence = sourceJournal.withdrawn(pSource, pMinorUnits);
+            pSource.setJournalSequence(sequence);
+            journalSequences.put(sourceJournal, sequence);
+        }
+        if (targetJournal != null)
+        {
+            long sequence = targetJournal.deposited(pTarget, pMinorUnits);
+            pTarget.setJournalSequence(sequence);
+            journalSequences.put(targetJournal, sequence);
+        }
+    }
+
+    /**
+     * Running net position of one account within the batch. Opened and closed while account lock is held.
+     */
+    private static final class Position
+    {
+        private final Account account;
+
+        private final List<AccountingOperationType> pendingTypes = new ArrayList<>();
+
+        private long[] pendingAmounts = new long[4];
+
+        private long[] pendingBalances = new long[4];
+
+        private int currencyCode;
+
+        private long balance;
+
+        // Room taken in a hot account by deposit legs, given back once net amount is written
+        private long reservedMinorUnits;
+
+        private Position(Account pAccount)
+        {
+            this.account = pAccount;
+        }
+
+        private void open()
+        {
+            currencyCode = account.getCurrencyCode();
+            balance = account.getNetMinorUnits();
+        }
+
+        private boolean reserveCredit(long pMinorUnits)
+        {
+            if (!account.reserveCredit(pMinorUnits))
+            {
+                return false;
+            }
+            reservedMinorUnits += pMinorUnits;
+            return true;
+        }
+
+        private void record(AccountingOperationType pAccountingOperationType, long pMinorUnits, long pBalance)
+        {
+            if (pendingAmounts.length == pendingTypes.size())
+            {
+                pendingAmounts = Arrays.copyOf(pendingAmounts, pendingAmounts.length * 2);
+                pendingBalances = Arrays.copyOf(pendingBalances, pendingBalances.length * 2);
+            }
+            pendingAmounts[pendingTypes.size()] = pMinorUnits;
+            pendingBalances[pendingTypes.size()] = pBalance;
+            pendingTypes.add(pAccountingOperationType);
+            balance = pBalance;
+        }
+
+        private void close()
+        {
+            if (!pendingTypes.isEmpty())
+            {
+                account.beginBalanceWrite();
+                try
+                {
+                    account.setNetMinorUnits(balance);
+                    for (int i = 0; i < pendingTypes.size(); i++)
+                    {
+                        account.appendActivity(pendingTypes.get(i), pendingAmounts[i], pendingBalances[i]);
+                    }
+                }
+                finally
+                {
+                    account.endBalanceWrite();
+                }
+                account.releaseCredit(reservedMinorUnits);
+            }
+        }
+    }
+}
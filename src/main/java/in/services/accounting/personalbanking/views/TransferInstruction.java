@@ -0,0 +1,94 @@
+package in.services.accounting.personalbanking.views;
+
+/**
+ * Single transfer of a batch, see {@link in.services.accounting.personalbanking.TransactionMediatorPlatform#transferBatch}.
+ */
+public final class TransferInstruction
+{
+    private final Beneficiary fromBeneficiary;
+
+    private final Beneficiary toBeneficiary;
+
+    private final String fromAccountId;
+
+    private final String toAccountId;
+
+    private final Amount amount;
+
+    private TransferInstruction(TransferInstructionBuilder pBuilder)
+    {
+        this.fromBeneficiary = pBuilder.fromBeneficiary;
+        this.toBeneficiary = pBuilder.toBeneficiary;
+        this.fromAccountId = pBuilder.fromAccountId;
+        this.toAccountId = pBuilder.toAccountId;
+        this.amount = pBuilder.amount;
+    }
+
+    public static TransferInstructionBuilder newBuilder()
+    {
+        return new TransferInstructionBuilder();
+    }
+
+    public Beneficiary getFromBeneficiary()
+    {
+        return fromBeneficiary;
+    }
+
+    public Beneficiary getToBeneficiary()
+    {
+        return toBeneficiary;
+    }
+
+    public String getFromAccountId()
+    {
+        return fromAccountId;
+    }
+
+    public String getToAccountId()
+    {
+        return toAccountId;
+    }
+
+    public Amount getAmount()
+    {
+        return amount;
+    }
+
+    public static class TransferInstructionBuilder
+    {
+        private Beneficiary fromBeneficiary;
+
+        private Beneficiary toBeneficiary;
+
+        private String fromAccountId;
+
+        private String toAccountId;
+
+        private Amount amount;
+
+        public TransferInstructionBuilder setFrom(Beneficiary pBeneficiary, String pAccountId)
+        {
+            this.fromBeneficiary = pBeneficiary;
+            this.fromAccountId = pAccountId;
+            return this;
+        }
+
+        public TransferInstructionBuilder setTo(Beneficiary pBeneficiary, String pAccountId)
+        {
+            this.toBeneficiary = pBeneficiary;
+            this.toAccountId = pAccountId;
+            return this;
+        }
+
+        public TransferInstructionBuilder setAmount(Amount pAmount)
+        {
+            this.amount = pAmount;
+            return this;
+        }
+
+        public TransferInstruction build()
+        {
+            return new TransferInstruction(this);
+        }
+    }
+}
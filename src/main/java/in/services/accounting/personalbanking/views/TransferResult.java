@@ -0,0 +1,43 @@
+package in.services.accounting.personalbanking.views;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+/**
+ * Outcome of a single deposit, withdrawal or transfer. Declines are reported through these constants instead of exceptions,
+ * so a burst of declined operations costs no allocation or stack trace.
+ */
+public enum TransferResult
+{
+    SUCCESS(null),
+    ACCOUNT_NOT_FOUND("Account not found."),
+    CURRENCY_MISMATCH("Operation can't be performed either due to different unit of measurement."),
+    INSUFFICIENT_BALANCE("Insufficient Balance for withdrawal."),
+    INVALID_AMOUNT("Amount isn't positive, can't be represented in minor units of account or overflows balance."),
+    NO_EXCHANGE_RATE("No exchange rate between currencies of accounts."),
+    OVERLOADED("Too many pending operations for account, retry later.");
+
+    private final String message;
+
+    TransferResult(String pMessage)
+    {
+        this.message = pMessage;
+    }
+
+    public boolean isSuccess()
+    {
+        return this == SUCCESS;
+    }
+
+    /**
+     * Raise decline as exception, for callers using exception based API.
+     *
+     * @throws AccountingOperationException when result is not success
+     */
+    public void throwIfFailed() throws AccountingOperationException
+    {
+        if (this != SUCCESS)
+        {
+            throw new AccountingOperationException(message);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package in.services.accounting.personalbanking.views;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+/**
+ * Outcome of an applied transfer: amount credited to target and journal positions to wait for before it's durable. Lets the
+ * caller wait after account locks are released, or leave the wait to another thread (Ex: journal stage of {@link LedgerSequencer}).
+ */
+final class TransferTicket
+{
+    // In currency of target account
+    long targetMinorUnits;
+
+    AccountJournal sourceJournal;
+
+    long sourceSequence;
+
+    AccountJournal targetJournal;
+
+    long targetSequence;
+
+    void awaitDurable() throws AccountingOperationException
+    {
+        Account.awaitDurable(sourceJournal, sourceSequence);
+        if (targetJournal != sourceJournal)
+        {
+            Account.awaitDurable(targetJournal, targetSequence);
+        }
+    }
+
+    void clear()
+    {
+        targetMinorUnits = 0;
+        sourceJournal = null;
+        sourceSequence = 0;
+        targetJournal = null;
+        targetSequence = 0;
+    }
+}
@@ -0,0 +1,62 @@
+package in.services.accounting.personalbanking;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+
+public class AccountRegistryTest
+{
+    /**
+     * Verify registration and lookup of accounts spread across shards.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyRegistrationAndLookup() throws AccountingOperationException
+    {
+        AccountRegistry accountRegistry = new AccountRegistry(4);
+        for (int i = 0; i < 100; i++)
+        {
+            org.junit.Assert.assertTrue(accountRegistry.register(new Account("account" + i)));
+        }
+        org.junit.Assert.assertFalse("Duplicate account id should be rejected.", accountRegistry.register(new Account("account1")));
+        org.junit.Assert.assertEquals(100, accountRegistry.size());
+        org.junit.Assert.assertEquals("account42", accountRegistry.getAccountById("account42").getAccountId());
+        org.junit.Assert.assertFalse(accountRegistry.findAccountById("account100").isPresent());
+    }
+
+    /**
+     * Negative test. Lookup of unregistered account id.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test(expected = AccountingOperationException.class)
+    public void verifyValidationForUnknownAccountId() throws AccountingOperationException
+    {
+        new AccountRegistry().getAccountById("unknownAccountId");
+    }
+
+    /**
+     * Verify transfer addressed by account ids only.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyTransferByAccountId() throws AccountingOperationException
+    {
+        Account source = new Account("registrySourceAccountId");
+        Account target = new Account("registryTargetAccountId");
+        TransactionMediatorPlatform.getInstance().getAccountRegistry().register(source);
+        TransactionMediatorPlatform.getInstance().getAccountRegistry().register(target);
+        source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+
+        TransactionMediatorPlatform.getInstance().transferAmount("registrySourceAccountId", "registryTargetAccountId", Amount.newBuilder().setValue(new BigDecimal(40)).build());
+
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(new BigDecimal(60)).build(), source.getNetAmount());
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(new BigDecimal(40)).build(), target.getNetAmount());
+    }
+}
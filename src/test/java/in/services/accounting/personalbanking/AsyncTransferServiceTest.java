@@ -0,0 +1,145 @@
+package in.services.accounting.personalbanking;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.TransferResult;
+
+public class AsyncTransferServiceTest
+{
+    /**
+     * Concurrent asynchronous transfers around a ring of accounts neither lose nor create money.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyAsyncTransfers() throws Exception
+    {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try
+        {
+            AsyncTransferService asyncTransferService = new AsyncTransferService(TransactionMediatorPlatform.getInstance(), executorService, 10_000);
+            Account[] accounts = new Account[4];
+            for (int i = 0; i < accounts.length; i++)
+            {
+                accounts[i] = new Account("asyncAccountId" + i);
+                accounts[i].depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+            }
+
+            List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 4000; i++)
+            {
+                futures.add(asyncTransferService.transferAmount(accounts[i % 4], accounts[(i + 1) % 4], Amount.newBuilder().setValue(BigDecimal.ONE).build()));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            BigDecimal total = BigDecimal.ZERO;
+            for (Account account : accounts)
+            {
+                total = total.add(account.getNetAmount().getValue());
+            }
+            org.junit.Assert.assertEquals(0, new BigDecimal(400).compareTo(total));
+            for (CompletableFuture<TransferResult> future : futures)
+            {
+                TransferResult result = future.get();
+                org.junit.Assert.assertTrue(result == TransferResult.SUCCESS || result == TransferResult.INSUFFICIENT_BALANCE);
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Transfers beyond mailbox capacity are turned away, queued ones run in submission order.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyBackpressure() throws AccountingOperationException
+    {
+        Queue<Runnable> submitted = new ArrayDeque<>();
+        AsyncTransferService asyncTransferService = new AsyncTransferService(TransactionMediatorPlatform.getInstance(), submitted::add, 2);
+        Account source = new Account("asyncSourceAccountId");
+        Account target = new Account("asyncTargetAccountId");
+        source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(15)).build());
+
+        CompletableFuture<TransferResult> first = asyncTransferService.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.TEN).build());
+        CompletableFuture<TransferResult> second = asyncTransferService.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.TEN).build());
+        CompletableFuture<TransferResult> third = asyncTransferService.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.ONE).build());
+
+        org.junit.Assert.assertEquals(TransferResult.OVERLOADED, third.join());
+        org.junit.Assert.assertFalse(first.isDone());
+        org.junit.Assert.assertEquals(2, asyncTransferService.getPendingTransfers("asyncSourceAccountId"));
+        org.junit.Assert.assertEquals(1, submitted.size());
+        org.junit.Assert.assertEquals(1, asyncTransferService.getMailboxCount());
+
+        submitted.poll().run();
+        org.junit.Assert.assertEquals(TransferResult.SUCCESS, first.join());
+        org.junit.Assert.assertEquals(TransferResult.INSUFFICIENT_BALANCE, second.join());
+        org.junit.Assert.assertEquals(0, asyncTransferService.getPendingTransfers("asyncSourceAccountId"));
+        org.junit.Assert.assertEquals(0, asyncTransferService.getMailboxCount());
+    }
+
+    /**
+     * Drained mailboxes are removed, a later transfer of the same account gets a new one.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyDrainedMailboxesAreRemoved() throws Exception
+    {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try
+        {
+            AsyncTransferService asyncTransferService = new AsyncTransferService(TransactionMediatorPlatform.getInstance(), executorService, 1);
+            Account target = new Account("asyncDrainTargetAccountId");
+            List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+            for (int round = 0; round < 2; round++)
+            {
+                for (int i = 0; i < 100; i++)
+                {
+                    Account source = new Account("asyncDrainAccountId" + i);
+                    source.depositAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+                    futures.add(asyncTransferService.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.ONE).build()));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+                // last mailbox removal runs after the last future completes
+                for (int wait = 0; wait < 1000 && asyncTransferService.getMailboxCount() > 0; wait++)
+                {
+                    Thread.sleep(1);
+                }
+                org.junit.Assert.assertEquals(0, asyncTransferService.getMailboxCount());
+            }
+            for (CompletableFuture<TransferResult> future : futures)
+            {
+                org.junit.Assert.assertEquals(TransferResult.SUCCESS, future.get());
+            }
+            org.junit.Assert.assertEquals(0, new BigDecimal(200).compareTo(target.getNetAmount().getValue()));
+
+            // transfers run on the submitting thread still reuse or remove their mailbox consistently
+            AsyncTransferService directService = new AsyncTransferService(TransactionMediatorPlatform.getInstance(), Runnable::run, 1);
+            Account source = new Account("asyncDirectAccountId");
+            source.depositAmount(Amount.newBuilder().setValue(BigDecimal.TEN).build());
+            org.junit.Assert.assertEquals(TransferResult.SUCCESS, directService.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.ONE).build()).join());
+            org.junit.Assert.assertEquals(TransferResult.SUCCESS, directService.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.ONE).build()).join());
+            org.junit.Assert.assertEquals(0, directService.getMailboxCount());
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package in.services.accounting.personalbanking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.internal.PrinterImpl;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.Beneficiary;
+
+public class BulkStatementJobTest
+{
+    /**
+     * Every account gets its own file, with the same content as its sequentially printed statement.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyWriteStatements() throws Exception
+    {
+        List<Beneficiary> beneficiaries = newBeneficiaries();
+        Path directory = Files.createTempDirectory("statements");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            BulkStatementJob bulkStatementJob = new BulkStatementJob(pool);
+            BulkStatementJob.Report report = bulkStatementJob.writeStatements(beneficiaries, directory);
+
+            org.junit.Assert.assertEquals(1000, report.getAccountCount());
+            org.junit.Assert.assertEquals(1000, bulkStatementJob.getCompletedAccounts());
+            org.junit.Assert.assertEquals(1000, bulkStatementJob.getTotalAccounts());
+            long lines = 0;
+            for (Beneficiary beneficiary : beneficiaries)
+            {
+                for (Account account : beneficiary.getAccounts())
+                {
+                    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                    PrinterImpl printer = new PrinterImpl(expected);
+                    account.printFullStatement(printer);
+                    lines += printer.getCounter().get();
+                    Path file = directory.resolve(beneficiary.getBeneficiaryId()).resolve(account.getAccountId() + ".txt");
+                    org.junit.Assert.assertEquals(new String(expected.toByteArray(), StandardCharsets.UTF_8), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                }
+            }
+            org.junit.Assert.assertEquals(lines, report.getLineCount());
+        }
+        finally
+        {
+            pool.shutdown();
+            try (Stream<Path> files = Files.walk(directory))
+            {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Ids made of dots name files inside output directory, never the directory itself or its parent.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyDotIdsStayInDirectory() throws Exception
+    {
+        Path parent = Files.createTempDirectory("statements");
+        Path directory = Files.createDirectory(parent.resolve("output"));
+        try
+        {
+            Beneficiary beneficiary = Beneficiary.newBuilder().setBeneficiaryId("..").setBeneficiaryName("dots").build();
+            beneficiary.linkAccount(new Account("."));
+            beneficiary.linkAccount(new Account(".."));
+
+            org.junit.Assert.assertEquals(2, new BulkStatementJob().writeStatements(Arrays.asList(beneficiary), directory).getAccountCount());
+
+            org.junit.Assert.assertTrue(Files.isRegularFile(directory.resolve("%2E%2E").resolve("%2E.txt")));
+            org.junit.Assert.assertTrue(Files.isRegularFile(directory.resolve("%2E%2E").resolve("%2E%2E.txt")));
+            try (Stream<Path> files = Files.list(parent))
+            {
+                org.junit.Assert.assertEquals(1, files.count());
+            }
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.walk(parent))
+            {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Statements can be printed through a printer per account.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyPrintStatements() throws Exception
+    {
+        List<Beneficiary> beneficiaries = newBeneficiaries();
+        Map<String, ByteArrayOutputStream> outputs = new ConcurrentHashMap<>();
+        BulkStatementJob.Report report = new BulkStatementJob().printStatements(beneficiaries, account ->
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            outputs.put(account.getAccountId(), output);
+            return new PrinterImpl(output);
+        });
+
+        org.junit.Assert.assertEquals(1000, report.getAccountCount());
+        org.junit.Assert.assertEquals(1000, outputs.size());
+        // header, account id, separator, activities, footer
+        org.junit.Assert.assertEquals(1000 * 4 + 1000 * 3, report.getLineCount());
+        String statement = new String(outputs.get("bulkAccountId2-7").toByteArray(), StandardCharsets.UTF_8);
+        org.junit.Assert.assertTrue(statement.contains("bulkAccountId2-7"));
+    }
+
+    // three beneficiaries of very different size, every account with three activities
+    private static List<Beneficiary> newBeneficiaries() throws Exception
+    {
+        List<Beneficiary> beneficiaries = new ArrayList<>();
+        int[] sizes = { 1, 99, 900 };
+        for (int b = 0; b < sizes.length; b++)
+        {
+            Beneficiary beneficiary = Beneficiary.newBuilder().setBeneficiaryId("bulkBeneficiary" + b).setBeneficiaryName("bulk").build();
+            for (int a = 0; a < sizes[b]; a++)
+            {
+                Account account = new Account("bulkAccountId" + b + "-" + a);
+                account.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100 + a)).build());
+                account.depositAmount(Amount.newBuilder().setValue(BigDecimal.TEN).build());
+                account.withDrawAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+                beneficiary.linkAccount(account);
+            }
+            beneficiaries.add(beneficiary);
+        }
+        return beneficiaries;
+    }
+}
@@ -4,6 +4,7 @@ package in.services.accounting.personalbanking;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
@@ -17,6 +18,9 @@ import in.services.accounting.personalbanking.views.AccountingOperationType;
 import in.services.accounting.personalbanking.views.Activity;
 import in.services.accounting.personalbanking.views.Amount;
 import in.services.accounting.personalbanking.views.Beneficiary;
+import in.services.accounting.personalbanking.views.FxRateTable;
+import in.services.accounting.personalbanking.views.TransferInstruction;
+import in.services.accounting.personalbanking.views.TransferResult;
 
 /**
  * Test case will verify following use cases:
@@ -104,6 +108,19 @@ public class EndToEndTestCase
         ankit.getAccountById("johnAccountId");
     }
 
+    /**
+     * Verify unknown account is reported as result by result based API.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyUnknownAccountResult() throws AccountingOperationException
+    {
+        TransferResult result = TransactionMediatorPlatform.getInstance().tryTransferAmount(ankit, john, "ankitAccountId", "unknownAccountId", getAmountOfValue(10));
+        org.junit.Assert.assertEquals(TransferResult.ACCOUNT_NOT_FOUND, result);
+        org.junit.Assert.assertEquals(TransferResult.ACCOUNT_NOT_FOUND, TransactionMediatorPlatform.getInstance().tryTransferAmount("unknownAccountId", "ankitAccountId", getAmountOfValue(10)));
+    }
+
     /**
      * Verify Deposit some amount in beneficiary account
      *
@@ -225,5 +242,82 @@ public class EndToEndTestCase
 
     }
 
-}
+    /**
+     * Verify batch of transfers. Valid instructions are applied, invalid ones are reported and don't affect any account.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyBatchTransfer() throws AccountingOperationException
+    {
+        Account ankitAccount = ankit.getAccountById("ankitAccountId");
+        Account johnAccount = john.getAccountById("johnAccountId");
+        ankitAccount.depositAmount(getAmountOfValue(300));
+
+        List<TransferResult> results = TransactionMediatorPlatform.getInstance().transferBatch(Arrays.asList(
+                TransferInstruction.newBuilder().setFrom(ankit, "ankitAccountId").setTo(john, "johnAccountId").setAmount(getAmountOfValue(100)).build(),
+                TransferInstruction.newBuilder().setFrom(ankit, "ankitAccountId").setTo(john, "unknownAccountId").setAmount(getAmountOfValue(100)).build(),
+                TransferInstruction.newBuilder().setFrom(john, "johnAccountId").setTo(ankit, "ankitAccountId").setAmount(getAmountOfValue(40)).build(),
+                TransferInstruction.newBuilder().setFrom(ankit, "ankitAccountId").setTo(john, "johnAccountId")
+                        .setAmount(Amount.newBuilder().setValue(new BigDecimal(10)).setUnitOfMeasurement("usd").build()).build()));
+
+        org.junit.Assert.assertEquals(Arrays.asList(TransferResult.SUCCESS, TransferResult.ACCOUNT_NOT_FOUND, TransferResult.SUCCESS, TransferResult.CURRENCY_MISMATCH), results);
+        org.junit.Assert.assertThat(ankitAccount.getNetAmount(), org.hamcrest.core.Is.is(getAmountOfValue(240)));
+        org.junit.Assert.assertThat(johnAccount.getNetAmount(), org.hamcrest.core.Is.is(getAmountOfValue(60)));
+        org.junit.Assert.assertEquals(3, ankitAccount.getActivities().size());
+        org.junit.Assert.assertEquals(2, johnAccount.getActivities().size());
+    }
 
+    /**
+     * Verify transfer of a batch from an account to itself leaves balance unchanged, with both legs in statement.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyBatchTransferToSameAccount() throws AccountingOperationException
+    {
+        Account ankitAccount = ankit.getAccountById("ankitAccountId");
+        ankitAccount.depositAmount(getAmountOfValue(100));
+
+        List<TransferResult> results = TransactionMediatorPlatform.getInstance().transferBatch(Arrays.asList(
+                TransferInstruction.newBuilder().setFrom(ankit, "ankitAccountId").setTo(ankit, "ankitAccountId").setAmount(getAmountOfValue(30)).build(),
+                TransferInstruction.newBuilder().setFrom(ankit, "ankitAccountId").setTo(ankit, "ankitAccountId").setAmount(getAmountOfValue(130)).build()));
+
+        org.junit.Assert.assertEquals(Arrays.asList(TransferResult.SUCCESS, TransferResult.INSUFFICIENT_BALANCE), results);
+        org.junit.Assert.assertThat(ankitAccount.getNetAmount(), org.hamcrest.core.Is.is(getAmountOfValue(100)));
+        List<Activity> activities = ankitAccount.getActivities();
+        org.junit.Assert.assertEquals(3, activities.size());
+        org.junit.Assert.assertEquals(7000, activities.get(1).getBalanceMinorUnits());
+        org.junit.Assert.assertEquals(10000, activities.get(2).getBalanceMinorUnits());
+    }
+
+    /**
+     * Verify transfer to an account of another currency credits amount converted at platform rates.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyCrossCurrencyTransfer() throws AccountingOperationException
+    {
+        TransactionMediatorPlatform platform = TransactionMediatorPlatform.getInstance();
+        FxRateTable previous = platform.getFxRateTable();
+        try
+        {
+            platform.setFxRateTable(FxRateTable.empty("usd"));
+            platform.updateFxRate("inr", new BigDecimal("80"));
+            Account ankitAccount = ankit.getAccountById("ankitAccountId");
+            Account johnUsdAccount = new Account("johnUsdAccountId", "usd");
+            john.linkAccount(johnUsdAccount);
+            ankitAccount.depositAmount(getAmountOfValue(1000));
+
+            platform.transferAmount(ankit, john, "ankitAccountId", "johnUsdAccountId", getAmountOfValue(400));
+
+            org.junit.Assert.assertThat(ankitAccount.getNetAmount(), org.hamcrest.core.Is.is(getAmountOfValue(600)));
+            org.junit.Assert.assertThat(johnUsdAccount.getNetAmount(), org.hamcrest.core.Is.is(Amount.newBuilder().setValue(new BigDecimal(5)).setUnitOfMeasurement("usd").build()));
+        }
+        finally
+        {
+            platform.setFxRateTable(previous);
+        }
+    }
+}
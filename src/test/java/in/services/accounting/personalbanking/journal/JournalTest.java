@@ -0,0 +1,99 @@
+package in.services.accounting.personalbanking.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+
+public class JournalTest
+{
+    private Path journalFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        journalFile = File.createTempFile("journal", ".log").toPath();
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(journalFile);
+    }
+
+    /**
+     * Every mutation returns only once durable, concurrent writers share force() calls.
+     */
+    @Test
+    public void verifyGroupCommit() throws Exception
+    {
+        final int threads = 8;
+        final int operations = 200;
+        try (Journal journal = Journal.open(journalFile))
+        {
+            final CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executorService = Executors.newFixedThreadPool(threads);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                final Account account = new Account("journalAccountId" + t);
+                account.setJournal(journal);
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < operations; i++)
+                    {
+                        account.depositAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+                        org.junit.Assert.assertTrue(journal.getDurablePosition() > 0);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures)
+            {
+                future.get();
+            }
+            executorService.shutdown();
+
+            org.junit.Assert.assertEquals(Files.size(journalFile), journal.getDurablePosition());
+            org.junit.Assert.assertTrue("Force calls should not exceed number of mutations.", journal.getForceCount() <= threads * (operations + 1));
+        }
+    }
+
+    /**
+     * Transfer between two journaled accounts is written as one record.
+     */
+    @Test
+    public void verifyTransferIsSingleRecord() throws IOException, AccountingOperationException
+    {
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account source = new Account("source");
+            Account target = new Account("target");
+            source.setJournal(journal);
+            target.setJournal(journal);
+            source.depositAmount(Amount.newBuilder().setValue(BigDecimal.TEN).build());
+            long beforeTransfer = journal.getDurablePosition();
+
+            source.transferAmount(target, Amount.newBuilder().setValue(BigDecimal.ONE).build());
+
+            // header + type + nanos + amount + "source" + "target"
+            org.junit.Assert.assertEquals(Journal.HEADER_SIZE + 1 + 8 + 8 + 2 + 6 + 2 + 6, journal.getDurablePosition() - beforeTransfer);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package in.services.accounting.personalbanking.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.AccountRegistry;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.AccountingOperationType;
+import in.services.accounting.personalbanking.views.ActivityArchive;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.FxRateTable;
+import in.services.accounting.personalbanking.views.StatementSummary;
+import in.services.accounting.personalbanking.views.TransferResult;
+
+public class LedgerRecoveryTest
+{
+    // Entries per statement chunk, only full chunks are archived
+    private static final int CHUNK_SIZE = 1024;
+
+    private Path journalFile;
+
+    private Path snapshotDirectory;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        journalFile = File.createTempFile("journal", ".log").toPath();
+        snapshotDirectory = Files.createTempDirectory("snapshot");
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        executorService.shutdown();
+        Files.deleteIfExists(journalFile);
+        try (Stream<Path> files = Files.walk(snapshotDirectory))
+        {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Snapshot plus journal tail give back balances and statements, a torn last record is dropped.
+     */
+    @Test
+    public void verifyRecoveryFromSnapshotAndJournal() throws Exception
+    {
+        AccountRegistry accountRegistry = new AccountRegistry(4);
+        long validPosition;
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account first = new Account("first");
+            Account second = new Account("second");
+            first.setJournal(journal);
+            second.setJournal(journal);
+            accountRegistry.register(first);
+            accountRegistry.register(second);
+
+            first.depositAmount(amountOf(100));
+            first.transferAmount(second, amountOf(30));
+
+            LedgerSnapshot.write(accountRegistry, journal, snapshotDirectory, executorService);
+
+            Account third = new Account("third");
+            third.setJournal(journal);
+            accountRegistry.register(third);
+            second.transferAmount(third, amountOf(10));
+            first.withDrawAmount(amountOf(5));
+            validPosition = journal.getDurablePosition();
+        }
+        // crash during a write leaves a partial record behind
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+        {
+            channel.write(java.nio.ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, 1, 2, 3 }));
+        }
+
+        AccountRegistry recovered = new AccountRegistry(2);
+        LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, executorService, 3);
+
+        org.junit.Assert.assertEquals(3, recovered.size());
+        assertAccount(recovered.getAccountById("first"), 65, 3);
+        assertAccount(recovered.getAccountById("second"), 20, 2);
+        assertAccount(recovered.getAccountById("third"), 10, 1);
+        org.junit.Assert.assertEquals(validPosition, Files.size(journalFile));
+    }
+
+    /**
+     * Accounts attached to journal without being registered (ex: linked through a beneficiary only) are part of the snapshot:
+     * their journal tail replays on top of it and their state before the snapshot isn't lost.
+     */
+    @Test
+    public void verifyRecoveryOfUnregisteredAccounts() throws Exception
+    {
+        AccountRegistry accountRegistry = new AccountRegistry(2);
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account registered = new Account("registered");
+            registered.setJournal(journal);
+            accountRegistry.register(registered);
+            Account linked = new Account("linked");
+            linked.setJournal(journal);
+            Account dormant = new Account("dormant");
+            dormant.setJournal(journal);
+            linked.depositAmount(amountOf(50));
+            dormant.depositAmount(amountOf(30));
+            registered.depositAmount(amountOf(10));
+
+            LedgerSnapshot.write(accountRegistry, journal, snapshotDirectory, executorService);
+
+            linked.depositAmount(amountOf(20));
+            linked.transferAmount(registered, amountOf(5));
+        }
+
+        AccountRegistry recovered = new AccountRegistry();
+        LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, executorService, 2);
+        org.junit.Assert.assertEquals(3, recovered.size());
+        assertAccount(recovered.getAccountById("registered"), 15, 2);
+        assertAccount(recovered.getAccountById("linked"), 65, 3);
+        assertAccount(recovered.getAccountById("dormant"), 30, 1);
+    }
+
+    /**
+     * Snapshot is complete only once journal is durable up to its position, records appended without waiting included.
+     */
+    @Test
+    public void verifySnapshotWaitsForDurableJournal() throws Exception
+    {
+        AccountRegistry accountRegistry = new AccountRegistry(2);
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account account = new Account("account");
+            account.setJournal(journal);
+            accountRegistry.register(account);
+            // appended, nobody waits for it
+            journal.deposited(account, 500);
+            org.junit.Assert.assertTrue(journal.getDurablePosition() < journal.getAppendedPosition());
+
+            LedgerSnapshot.write(accountRegistry, journal, snapshotDirectory, executorService);
+
+            org.junit.Assert.assertEquals(journal.getAppendedPosition(), journal.getDurablePosition());
+            org.junit.Assert.assertEquals(journal.getDurablePosition(), LedgerSnapshot.load(snapshotDirectory, new AccountRegistry(), executorService));
+        }
+    }
+
+    /**
+     * Without snapshot whole journal is replayed.
+     */
+    @Test
+    public void verifyRecoveryFromJournalOnly() throws Exception
+    {
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account first = new Account("first");
+            first.setJournal(journal);
+            first.depositAmount(amountOf(7));
+        }
+
+        AccountRegistry recovered = new AccountRegistry();
+        org.junit.Assert.assertEquals(2, LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, executorService, 2));
+        assertAccount(recovered.getAccountById("first"), 7, 1);
+    }
+
+    /**
+     * Transfer between currencies is recovered with both its amounts.
+     */
+    @Test
+    public void verifyRecoveryOfExchange() throws Exception
+    {
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account inrAccount = new Account("inrAccount");
+            Account usdAccount = new Account("usdAccount", "usd");
+            inrAccount.setJournal(journal);
+            usdAccount.setJournal(journal);
+            inrAccount.depositAmount(amountOf(800));
+            inrAccount.transferAmount(usdAccount, amountOf(160), FxRateTable.empty("usd").withRate("inr", BigDecimal.valueOf(80)));
+        }
+
+        AccountRegistry recovered = new AccountRegistry();
+        LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, executorService, 2);
+        assertAccount(recovered.getAccountById("inrAccount"), 640, 2);
+        assertAccount(recovered.getAccountById("usdAccount"), 2, 1);
+    }
+
+    /**
+     * Transfer of an account to itself is recovered with both legs, leaving balance unchanged.
+     */
+    @Test
+    public void verifyRecoveryOfTransferToSameAccount() throws Exception
+    {
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account account = new Account("account");
+            account.setJournal(journal);
+            account.depositAmount(amountOf(100));
+            account.transferAmount(account, amountOf(40));
+        }
+
+        AccountRegistry recovered = new AccountRegistry();
+        LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, executorService, 2);
+        assertAccount(recovered.getAccountById("account"), 100, 3);
+        org.junit.Assert.assertEquals(6000, recovered.getAccountById("account").getActivities().get(1).getBalanceMinorUnits());
+    }
+
+    /**
+     * Overdraft limit and holds survive recovery, from snapshot as well as from journal tail.
+     */
+    @Test
+    public void verifyRecoveryOfOverdraftLimitAndHolds() throws Exception
+    {
+        AccountRegistry accountRegistry = new AccountRegistry(2);
+        long releasedHold;
+        long capturedHold;
+        long openHold;
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account account = new Account("account");
+            account.setJournal(journal);
+            accountRegistry.register(account);
+            account.depositAmount(amountOf(100));
+            account.setOverdraftLimit(amountOf(50));
+            releasedHold = account.placeHold(amountOf(30));
+            capturedHold = account.placeHold(amountOf(40));
+            LedgerSnapshot.write(accountRegistry, journal, snapshotDirectory, executorService);
+            account.releaseHold(releasedHold);
+            account.captureHold(capturedHold);
+            openHold = account.placeHold(amountOf(20));
+        }
+
+        AccountRegistry recovered = new AccountRegistry();
+        LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, executorService, 2);
+        Account account = recovered.getAccountById("account");
+        assertAccount(account, 60, 2);
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(50).compareTo(account.getOverdraftLimit().getValue()));
+        // 60 net plus 50 overdraft less 20 on hold
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(90).compareTo(account.getAvailableAmount().getValue()));
+        org.junit.Assert.assertEquals(TransferResult.INSUFFICIENT_BALANCE, account.tryWithDrawAmount(amountOf(91)));
+        org.junit.Assert.assertTrue(account.placeHold(amountOf(1)) > openHold);
+        account.releaseHold(openHold);
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(109).compareTo(account.getAvailableAmount().getValue()));
+    }
+
+    /**
+     * Credits of a hot account accepted while a journal gets attached are all journaled and durable once deposits return.
+     */
+    @Test
+    public void verifyHotCreditsRacingAttachAreDurable() throws Exception
+    {
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account account = new Account("account");
+            account.markHot();
+            List<Future<?>> depositors = new ArrayList<>();
+            for (int t = 0; t < 3; t++)
+            {
+                depositors.add(executorService.submit(() -> {
+                    for (int i = 0; i < 500; i++)
+                    {
+                        account.depositAmount(amountOf(1));
+                    }
+                    return null;
+                }));
+            }
+            account.setJournal(journal);
+            for (Future<?> depositor : depositors)
+            {
+                depositor.get();
+            }
+            org.junit.Assert.assertEquals(journal.getAppendedPosition(), journal.getDurablePosition());
+        }
+
+        AccountRegistry recovered = new AccountRegistry();
+        LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, executorService, 2);
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(1500).compareTo(recovered.getAccountById("account").getNetAmount().getValue()));
+    }
+
+    /**
+     * Statement of a replayed account opens with balance it had when attached, with or without activity in the period.
+     */
+    @Test
+    public void verifyStatementOpeningBalanceOfReplayedAccount() throws Exception
+    {
+        Instant attachedAt;
+        try (Journal journal = Journal.open(journalFile))
+        {
+            Account account = new Account("account");
+            // history before attach is not journaled, only resulting balance
+            account.depositAmount(amountOf(100));
+            account.setJournal(journal);
+            attachedAt = Instant.now();
+            account.depositAmount(amountOf(20));
+        }
+
+        AccountRegistry recovered = new AccountRegistry();
+        LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, executorService, 2);
+        Account account = recovered.getAccountById("account");
+        assertAccount(account, 120, 1);
+        StatementSummary summary = account.getSummary(AccountingOperationType.BOTH, Instant.EPOCH, attachedAt.minusSeconds(60));
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(100).compareTo(summary.getOpeningBalance().getValue()));
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(100).compareTo(summary.getClosingBalance().getValue()));
+        summary = account.getSummary(AccountingOperationType.BOTH, Instant.EPOCH, attachedAt.plusSeconds(60));
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(100).compareTo(summary.getOpeningBalance().getValue()));
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(120).compareTo(summary.getClosingBalance().getValue()));
+        org.junit.Assert.assertEquals(1, summary.getDepositCount());
+
+        Account attachedOnly = new Account("attachedOnly");
+        org.junit.Assert.assertTrue(attachedOnly.replayNetAmount(5000, 1));
+        summary = attachedOnly.getSummary(AccountingOperationType.BOTH, Instant.EPOCH, Instant.now());
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(50).compareTo(summary.getOpeningBalance().getValue()));
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(50).compareTo(summary.getClosingBalance().getValue()));
+    }
+
+    /**
+     * Snapshot refers to archived statement chunks instead of copying them: recovery reads them in place from the reopened
+     * archive, and archiving after restart doesn't overwrite them.
+     */
+    @Test
+    public void verifyRecoveryKeepsArchivedHistoryInArchive() throws Exception
+    {
+        Path archiveDirectory = snapshotDirectory.resolve("archive");
+        AccountRegistry accountRegistry = new AccountRegistry(2);
+        Account account = new Account("account");
+        accountRegistry.register(account);
+        int entries = CHUNK_SIZE * 2 + 10;
+        for (int i = 0; i < entries; i++)
+        {
+            account.depositAmount(amountOf(1));
+        }
+        try (ActivityArchive activityArchive = new ActivityArchive(archiveDirectory))
+        {
+            account.archiveActivities(activityArchive, Instant.now().plusSeconds(60));
+            LedgerSnapshot.write(accountRegistry, null, snapshotDirectory, executorService);
+        }
+
+        try (ActivityArchive activityArchive = new ActivityArchive(archiveDirectory))
+        {
+            AccountRegistry recovered = new AccountRegistry();
+            try
+            {
+                LedgerRecovery.recover(snapshotDirectory, journalFile, new AccountRegistry(), executorService, 2);
+                org.junit.Assert.fail("Archived statement was restored without archive.");
+            }
+            catch (IOException e)
+            {
+                org.junit.Assert.assertTrue(e.getMessage().contains("archive is required"));
+            }
+            LedgerRecovery.recover(snapshotDirectory, journalFile, recovered, activityArchive, executorService, 2);
+            Account restored = recovered.getAccountById("account");
+            assertAccount(restored, entries, entries);
+            org.junit.Assert.assertEquals(account.getSummary(AccountingOperationType.BOTH, Instant.EPOCH, Instant.now()).toString(),
+                    restored.getSummary(AccountingOperationType.BOTH, Instant.EPOCH, Instant.now()).toString());
+            org.junit.Assert.assertEquals(CHUNK_SIZE * 2, restored.getActivityLog().getArchivedSize());
+            // day index of archived entries comes from snapshot, later entries are appended on top of it
+            restored.depositAmount(amountOf(1));
+            StatementSummary summary = restored.getSummary(AccountingOperationType.BOTH, Instant.EPOCH, Instant.now().plusSeconds(60));
+            org.junit.Assert.assertEquals(entries + 1, summary.getDepositCount());
+            org.junit.Assert.assertEquals(0, BigDecimal.valueOf(entries + 1).compareTo(summary.getTotalDeposits().getValue()));
+            org.junit.Assert.assertEquals(0, BigDecimal.valueOf(entries + 1).compareTo(summary.getClosingBalance().getValue()));
+
+            // history of another account archived after restart goes to new regions
+            Account other = new Account("other");
+            for (int i = 0; i < CHUNK_SIZE; i++)
+            {
+                other.depositAmount(amountOf(7));
+            }
+            other.archiveActivities(activityArchive, Instant.now().plusSeconds(60));
+            for (int i = 0; i <= entries; i++)
+            {
+                org.junit.Assert.assertEquals((i + 1) * 100L, restored.getActivityLog().getBalanceMinorUnits(i));
+            }
+        }
+    }
+
+    private static void assertAccount(Account pAccount, long pBalance, int pActivities)
+    {
+        org.junit.Assert.assertEquals(0, BigDecimal.valueOf(pBalance).compareTo(pAccount.getNetAmount().getValue()));
+        org.junit.Assert.assertEquals(pActivities, pAccount.getActivities().size());
+    }
+
+    private static Amount amountOf(long pValue)
+    {
+        return Amount.newBuilder().setValue(BigDecimal.valueOf(pValue)).build();
+    }
+}
@@ -0,0 +1,147 @@
+package in.services.accounting.personalbanking.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.internal.PrinterImpl;
+import in.services.accounting.personalbanking.views.Account;
+import in.services.accounting.personalbanking.views.Amount;
+import in.services.accounting.personalbanking.views.FxRateTable;
+import in.services.accounting.personalbanking.views.LedgerOperation;
+import in.services.accounting.personalbanking.views.LedgerSequencer;
+import in.services.accounting.personalbanking.views.MetricsSink;
+import in.services.accounting.personalbanking.views.TransferBatch;
+import in.services.accounting.personalbanking.views.TransferResult;
+
+public class LedgerMetricsTest
+{
+    /**
+     * Percentiles are known within bucket precision and never exceed recorded maximum.
+     */
+    @Test
+    public void verifyHistogram()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        org.junit.Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+        for (long value = 1; value <= 10_000; value++)
+        {
+            histogram.record(value);
+        }
+        org.junit.Assert.assertEquals(10_000, histogram.getCount());
+        org.junit.Assert.assertEquals(10_000, histogram.getMax());
+        org.junit.Assert.assertEquals(5000.5, histogram.getMean(), 0.001);
+        long median = histogram.getValueAtPercentile(50);
+        org.junit.Assert.assertTrue(median >= 5000 && median <= 5000 + 5000 / 32);
+        long p99 = histogram.getValueAtPercentile(99);
+        org.junit.Assert.assertTrue(p99 >= 9900 && p99 <= 9900 + 9900 / 32);
+        org.junit.Assert.assertEquals(10_000, histogram.getValueAtPercentile(100));
+        org.junit.Assert.assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+
+        histogram.reset();
+        org.junit.Assert.assertEquals(0, histogram.getCount());
+    }
+
+    /**
+     * Account operations are counted with their outcome and can be read through JMX.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyAccountMetrics() throws Exception
+    {
+        LedgerMetrics metrics = new LedgerMetrics();
+        String objectName = "in.services.accounting.personalbanking:type=LedgerMetrics,name=test";
+        Account.setMetricsSink(metrics);
+        try
+        {
+            metrics.register(objectName);
+            Account source = new Account("metricsSourceAccountId");
+            Account target = new Account("metricsTargetAccountId");
+            source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+            source.tryTransferAmount(target, Amount.newBuilder().setValue(new BigDecimal(40)).build());
+            source.tryTransferAmount(target, Amount.newBuilder().setValue(new BigDecimal(400)).build());
+            target.tryWithDrawAmount(Amount.newBuilder().setValue(BigDecimal.ONE).setUnitOfMeasurement("usd").build());
+            source.printFullStatement(new PrinterImpl(new ByteArrayOutputStream()));
+
+            org.junit.Assert.assertEquals(1, metrics.getCount(LedgerOperation.DEPOSIT));
+            org.junit.Assert.assertEquals(2, metrics.getCount(LedgerOperation.TRANSFER));
+            org.junit.Assert.assertEquals(1, metrics.getResultCount(LedgerOperation.TRANSFER, TransferResult.SUCCESS));
+            org.junit.Assert.assertEquals(1, metrics.getResultCount(LedgerOperation.TRANSFER, TransferResult.INSUFFICIENT_BALANCE));
+            org.junit.Assert.assertEquals(1, metrics.getResultCount(LedgerOperation.WITHDRAW, TransferResult.CURRENCY_MISMATCH));
+            org.junit.Assert.assertEquals(1, metrics.getCount(LedgerOperation.STATEMENT));
+            org.junit.Assert.assertEquals(2, metrics.getLatencyHistogram(LedgerOperation.TRANSFER).getCount());
+
+            Map<Object, Object> failures = toMap(ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(objectName), "FailureCounts"));
+            org.junit.Assert.assertEquals(Long.valueOf(1), failures.get("TRANSFER.INSUFFICIENT_BALANCE"));
+            org.junit.Assert.assertEquals(Long.valueOf(1), failures.get("WITHDRAW.CURRENCY_MISMATCH"));
+            org.junit.Assert.assertEquals(2, failures.size());
+        }
+        finally
+        {
+            Account.setMetricsSink(MetricsSink.NONE);
+            LedgerMetrics.unregister(objectName);
+        }
+    }
+
+    /**
+     * Batch commits and sequenced transfers are reported as their own operations.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyBatchAndSequencerMetrics() throws Exception
+    {
+        LedgerMetrics metrics = new LedgerMetrics();
+        Account.setMetricsSink(metrics);
+        try
+        {
+            Account source = new Account("metricsBatchSourceAccountId");
+            Account target = new Account("metricsBatchTargetAccountId");
+            source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+
+            TransferBatch batch = new TransferBatch(2);
+            batch.add(source, target, Amount.newBuilder().setValue(BigDecimal.TEN).build());
+            batch.add(source, target, Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+            batch.commit();
+            org.junit.Assert.assertEquals(1, metrics.getResultCount(LedgerOperation.BATCH, TransferResult.SUCCESS));
+            org.junit.Assert.assertEquals(1, metrics.getLatencyHistogram(LedgerOperation.BATCH).getCount());
+
+            try (LedgerSequencer sequencer = new LedgerSequencer(4, () -> FxRateTable.empty("inr"), Collections.emptyList()))
+            {
+                sequencer.start();
+                sequencer.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.ONE).build()).get();
+                sequencer.transferAmount(source, target, Amount.newBuilder().setValue(new BigDecimal(1000)).build()).get();
+            }
+            org.junit.Assert.assertEquals(2, metrics.getCount(LedgerOperation.SEQUENCED_TRANSFER));
+            org.junit.Assert.assertEquals(1, metrics.getResultCount(LedgerOperation.SEQUENCED_TRANSFER, TransferResult.INSUFFICIENT_BALANCE));
+            // neither goes through the single transfer path
+            org.junit.Assert.assertEquals(0, metrics.getCount(LedgerOperation.TRANSFER));
+        }
+        finally
+        {
+            Account.setMetricsSink(MetricsSink.NONE);
+        }
+    }
+
+    // MXBean maps are exposed as tabular data of key and value
+    private static Map<Object, Object> toMap(Object pTabularData)
+    {
+        Map<Object, Object> map = new HashMap<>();
+        for (Object row : ((TabularData) pTabularData).values())
+        {
+            CompositeData data = (CompositeData) row;
+            map.put(data.get("key"), data.get("value"));
+        }
+        return map;
+    }
+}
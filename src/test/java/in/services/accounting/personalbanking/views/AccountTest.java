@@ -2,6 +2,14 @@
 package in.services.accounting.personalbanking.views;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -70,4 +78,440 @@ public class AccountTest
         ankitAccount.withDrawAmount(t2Amount);
     }
 
+    /**
+     * Negative case, deposit leg of transfer fails due to different unit of measurement.
+     * Expected behaviour is withdraw leg is not applied either.
+     */
+    @Test
+    public void verifyTransferIsNotAppliedWhenDepositFails() throws AccountingOperationException
+    {
+        // target account holds usd, hence deposit of inr amount should fail
+        Account source = new Account("1");
+        Account target = new Account("2", "usd");
+        source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+
+        try
+        {
+            source.transferAmount(target, Amount.newBuilder().setValue(new BigDecimal(50)).build());
+            org.junit.Assert.fail("Transfer should be rejected.");
+        }
+        catch (AccountingOperationException e)
+        {
+            // expected
+        }
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(new BigDecimal(100)).build(), source.getNetAmount());
+        org.junit.Assert.assertEquals(1, source.getActivities().size());
+    }
+
+    /**
+     * Concurrent transfers in opposite directions between same pair of accounts must neither deadlock nor lose money.
+     */
+    @Test
+    public void verifyConcurrentTransfersInOppositeDirection() throws Exception
+    {
+        final Account first = new Account("1");
+        final Account second = new Account("2");
+        first.depositAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+        second.depositAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+
+        final int transfers = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        executorService.submit(() -> transferRepeatedly(start, first, second, transfers));
+        executorService.submit(() -> transferRepeatedly(start, second, first, transfers));
+        start.countDown();
+        executorService.shutdown();
+        org.junit.Assert.assertTrue("Transfers should not deadlock.", executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        BigDecimal total = first.getNetAmount().getValue().add(second.getNetAmount().getValue());
+        org.junit.Assert.assertEquals(0, new BigDecimal(2000).compareTo(total));
+    }
+
+    private static Void transferRepeatedly(CountDownLatch pStart, Account pSource, Account pTarget, int pTransfers) throws Exception
+    {
+        pStart.await();
+        for (int i = 0; i < pTransfers; i++)
+        {
+            pSource.transferAmount(pTarget, Amount.newBuilder().setValue(BigDecimal.ONE).build());
+        }
+        return null;
+    }
+
+    /**
+     * Every statement entry must show balance right after its own transaction, not current balance.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyStatementKeepsRunningBalance() throws AccountingOperationException
+    {
+        Account ankitAccount = new Account("1");
+        ankitAccount.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+        ankitAccount.depositAmount(Amount.newBuilder().setValue(new BigDecimal(50)).build());
+        ankitAccount.withDrawAmount(Amount.newBuilder().setValue(new BigDecimal(30)).build());
+
+        // mutating amounts handed out by account must not affect account or its statement
+        ankitAccount.getNetAmount().addAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+        ankitAccount.getActivities().get(0).getBalanceAmount().addAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+
+        List<Activity> activities = ankitAccount.getActivities();
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(new BigDecimal(100)).build(), activities.get(0).getBalanceAmount());
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(new BigDecimal(150)).build(), activities.get(1).getBalanceAmount());
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(new BigDecimal(120)).build(), activities.get(2).getBalanceAmount());
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(new BigDecimal(120)).build(), ankitAccount.getNetAmount());
+    }
+
+    /**
+     * Deposits of a hot account bypass account lock, yet none is lost and statement stays a consistent running balance.
+     */
+    @Test
+    public void verifyHotAccountDeposits() throws Exception
+    {
+        final Account merchant = new Account("merchant");
+        merchant.depositAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+        merchant.markHot();
+
+        final int depositors = 4;
+        final int deposits = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(depositors + 1);
+        for (int t = 0; t < depositors; t++)
+        {
+            executorService.submit(() -> {
+                start.await();
+                for (int i = 0; i < deposits; i++)
+                {
+                    merchant.depositAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+                }
+                return null;
+            });
+        }
+        executorService.submit(() -> {
+            start.await();
+            for (int i = 0; i < 1000; i++)
+            {
+                merchant.withDrawAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+            }
+            return null;
+        });
+        start.countDown();
+        executorService.shutdown();
+        org.junit.Assert.assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        org.junit.Assert.assertEquals(0, new BigDecimal(depositors * deposits).compareTo(merchant.getNetAmount().getValue()));
+        ActivityLog activityLog = merchant.getActivityLog();
+        org.junit.Assert.assertEquals(1 + depositors * deposits + 1000, activityLog.size());
+        long balance = 0;
+        for (int i = 0; i < activityLog.size(); i++)
+        {
+            long amount = activityLog.getTransactionMinorUnits(i);
+            balance += activityLog.getAccountingOperationType(i) == AccountingOperationType.WITHDRAW ? -amount : amount;
+            org.junit.Assert.assertEquals(balance, activityLog.getBalanceMinorUnits(i));
+        }
+    }
+
+    /**
+     * Hot deposits racing each other and withdrawals are stamped in append order: transaction times never go backwards, so
+     * searches by time find every entry.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyHotDepositTimesAreMonotonic() throws Exception
+    {
+        final Account merchant = new Account("merchant");
+        merchant.depositAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+        merchant.markHot();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(5);
+        for (int t = 0; t < 4; t++)
+        {
+            executorService.submit(() -> {
+                start.await();
+                for (int i = 0; i < 5000; i++)
+                {
+                    merchant.depositAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+                }
+                return null;
+            });
+        }
+        executorService.submit(() -> {
+            start.await();
+            for (int i = 0; i < 2000; i++)
+            {
+                merchant.withDrawAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+            }
+            return null;
+        });
+        start.countDown();
+        executorService.shutdown();
+        org.junit.Assert.assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        ActivityLog activityLog = merchant.getActivityLog();
+        org.junit.Assert.assertEquals(1 + 4 * 5000 + 2000, activityLog.size());
+        for (int i = 1; i < activityLog.size(); i++)
+        {
+            org.junit.Assert.assertTrue(activityLog.getTransactionNanos(i - 1) <= activityLog.getTransactionNanos(i));
+            org.junit.Assert.assertTrue(activityLog.indexOf(activityLog.getTransactionNanos(i)) <= i);
+        }
+        StatementSummary summary = activityLog.getSummary(AccountingOperationType.BOTH, Long.MIN_VALUE, Long.MAX_VALUE);
+        org.junit.Assert.assertEquals(1 + 4 * 5000, summary.getDepositCount());
+        org.junit.Assert.assertEquals(2000, summary.getWithdrawalCount());
+    }
+
+    /**
+     * Hot deposits racing each other and transfers into the account never take net amount past its maximum: exactly the
+     * credits that fit are accepted.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyConcurrentHotCreditsDontOverflow() throws Exception
+    {
+        final Account merchant = new Account("merchant");
+        final int room = 1000;
+        merchant.depositAmount(Amount.ofMinorUnits(merchant.getCurrencyCode(), Long.MAX_VALUE - room));
+        merchant.markHot();
+        final Account payer = new Account("payer");
+        payer.depositAmount(Amount.ofMinorUnits(payer.getCurrencyCode(), room));
+        final Amount oneMinorUnit = Amount.ofMinorUnits(merchant.getCurrencyCode(), 1);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(5);
+        List<Future<Integer>> accepted = new ArrayList<>();
+        for (int t = 0; t < 5; t++)
+        {
+            final boolean transfers = t == 0;
+            accepted.add(executorService.submit(() -> {
+                start.await();
+                int count = 0;
+                for (int i = 0; i < room; i++)
+                {
+                    TransferResult result = transfers ? payer.tryTransferAmount(merchant, oneMinorUnit) : merchant.tryDepositAmount(oneMinorUnit);
+                    org.junit.Assert.assertTrue(result == TransferResult.SUCCESS || result == TransferResult.INVALID_AMOUNT);
+                    count += result == TransferResult.SUCCESS ? 1 : 0;
+                }
+                return count;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> future : accepted)
+        {
+            total += future.get(30, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        org.junit.Assert.assertEquals(room, total);
+        org.junit.Assert.assertEquals(Long.MAX_VALUE, merchant.getNetAmount().toMinorUnits());
+        org.junit.Assert.assertEquals(TransferResult.INVALID_AMOUNT, merchant.tryDepositAmount(oneMinorUnit));
+        // every credit gave its room back: after a withdrawal there is room again
+        merchant.withDrawAmount(oneMinorUnit);
+        org.junit.Assert.assertEquals(TransferResult.SUCCESS, merchant.tryDepositAmount(oneMinorUnit));
+    }
+
+    /**
+     * Withdrawal larger than balance is rejected even though balance is positive.
+     */
+    @Test
+    public void verifyWithdrawBeyondBalanceIsRejected() throws AccountingOperationException
+    {
+        Account account = new Account("1");
+        account.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+        try
+        {
+            account.withDrawAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+            org.junit.Assert.fail("Withdrawal beyond balance should be rejected.");
+        }
+        catch (AccountingOperationException e)
+        {
+            org.junit.Assert.assertEquals(0, new BigDecimal(100).compareTo(account.getNetAmount().getValue()));
+        }
+        account.withDrawAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+        org.junit.Assert.assertEquals(0, BigDecimal.ZERO.compareTo(account.getNetAmount().getValue()));
+    }
+
+    /**
+     * Overdraft limit lets balance go below zero, holds reduce what can be withdrawn.
+     */
+    @Test
+    public void verifyOverdraftAndHolds() throws AccountingOperationException
+    {
+        Account account = new Account("1");
+        account.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+        account.setOverdraftLimit(Amount.newBuilder().setValue(new BigDecimal(50)).build());
+        long holdId = account.placeHold(Amount.newBuilder().setValue(new BigDecimal(120)).build());
+        org.junit.Assert.assertEquals(0, new BigDecimal(30).compareTo(account.getAvailableAmount().getValue()));
+
+        try
+        {
+            account.withDrawAmount(Amount.newBuilder().setValue(new BigDecimal(31)).build());
+            org.junit.Assert.fail("Held amount should not be available.");
+        }
+        catch (AccountingOperationException e)
+        {
+            // expected
+        }
+        account.captureHold(holdId);
+        org.junit.Assert.assertEquals(0, new BigDecimal(-20).compareTo(account.getNetAmount().getValue()));
+
+        account.withDrawAmount(Amount.newBuilder().setValue(new BigDecimal(30)).build());
+        org.junit.Assert.assertEquals(0, new BigDecimal(-50).compareTo(account.getNetAmount().getValue()));
+        org.junit.Assert.assertEquals(0, BigDecimal.ZERO.compareTo(account.getAvailableAmount().getValue()));
+    }
+
+    /**
+     * Concurrent withdrawals never take balance below overdraft limit.
+     */
+    @Test
+    public void verifyConcurrentWithdrawalsRespectFunds() throws Exception
+    {
+        final Account account = new Account("1");
+        account.depositAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+        account.setOverdraftLimit(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+
+        final int threads = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            executorService.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++)
+                {
+                    try
+                    {
+                        account.withDrawAmount(Amount.newBuilder().setValue(new BigDecimal(3)).build());
+                    }
+                    catch (AccountingOperationException e)
+                    {
+                        // insufficient funds
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        org.junit.Assert.assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        // 1100 available, 366 withdrawals of 3 fit
+        org.junit.Assert.assertEquals(0, new BigDecimal(-98).compareTo(account.getNetAmount().getValue()));
+        org.junit.Assert.assertEquals(1 + 366, account.getActivities().size());
+    }
+
+    /**
+     * Declined operations are reported as results and leave account unchanged.
+     */
+    @Test
+    public void verifyDeclinesAreReportedAsResults() throws AccountingOperationException
+    {
+        Account account = new Account("1");
+        Account usdAccount = new Account("2", "usd");
+        org.junit.Assert.assertEquals(TransferResult.SUCCESS, account.tryDepositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build()));
+        org.junit.Assert.assertEquals(TransferResult.INSUFFICIENT_BALANCE, account.tryWithDrawAmount(Amount.newBuilder().setValue(new BigDecimal(101)).build()));
+        org.junit.Assert.assertEquals(TransferResult.INVALID_AMOUNT, account.tryWithDrawAmount(Amount.newBuilder().setValue(new BigDecimal("0.001")).build()));
+        org.junit.Assert.assertEquals(TransferResult.CURRENCY_MISMATCH, account.tryDepositAmount(Amount.newBuilder().setValue(BigDecimal.ONE).setUnitOfMeasurement("usd").build()));
+        org.junit.Assert.assertEquals(TransferResult.CURRENCY_MISMATCH, account.tryTransferAmount(usdAccount, Amount.newBuilder().setValue(BigDecimal.ONE).build()));
+        org.junit.Assert.assertEquals(TransferResult.NO_EXCHANGE_RATE, account.tryTransferAmount(usdAccount, Amount.newBuilder().setValue(BigDecimal.ONE).build(), FxRateTable.empty("usd")));
+        org.junit.Assert.assertEquals(TransferResult.SUCCESS, account.tryWithDrawAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build()));
+        org.junit.Assert.assertEquals(2, account.getActivities().size());
+    }
+
+    /**
+     * Snapshots read while deposits are being made always match one committed deposit: net amount, number of activities and
+     * last activity agree.
+     */
+    @Test
+    public void verifyBalanceSnapshotIsConsistent() throws Exception
+    {
+        final Account account = new Account("1");
+        org.junit.Assert.assertFalse(account.getBalanceSnapshot().getLastActivity().isPresent());
+
+        final int deposits = 20_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        executorService.submit(() -> {
+            start.await();
+            Amount amount = Amount.newBuilder().setValue(BigDecimal.ONE).build();
+            for (int i = 0; i < deposits; i++)
+            {
+                account.depositAmount(amount);
+            }
+            return null;
+        });
+        List<Future<Void>> readers = new ArrayList<>();
+        for (int t = 0; t < 2; t++)
+        {
+            readers.add(executorService.submit(() -> {
+                start.await();
+                BalanceSnapshot snapshot;
+                do
+                {
+                    snapshot = account.getBalanceSnapshot();
+                    org.junit.Assert.assertEquals(snapshot.getActivityCount() * 100L, snapshot.getNetMinorUnits());
+                    if (snapshot.getActivityCount() > 0)
+                    {
+                        org.junit.Assert.assertEquals(snapshot.getNetMinorUnits(), snapshot.getLastActivity().get().getBalanceMinorUnits());
+                    }
+                }
+                while (snapshot.getActivityCount() < deposits);
+                return null;
+            }));
+        }
+        start.countDown();
+        executorService.shutdown();
+        org.junit.Assert.assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+        for (Future<Void> reader : readers)
+        {
+            // rethrows failed assertion of reader
+            reader.get();
+        }
+
+        BalanceSnapshot snapshot = account.getBalanceSnapshot();
+        org.junit.Assert.assertEquals(0, new BigDecimal(deposits).compareTo(snapshot.getNetAmount().getValue()));
+        org.junit.Assert.assertEquals(AccountingOperationType.DEPOSIT, snapshot.getLastActivity().get().getAccountingOperationType());
+        org.junit.Assert.assertEquals(snapshot.getVersion(), account.getBalanceSnapshot().getVersion());
+    }
+
+    /**
+     * Zero and negative amounts are declined by every entry point, so they can't bypass funds rule, overdraft limit or holds.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyNonPositiveAmountsAreRejected() throws AccountingOperationException
+    {
+        Account source = new Account("1");
+        Account target = new Account("2");
+        source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(500)).build());
+        Amount negative = Amount.newBuilder().setValue(new BigDecimal(-900)).build();
+        Amount zero = Amount.newBuilder().setValue(BigDecimal.ZERO).build();
+
+        org.junit.Assert.assertEquals(TransferResult.INVALID_AMOUNT, source.tryTransferAmount(target, negative));
+        org.junit.Assert.assertEquals(TransferResult.INVALID_AMOUNT, source.tryTransferAmount(target, zero));
+        org.junit.Assert.assertEquals(TransferResult.INVALID_AMOUNT, target.tryDepositAmount(negative));
+        org.junit.Assert.assertEquals(TransferResult.INVALID_AMOUNT, source.tryWithDrawAmount(negative));
+        org.junit.Assert.assertEquals(TransferResult.INVALID_AMOUNT, source.tryWithDrawAmount(zero));
+        try
+        {
+            target.depositAmount(negative);
+            org.junit.Assert.fail("Negative deposit should be rejected.");
+        }
+        catch (AccountingOperationException e)
+        {
+            // expected
+        }
+
+        TransferBatch transferBatch = new TransferBatch(2);
+        transferBatch.add(source, target, negative);
+        transferBatch.add(target, source, zero);
+        org.junit.Assert.assertEquals(Arrays.asList(TransferResult.INVALID_AMOUNT, TransferResult.INVALID_AMOUNT), transferBatch.commit());
+
+        org.junit.Assert.assertEquals(0, new BigDecimal(500).compareTo(source.getNetAmount().getValue()));
+        org.junit.Assert.assertEquals(0, BigDecimal.ZERO.compareTo(target.getNetAmount().getValue()));
+        org.junit.Assert.assertEquals(1, source.getActivities().size());
+        org.junit.Assert.assertEquals(0, target.getActivities().size());
+    }
 }
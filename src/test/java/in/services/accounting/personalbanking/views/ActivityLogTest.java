@@ -0,0 +1,350 @@
+package in.services.accounting.personalbanking.views;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class ActivityLogTest
+{
+    /**
+     * Verify entries spanning several chunks are stored and read back in order.
+     */
+    @Test
+    public void verifyAppendAcrossChunks()
+    {
+        ActivityLog activityLog = new ActivityLog(Currencies.codeOf("inr"));
+        int entries = ActivityLog.CHUNK_SIZE * 3 + 5;
+        for (int i = 0; i < entries; i++)
+        {
+            activityLog.append(i, i % 2 == 0 ? AccountingOperationType.DEPOSIT : AccountingOperationType.WITHDRAW, i, i * 10L);
+        }
+
+        org.junit.Assert.assertEquals(entries, activityLog.size());
+        for (int i = 0; i < entries; i++)
+        {
+            org.junit.Assert.assertEquals(i, activityLog.getTransactionNanos(i));
+            org.junit.Assert.assertEquals(i * 10L, activityLog.getBalanceMinorUnits(i));
+        }
+        List<Activity> activities = activityLog.asList();
+        org.junit.Assert.assertEquals(entries, activities.size());
+        org.junit.Assert.assertEquals(AccountingOperationType.WITHDRAW, activities.get(entries - 2).getAccountingOperationType());
+        org.junit.Assert.assertEquals(Amount.ofMinorUnits(activityLog.getCurrencyCode(), 10L * (entries - 1)), activities.get(entries - 1).getBalanceAmount());
+    }
+
+    /**
+     * Transaction time never goes backwards even if appended time does.
+     */
+    @Test
+    public void verifyTransactionTimeIsNonDecreasing()
+    {
+        ActivityLog activityLog = new ActivityLog(Currencies.codeOf("inr"));
+        activityLog.append(100, AccountingOperationType.DEPOSIT, 1, 1);
+        activityLog.append(50, AccountingOperationType.DEPOSIT, 1, 2);
+        org.junit.Assert.assertEquals(100, activityLog.getTransactionNanos(1));
+    }
+
+    /**
+     * Reader running concurrently with writer always observes fully written entries.
+     */
+    @Test
+    public void verifyConcurrentReaderSeesCompleteEntries() throws InterruptedException
+    {
+        final ActivityLog activityLog = new ActivityLog(Currencies.codeOf("inr"));
+        final int entries = ActivityLog.CHUNK_SIZE * 20;
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get())
+            {
+                int size = activityLog.size();
+                for (int i = Math.max(0, size - 64); i < size; i++)
+                {
+                    if (activityLog.getBalanceMinorUnits(i) != i + 1L)
+                    {
+                        failure.set("Incomplete entry at " + i);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < entries; i++)
+        {
+            activityLog.append(i, AccountingOperationType.DEPOSIT, 1, i + 1L);
+        }
+        done.set(true);
+        reader.join();
+        org.junit.Assert.assertNull(failure.get(), failure.get());
+    }
+
+    /**
+     * Verify range queries by time and operation type.
+     */
+    @Test
+    public void verifyFilteringByTimeAndType()
+    {
+        ActivityLog activityLog = new ActivityLog(Currencies.codeOf("inr"));
+        for (int i = 0; i < 10; i++)
+        {
+            activityLog.append(i * 100, i % 3 == 0 ? AccountingOperationType.WITHDRAW : AccountingOperationType.DEPOSIT, 1, i);
+        }
+
+        org.junit.Assert.assertEquals(3, activityLog.indexOf(201));
+        org.junit.Assert.assertEquals(10, activityLog.indexOf(2000));
+
+        List<Integer> indexes = new ArrayList<>();
+        activityLog.forEachIndex(AccountingOperationType.BOTH, 200, 500, indexes::add);
+        org.junit.Assert.assertEquals(Arrays.asList(2, 3, 4), indexes);
+
+        indexes.clear();
+        activityLog.forEachIndex(AccountingOperationType.WITHDRAW, 0, 900, indexes::add);
+        org.junit.Assert.assertEquals(Arrays.asList(0, 3, 6), indexes);
+
+        indexes.clear();
+        activityLog.forEachIndex(AccountingOperationType.DEPOSIT, 250, 800, indexes::add);
+        org.junit.Assert.assertEquals(Arrays.asList(4, 5, 7), indexes);
+    }
+
+    /**
+     * Verify period summaries taken from day totals match a scan of the same entries, for ranges starting and ending inside
+     * days, on day boundaries, and outside of the statement.
+     */
+    @Test
+    public void verifySummaryMatchesScan()
+    {
+        long day = 86_400_000_000_000L;
+        ActivityLog activityLog = new ActivityLog(Currencies.codeOf("inr"));
+        long balance = 0;
+        for (int i = 0; i < 3000; i++)
+        {
+            // about 40 entries a day, every fifth day without entries
+            long nanos = (i / 40) * day + (i % 40) * (day / 40);
+            nanos += (nanos / day) % 5 == 4 ? day : 0;
+            AccountingOperationType type = i % 3 == 0 ? AccountingOperationType.WITHDRAW : AccountingOperationType.DEPOSIT;
+            balance += type == AccountingOperationType.DEPOSIT ? i : -i;
+            activityLog.append(nanos, type, i, balance);
+        }
+
+        long[] bounds = { -day, 0, day / 3, day, 2 * day + 7, 10 * day, 10 * day + day / 2, 40 * day, 75 * day + 1, 100 * day };
+        for (long from : bounds)
+        {
+            for (long to : bounds)
+            {
+                for (AccountingOperationType type : AccountingOperationType.values())
+                {
+                    long deposits = 0;
+                    long withdrawals = 0;
+                    int depositCount = 0;
+                    int withdrawalCount = 0;
+                    for (int index = 0; index < activityLog.size(); index++)
+                    {
+                        long nanos = activityLog.getTransactionNanos(index);
+                        AccountingOperationType entryType = activityLog.getAccountingOperationType(index);
+                        if (nanos < from || nanos >= to || (type != AccountingOperationType.BOTH && type != entryType))
+                        {
+                            continue;
+                        }
+                        if (entryType == AccountingOperationType.DEPOSIT)
+                        {
+                            deposits += activityLog.getTransactionMinorUnits(index);
+                            depositCount++;
+                        }
+                        else
+                        {
+                            withdrawals += activityLog.getTransactionMinorUnits(index);
+                            withdrawalCount++;
+                        }
+                    }
+                    StatementSummary summary = activityLog.getSummary(type, from, to);
+                    String range = type + " [" + from + ", " + to + ")";
+                    org.junit.Assert.assertEquals(range, deposits, summary.getTotalDeposits().toMinorUnitsOrInvalid());
+                    org.junit.Assert.assertEquals(range, withdrawals, summary.getTotalWithdrawals().toMinorUnitsOrInvalid());
+                    org.junit.Assert.assertEquals(range, depositCount, summary.getDepositCount());
+                    org.junit.Assert.assertEquals(range, withdrawalCount, summary.getWithdrawalCount());
+                }
+            }
+            int start = activityLog.indexOf(from);
+            StatementSummary summary = activityLog.getSummary(AccountingOperationType.BOTH, from, 100 * day);
+            org.junit.Assert.assertEquals(start == 0 ? 0 : activityLog.getBalanceMinorUnits(start - 1), summary.getOpeningBalance().toMinorUnitsOrInvalid());
+            org.junit.Assert.assertEquals(balance, summary.getClosingBalance().toMinorUnitsOrInvalid());
+        }
+    }
+
+    /**
+     * Old full chunks move to archive segments and read back unchanged, appending continues on heap.
+     */
+    @Test
+    public void verifyArchivedEntriesAreReadInPlace() throws IOException
+    {
+        Path directory = Files.createTempDirectory("archive");
+        try (ActivityArchive activityArchive = new ActivityArchive(directory, 2))
+        {
+            ActivityLog activityLog = new ActivityLog(Currencies.codeOf("inr"));
+            int entries = ActivityLog.CHUNK_SIZE * 3 + 5;
+            for (int i = 0; i < entries; i++)
+            {
+                activityLog.append(i, i % 2 == 0 ? AccountingOperationType.DEPOSIT : AccountingOperationType.WITHDRAW, i, i * 10L);
+            }
+
+            // last chunk is not full and third chunk is not old enough
+            org.junit.Assert.assertEquals(ActivityLog.CHUNK_SIZE * 2, activityLog.archive(activityArchive, ActivityLog.CHUNK_SIZE * 2 + 1));
+            org.junit.Assert.assertEquals(0, activityLog.archive(activityArchive, ActivityLog.CHUNK_SIZE * 2 + 1));
+            org.junit.Assert.assertEquals(ActivityLog.CHUNK_SIZE, activityLog.archive(activityArchive, Long.MAX_VALUE));
+            org.junit.Assert.assertEquals(ActivityLog.CHUNK_SIZE * 3, activityLog.getArchivedSize());
+            org.junit.Assert.assertEquals(2, activityArchive.getSegmentCount());
+
+            activityLog.append(entries, AccountingOperationType.DEPOSIT, entries, entries * 10L);
+            for (int i = 0; i <= entries; i++)
+            {
+                org.junit.Assert.assertEquals(i, activityLog.getTransactionNanos(i));
+                org.junit.Assert.assertEquals(i, activityLog.getTransactionMinorUnits(i));
+                org.junit.Assert.assertEquals(i * 10L, activityLog.getBalanceMinorUnits(i));
+                org.junit.Assert.assertEquals(i % 2 == 0 || i == entries ? AccountingOperationType.DEPOSIT : AccountingOperationType.WITHDRAW,
+                        activityLog.getAccountingOperationType(i));
+            }
+            List<Integer> indexes = new ArrayList<>();
+            activityLog.forEachIndex(AccountingOperationType.WITHDRAW, 100, 106, indexes::add);
+            org.junit.Assert.assertEquals(Arrays.asList(101, 103, 105), indexes);
+
+            // postings of archived entries are read from archive, later ones from heap
+            int heapStart = ActivityLog.CHUNK_SIZE * 3;
+            indexes.clear();
+            activityLog.forEachIndex(AccountingOperationType.DEPOSIT, heapStart - 4, Long.MAX_VALUE, indexes::add);
+            org.junit.Assert.assertEquals(Arrays.asList(heapStart - 4, heapStart - 2, heapStart, heapStart + 2, heapStart + 4, entries), indexes);
+            StatementSummary summary = activityLog.getSummary(AccountingOperationType.BOTH, ActivityLog.CHUNK_SIZE + 1, Long.MAX_VALUE);
+            org.junit.Assert.assertEquals((entries - ActivityLog.CHUNK_SIZE) / 2 + 1, summary.getDepositCount());
+            org.junit.Assert.assertEquals((entries - ActivityLog.CHUNK_SIZE) / 2, summary.getWithdrawalCount());
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.walk(directory))
+            {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Reopened archive keeps regions written before, allocates after them, and a log restored from those regions and its day
+     * index reads the same entries, postings and day totals without copying them to heap.
+     */
+    @Test
+    public void verifyArchiveSurvivesReopen() throws IOException
+    {
+        Path directory = Files.createTempDirectory("archive");
+        try
+        {
+            ActivityLog activityLog = new ActivityLog(Currencies.codeOf("inr"));
+            int entries = ActivityLog.CHUNK_SIZE * 3;
+            for (int i = 0; i < entries; i++)
+            {
+                activityLog.append(i * 1_000_000_000_000L, i % 2 == 0 ? AccountingOperationType.DEPOSIT : AccountingOperationType.WITHDRAW, i, i * 10L);
+            }
+            int[][] positions = new int[3][];
+            try (ActivityArchive activityArchive = new ActivityArchive(directory, 2))
+            {
+                activityLog.archive(activityArchive, Long.MAX_VALUE);
+                for (int chunk = 0; chunk < 3; chunk++)
+                {
+                    ActivityArchive.Region region = activityLog.getArchivedRegion(chunk);
+                    positions[chunk] = new int[] { region.getSegment(), region.getIndex() };
+                }
+            }
+
+            try (ActivityArchive activityArchive = new ActivityArchive(directory, 2))
+            {
+                org.junit.Assert.assertEquals(2, activityArchive.getSegmentCount());
+                ActivityArchive.Region next = activityArchive.allocate();
+                org.junit.Assert.assertEquals(1, next.getSegment());
+                org.junit.Assert.assertEquals(1, next.getIndex());
+                try
+                {
+                    activityArchive.getRegion(1, 1);
+                    org.junit.Assert.fail("Unwritten region was handed out.");
+                }
+                catch (IOException e)
+                {
+                    org.junit.Assert.assertTrue(e.getMessage().contains("No archived chunk"));
+                }
+
+                ActivityLog restored = new ActivityLog(Currencies.codeOf("inr"));
+                for (int[] position : positions)
+                {
+                    restored.appendArchived(activityArchive.getRegion(position[0], position[1]));
+                }
+                ByteArrayOutputStream days = new ByteArrayOutputStream();
+                activityLog.writeDays(new DataOutputStream(days), entries, entries, activityLog.getTotals());
+                restored.readDays(new DataInputStream(new ByteArrayInputStream(days.toByteArray())));
+                restored.append(entries * 1_000_000_000_000L, AccountingOperationType.DEPOSIT, entries, entries * 10L);
+                org.junit.Assert.assertEquals(entries + 1, restored.size());
+                org.junit.Assert.assertEquals(entries, restored.getArchivedSize());
+                for (int i = 0; i <= entries; i++)
+                {
+                    org.junit.Assert.assertEquals(i * 1_000_000_000_000L, restored.getTransactionNanos(i));
+                    org.junit.Assert.assertEquals(i * 10L, restored.getBalanceMinorUnits(i));
+                }
+                List<Integer> indexes = new ArrayList<>();
+                restored.forEachIndex(AccountingOperationType.DEPOSIT, (entries - 3) * 1_000_000_000_000L, Long.MAX_VALUE, indexes::add);
+                org.junit.Assert.assertEquals(Arrays.asList(entries - 2, entries), indexes);
+                for (long from : new long[] { 0, 100_000_000_000_000L })
+                {
+                    StatementSummary expected = activityLog.getSummary(AccountingOperationType.BOTH, from, entries * 1_000_000_000_000L);
+                    StatementSummary actual = restored.getSummary(AccountingOperationType.BOTH, from, entries * 1_000_000_000_000L);
+                    org.junit.Assert.assertEquals(expected.toString(), actual.toString());
+                }
+            }
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.walk(directory))
+            {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Only one archive at a time uses a directory, it is free again once that archive is closed.
+     */
+    @Test
+    public void verifyArchiveDirectoryIsLocked() throws IOException
+    {
+        Path directory = Files.createTempDirectory("archive");
+        try
+        {
+            try (ActivityArchive activityArchive = new ActivityArchive(directory, 2))
+            {
+                try
+                {
+                    new ActivityArchive(directory, 2).close();
+                    org.junit.Assert.fail("Second archive on a directory in use was opened.");
+                }
+                catch (IOException e)
+                {
+                    org.junit.Assert.assertTrue(e.getMessage().contains("in use"));
+                }
+            }
+            new ActivityArchive(directory, 2).close();
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.walk(directory))
+            {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+}
@@ -50,6 +50,24 @@ public class AmountTest
         org.junit.Assert.assertEquals("Amount is not updated correctly.", new BigDecimal(100), secondAmount.getValue());
     }
 
+    /**
+     * Test case verifies subtraction of an amount larger than current value is rejected and leaves value unchanged.
+     */
+    @Test
+    public void verifyAmountSubtractionBeyondValue()
+    {
+        Amount firstAmount = Amount.newBuilder().setValue(new BigDecimal(100)).build();
+        try
+        {
+            firstAmount.subtractAmount(Amount.newBuilder().setValue(new BigDecimal(1000)).build());
+            org.junit.Assert.fail("Subtraction beyond value should be rejected.");
+        }
+        catch (AccountingOperationException e)
+        {
+            org.junit.Assert.assertEquals(new BigDecimal(100), firstAmount.getValue());
+        }
+    }
+
     /**
      * Test case verifies behaviour of raising exception when two different Amount object (with different unit of measurements) are used for addition.
      *
@@ -93,4 +111,49 @@ public class AmountTest
         org.junit.Assert.assertFalse(firstAmount.equals(secondAmount));
 
     }
+
+    /**
+     * Verify conversion between amount value and minor units of its currency.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyMinorUnitsConversion() throws AccountingOperationException
+    {
+        Amount amount = Amount.newBuilder().setValue(new BigDecimal("12.34")).build();
+        org.junit.Assert.assertEquals(1234L, amount.toMinorUnits());
+        org.junit.Assert.assertEquals(amount, Amount.ofMinorUnits(amount.getCurrencyCode(), 1234L));
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(new BigDecimal(300)).build(), Amount.ofMinorUnits(amount.getCurrencyCode(), 30000L));
+    }
+
+    /**
+     * Amount having more digits than currency minor unit can't be converted.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test(expected = AccountingOperationException.class)
+    public void verifyMinorUnitsConversionRejectsExtraDigits() throws AccountingOperationException
+    {
+        Amount.newBuilder().setValue(new BigDecimal("0.001")).build().toMinorUnits();
+    }
+
+    /**
+     * Amounts read back from minor units carry no trailing zeros, equality keeps taking scale into account.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyAmountOfMinorUnitsIsNormalized() throws AccountingOperationException
+    {
+        Account account = new Account("normalizedAccountId");
+        account.depositAmount(Amount.newBuilder().setValue(new BigDecimal("10.0")).build());
+
+        Amount netAmount = account.getNetAmount();
+        org.junit.Assert.assertEquals(new BigDecimal("10"), netAmount.getValue());
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(BigDecimal.TEN).build(), netAmount);
+        org.junit.Assert.assertEquals(Amount.newBuilder().setValue(BigDecimal.TEN).build().hashCode(), netAmount.hashCode());
+        org.junit.Assert.assertNotEquals(Amount.newBuilder().setValue(new BigDecimal("10.0")).build(), netAmount);
+        org.junit.Assert.assertEquals(0, new BigDecimal("10.0").compareTo(netAmount.getValue()));
+        org.junit.Assert.assertEquals(new BigDecimal("10.5"), Amount.ofMinorUnits(account.getCurrencyCode(), 1050).getValue());
+    }
 }
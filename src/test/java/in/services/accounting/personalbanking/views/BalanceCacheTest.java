@@ -0,0 +1,79 @@
+package in.services.accounting.personalbanking.views;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+public class BalanceCacheTest
+{
+    /**
+     * Balances are returned from cache until account is written, deposits, withdrawals and hot credits are seen on next read.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyBalanceIsNeverStale() throws AccountingOperationException
+    {
+        Beneficiary beneficiary = Beneficiary.newBuilder().setBeneficiaryId("1").setBeneficiaryName("cache").build();
+        Account account = new Account("cacheAccountId");
+        beneficiary.linkAccount(account);
+        BalanceCache balanceCache = new BalanceCache(10, beneficiary::getAccountById);
+
+        org.junit.Assert.assertEquals(0, balanceCache.getBalance("cacheAccountId").getValue().signum());
+        org.junit.Assert.assertEquals(0, balanceCache.getBalance("cacheAccountId").getValue().signum());
+        org.junit.Assert.assertEquals(1, balanceCache.getMissCount());
+        org.junit.Assert.assertEquals(1, balanceCache.getHitCount());
+
+        account.depositAmount(Amount.newBuilder().setValue(BigDecimal.TEN).build());
+        org.junit.Assert.assertEquals(0, BigDecimal.TEN.compareTo(balanceCache.getBalance("cacheAccountId").getValue()));
+        account.withDrawAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+        org.junit.Assert.assertEquals(0, new BigDecimal(9).compareTo(balanceCache.getBalance("cacheAccountId").getValue()));
+        account.markHot();
+        account.depositAmount(Amount.newBuilder().setValue(BigDecimal.ONE).build());
+        org.junit.Assert.assertEquals(0, BigDecimal.TEN.compareTo(balanceCache.getBalance("cacheAccountId").getValue()));
+        org.junit.Assert.assertEquals(0, BigDecimal.TEN.compareTo(balanceCache.getBalance("cacheAccountId").getValue()));
+        org.junit.Assert.assertEquals(4, balanceCache.getMissCount());
+        org.junit.Assert.assertEquals(2, balanceCache.getHitCount());
+
+        try
+        {
+            balanceCache.getBalance("unknownAccountId");
+            org.junit.Assert.fail("Unknown account should not be loaded.");
+        }
+        catch (AccountingOperationException e)
+        {
+            org.junit.Assert.assertEquals(1, balanceCache.size());
+        }
+    }
+
+    /**
+     * Cache stays within capacity, evicting least recently read account.
+     *
+     * @throws AccountingOperationException
+     */
+    @Test
+    public void verifyLeastRecentlyUsedEviction() throws AccountingOperationException
+    {
+        Beneficiary beneficiary = Beneficiary.newBuilder().setBeneficiaryId("1").setBeneficiaryName("cache").build();
+        for (int i = 0; i < 3; i++)
+        {
+            beneficiary.linkAccount(new Account("cacheAccountId" + i));
+        }
+        BalanceCache balanceCache = new BalanceCache(2, 1, beneficiary::getAccountById);
+
+        balanceCache.getBalance("cacheAccountId0");
+        balanceCache.getBalance("cacheAccountId1");
+        balanceCache.getBalance("cacheAccountId0");
+        balanceCache.getBalance("cacheAccountId2");
+        org.junit.Assert.assertEquals(2, balanceCache.size());
+        org.junit.Assert.assertEquals(1, balanceCache.getEvictionCount());
+
+        balanceCache.getBalance("cacheAccountId0");
+        org.junit.Assert.assertEquals(2, balanceCache.getHitCount());
+        balanceCache.getBalance("cacheAccountId1");
+        org.junit.Assert.assertEquals(2, balanceCache.getHitCount());
+        org.junit.Assert.assertEquals(4, balanceCache.getMissCount());
+    }
+}
@@ -1,7 +1,15 @@
 package in.services.accounting.personalbanking.views;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
 
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
 public class BeneficiaryTest
 {
     @Test
@@ -21,4 +29,44 @@ public class BeneficiaryTest
         beneficiaryCopy = Beneficiary.newBuilder().setBeneficiaryId("2").setBeneficiaryName("Ankit1").build();
         org.junit.Assert.assertFalse("Invalid Object Equality", beneficiary.equals(beneficiaryCopy));
     }
+
+    @Test
+    public void verifyAccountLookup() throws AccountingOperationException
+    {
+        Beneficiary beneficiary = Beneficiary.newBuilder().setBeneficiaryId("1").setBeneficiaryName("Ankit").build();
+        Account account = new Account("ankitAccountId");
+        beneficiary.linkAccount(account);
+        org.junit.Assert.assertSame(account, beneficiary.getAccountById("ankitAccountId"));
+        org.junit.Assert.assertSame(account, beneficiary.findAccountById("ankitAccountId").get());
+        org.junit.Assert.assertFalse("Account should not be found.", beneficiary.findAccountById("johnAccountId").isPresent());
+    }
+
+    @Test
+    public void verifyConcurrentLinking() throws Exception
+    {
+        Beneficiary beneficiary = Beneficiary.newBuilder().setBeneficiaryId("1").setBeneficiaryName("Ankit").build();
+        List<Account> before = beneficiary.getAccounts();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<?>> linkers = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            final int thread = t;
+            linkers.add(executorService.submit(() -> {
+                for (int i = 0; i < 1000; i++)
+                {
+                    beneficiary.linkAccount(new Account("account" + thread + "-" + i));
+                }
+            }));
+        }
+        for (Future<?> linker : linkers)
+        {
+            linker.get();
+        }
+        executorService.shutdown();
+
+        // list handed out earlier is a snapshot
+        org.junit.Assert.assertTrue(before.isEmpty());
+        org.junit.Assert.assertEquals(4000, beneficiary.getAccounts().size());
+        org.junit.Assert.assertTrue(beneficiary.findAccountById("account3-999").isPresent());
+    }
 }
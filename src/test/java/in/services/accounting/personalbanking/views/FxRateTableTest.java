@@ -0,0 +1,80 @@
+package in.services.accounting.personalbanking.views;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.exceptions.AccountingOperationException;
+
+public class FxRateTableTest
+{
+    /**
+     * Verify conversion between minor units of currencies with different scales, through base currency.
+     */
+    @Test
+    public void verifyConversion() throws AccountingOperationException
+    {
+        FxRateTable fxRateTable = FxRateTable.empty("usd")
+                .withRate("inr", new BigDecimal("83.25"))
+                .withRate("jpy", new BigDecimal("150"));
+        int usd = Currencies.codeOf("usd");
+        int inr = Currencies.codeOf("inr");
+        int jpy = Currencies.codeOf("jpy");
+
+        // 10.00 usd = 832.50 inr
+        org.junit.Assert.assertEquals(83250, fxRateTable.convert(usd, inr, 1000));
+        // 832.50 inr = 1500 jpy (jpy has no minor unit)
+        org.junit.Assert.assertEquals(1500, fxRateTable.convert(inr, jpy, 83250));
+        // 1 jpy = 0.555 inr, rounded to nearest
+        org.junit.Assert.assertEquals(56, fxRateTable.convert(jpy, inr, 1));
+        org.junit.Assert.assertEquals(7, fxRateTable.convert(usd, usd, 7));
+        org.junit.Assert.assertEquals(Long.MAX_VALUE / 2, fxRateTable.convert(jpy, jpy, Long.MAX_VALUE / 2));
+    }
+
+    /**
+     * Large amounts are converted exactly, a result which doesn't fit is rejected.
+     */
+    @Test
+    public void verifyConversionOfLargeAmounts() throws AccountingOperationException
+    {
+        FxRateTable fxRateTable = FxRateTable.empty("usd").withRate("inr", new BigDecimal("83.25"));
+        int usd = Currencies.codeOf("usd");
+        int inr = Currencies.codeOf("inr");
+        long minorUnits = 100_000_000_000_000_000L;
+        org.junit.Assert.assertEquals(new BigDecimal(minorUnits).multiply(new BigDecimal("83.25")).longValueExact(), fxRateTable.convert(usd, inr, minorUnits));
+        try
+        {
+            fxRateTable.convert(usd, inr, Long.MAX_VALUE / 10);
+            org.junit.Assert.fail("Overflow should be rejected.");
+        }
+        catch (AccountingOperationException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Pair without rate can't be converted, updating a table leaves it unchanged.
+     */
+    @Test
+    public void verifyMissingRateAndCopyOnWrite() throws AccountingOperationException
+    {
+        FxRateTable original = FxRateTable.empty("usd");
+        FxRateTable updated = original.withRate("eur", new BigDecimal("0.9"));
+        int usd = Currencies.codeOf("usd");
+        int eur = Currencies.codeOf("eur");
+
+        org.junit.Assert.assertFalse(original.hasRate(usd, eur));
+        org.junit.Assert.assertTrue(updated.hasRate(eur, usd));
+        org.junit.Assert.assertEquals(90, updated.convert(usd, eur, 100));
+        try
+        {
+            original.convert(usd, eur, 100);
+            org.junit.Assert.fail("Conversion without rate should be rejected.");
+        }
+        catch (AccountingOperationException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package in.services.accounting.personalbanking.views;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class LedgerSequencerTest
+{
+    /**
+     * Several producers wrapping a small ring many times: money is conserved and listeners see every applied transfer.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyConcurrentProducers() throws Exception
+    {
+        Account[] accounts = new Account[4];
+        for (int i = 0; i < accounts.length; i++)
+        {
+            accounts[i] = new Account("sequencedAccountId" + i);
+            accounts[i].depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+        }
+        AtomicLong appliedMinorUnits = new AtomicLong();
+        LedgerSequencer.TransferListener listener = (pSource, pTarget, pMinorUnits, pTargetMinorUnits) -> appliedMinorUnits.addAndGet(pTargetMinorUnits);
+        List<CompletableFuture<TransferResult>> futures = Collections.synchronizedList(new ArrayList<>());
+        try (LedgerSequencer sequencer = new LedgerSequencer(16, () -> FxRateTable.empty("inr"), Collections.singletonList(listener)))
+        {
+            sequencer.start();
+            Thread[] producers = new Thread[4];
+            for (int p = 0; p < producers.length; p++)
+            {
+                int offset = p;
+                producers[p] = new Thread(() ->
+                {
+                    for (int i = 0; i < 1000; i++)
+                    {
+                        futures.add(sequencer.transferAmount(accounts[(i + offset) % 4], accounts[(i + offset + 1) % 4], Amount.newBuilder().setValue(BigDecimal.ONE).build()));
+                    }
+                });
+                producers[p].start();
+            }
+            for (Thread producer : producers)
+            {
+                producer.join();
+            }
+        }
+
+        long succeeded = 0;
+        for (CompletableFuture<TransferResult> future : futures)
+        {
+            org.junit.Assert.assertTrue(future.isDone());
+            TransferResult result = future.get();
+            org.junit.Assert.assertTrue(result == TransferResult.SUCCESS || result == TransferResult.INSUFFICIENT_BALANCE);
+            succeeded += result == TransferResult.SUCCESS ? 1 : 0;
+        }
+        org.junit.Assert.assertEquals(4000, futures.size());
+        org.junit.Assert.assertEquals(succeeded * 100, appliedMinorUnits.get());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account account : accounts)
+        {
+            total = total.add(account.getNetAmount().getValue());
+        }
+        org.junit.Assert.assertEquals(0, new BigDecimal(400).compareTo(total));
+    }
+
+    /**
+     * Declined transfers are reported in order and aren't handed to listeners, cross-currency transfers use supplied rates.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyResults() throws Exception
+    {
+        Account source = new Account("sequencedSourceId");
+        Account target = new Account("sequencedTargetId", "usd");
+        source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(100)).build());
+        List<Long> applied = Collections.synchronizedList(new ArrayList<>());
+        FxRateTable rates = FxRateTable.empty("inr").withRate("usd", new BigDecimal("0.5"));
+        CompletableFuture<TransferResult> converted;
+        CompletableFuture<TransferResult> declined;
+        CompletableFuture<TransferResult> mismatched;
+        try (LedgerSequencer sequencer = new LedgerSequencer(4, () -> rates, Collections.singletonList((pSource, pTarget, pMinorUnits, pTargetMinorUnits) -> applied.add(pTargetMinorUnits))))
+        {
+            sequencer.start();
+            converted = sequencer.transferAmount(source, target, Amount.newBuilder().setValue(new BigDecimal(60)).build());
+            declined = sequencer.transferAmount(source, target, Amount.newBuilder().setValue(new BigDecimal(60)).build());
+            mismatched = sequencer.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.ONE).setUnitOfMeasurement("usd").build());
+        }
+
+        org.junit.Assert.assertEquals(TransferResult.SUCCESS, converted.get());
+        org.junit.Assert.assertEquals(TransferResult.INSUFFICIENT_BALANCE, declined.get());
+        org.junit.Assert.assertEquals(TransferResult.CURRENCY_MISMATCH, mismatched.get());
+        org.junit.Assert.assertEquals(Collections.singletonList(3000L), applied);
+        org.junit.Assert.assertEquals(0, new BigDecimal(30).compareTo(target.getNetAmount().getValue()));
+        org.junit.Assert.assertEquals(0, new BigDecimal(40).compareTo(source.getNetAmount().getValue()));
+    }
+
+    /**
+     * Invalid input is rejected before a sequence is claimed, later transfers still complete and sequencer closes.
+     *
+     * @throws Exception
+     */
+    @Test(timeout = 10000)
+    public void verifyInvalidInputDoesNotStall() throws Exception
+    {
+        Account source = new Account("sequencedInvalidSourceId");
+        Account target = new Account("sequencedInvalidTargetId");
+        source.depositAmount(Amount.newBuilder().setValue(new BigDecimal(10)).build());
+        CompletableFuture<TransferResult> transferred;
+        try (LedgerSequencer sequencer = new LedgerSequencer(4, () -> FxRateTable.empty("inr"), Collections.emptyList()))
+        {
+            sequencer.start();
+            try
+            {
+                sequencer.transferAmount(source, target, null);
+                org.junit.Assert.fail("Null amount must be rejected.");
+            }
+            catch (NullPointerException e)
+            {
+                // expected
+            }
+            try
+            {
+                sequencer.transferAmount(null, target, Amount.newBuilder().setValue(BigDecimal.ONE).build());
+                org.junit.Assert.fail("Null source must be rejected.");
+            }
+            catch (NullPointerException e)
+            {
+                // expected
+            }
+            transferred = sequencer.transferAmount(source, target, Amount.newBuilder().setValue(BigDecimal.ONE).build());
+            org.junit.Assert.assertEquals(TransferResult.SUCCESS, transferred.get());
+        }
+        org.junit.Assert.assertEquals(0, BigDecimal.ONE.compareTo(target.getNetAmount().getValue()));
+    }
+}
@@ -0,0 +1,180 @@
+package in.services.accounting.personalbanking.views;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class StatementExporterTest
+{
+    /**
+     * Binary export of ranges starting and ending inside chunks, with archived (transferred from segment files) and heap chunks,
+     * reads back as the same entries.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyBinaryExport() throws Exception
+    {
+        Path directory = Files.createTempDirectory("export");
+        try (ActivityArchive activityArchive = new ActivityArchive(directory.resolve("archive"), 2))
+        {
+            Account account = newAccount();
+            org.junit.Assert.assertEquals(ActivityLog.CHUNK_SIZE * 2, account.archiveActivities(activityArchive, Instant.ofEpochSecond(0, ActivityLog.CHUNK_SIZE * 2L)));
+            ActivityLog activityLog = account.getActivityLog();
+            StatementExporter statementExporter = new StatementExporter();
+            Path file = directory.resolve("statement.bin");
+
+            int[][] ranges = { { 0, activityLog.size() }, { 100, ActivityLog.CHUNK_SIZE * 2 + 50 }, { 1500, 1600 }, { 10, 10 } };
+            for (int[] range : ranges)
+            {
+                int exported = statementExporter.exportBinary(account, Instant.ofEpochSecond(0, range[0]), Instant.ofEpochSecond(0, range[1]), file);
+                org.junit.Assert.assertEquals(range[1] - range[0], exported);
+
+                DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+                org.junit.Assert.assertEquals(StatementExporter.BINARY_MAGIC, input.readInt());
+                org.junit.Assert.assertEquals(StatementExporter.BINARY_VERSION, input.readShort());
+                org.junit.Assert.assertEquals("exportAccountId", readId(input));
+                org.junit.Assert.assertEquals("inr", readId(input));
+                org.junit.Assert.assertEquals(2, input.readByte());
+                org.junit.Assert.assertEquals(exported, input.readLong());
+                int index = range[0];
+                while (index < range[1])
+                {
+                    int count = input.readInt();
+                    org.junit.Assert.assertTrue(count > 0 && count <= ActivityLog.CHUNK_SIZE);
+                    for (int i = 0; i < count; i++)
+                    {
+                        org.junit.Assert.assertEquals(activityLog.getTransactionNanos(index + i), input.readLong());
+                    }
+                    for (int i = 0; i < count; i++)
+                    {
+                        org.junit.Assert.assertEquals(activityLog.getTransactionMinorUnits(index + i), input.readLong());
+                    }
+                    for (int i = 0; i < count; i++)
+                    {
+                        org.junit.Assert.assertEquals(activityLog.getBalanceMinorUnits(index + i), input.readLong());
+                    }
+                    for (int i = 0; i < count; i++)
+                    {
+                        org.junit.Assert.assertEquals(activityLog.getAccountingOperationType(index + i).ordinal(), input.readByte());
+                    }
+                    index += count;
+                }
+                org.junit.Assert.assertEquals(-1, input.read());
+            }
+        }
+        finally
+        {
+            delete(directory);
+        }
+    }
+
+    /**
+     * CSV export has a line per activity in the formats of statement lines, archived entries included.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyCsvExport() throws Exception
+    {
+        Path directory = Files.createTempDirectory("export");
+        try (ActivityArchive activityArchive = new ActivityArchive(directory.resolve("archive")))
+        {
+            Account account = newAccount();
+            account.archiveActivities(activityArchive, Instant.ofEpochSecond(0, ActivityLog.CHUNK_SIZE));
+            Path file = directory.resolve("statement.csv");
+
+            int exported = new StatementExporter().exportCsv(account, Instant.EPOCH, Instant.ofEpochSecond(1), file);
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+            org.junit.Assert.assertEquals(3000, exported);
+            org.junit.Assert.assertEquals(3001, lines.size());
+            org.junit.Assert.assertEquals("transactionDate,type,amount,balance,unitOfMeasurement", lines.get(0));
+            org.junit.Assert.assertEquals("1970-01-01T00:00:00Z,DEPOSIT,1.5,1.5,inr", lines.get(1));
+            org.junit.Assert.assertEquals("1970-01-01T00:00:00.000000003Z,WITHDRAW,0.01,4.49,inr", lines.get(4));
+            org.junit.Assert.assertEquals(expectedLine(account, 2999), lines.get(3000));
+        }
+        finally
+        {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Units of measurement outside ascii are written as utf-8, a unit holding separators is quoted.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void verifyCsvExportOfUnicodeUnit() throws Exception
+    {
+        Path directory = Files.createTempDirectory("export");
+        try
+        {
+            Account rupees = new Account("exportRupeeId", "\u20b9");
+            rupees.replayActivity(AccountingOperationType.DEPOSIT, 0, 150, 1);
+            Account quoted = new Account("exportQuotedId", "a,\"b\"");
+            quoted.replayActivity(AccountingOperationType.DEPOSIT, 0, 150, 1);
+            Path file = directory.resolve("statement.csv");
+
+            new StatementExporter().exportCsv(rupees, Instant.EPOCH, Instant.ofEpochSecond(1), file);
+            org.junit.Assert.assertEquals("1970-01-01T00:00:00Z,DEPOSIT,1.5,1.5,\u20b9", Files.readAllLines(file, StandardCharsets.UTF_8).get(1));
+
+            new StatementExporter().exportCsv(quoted, Instant.EPOCH, Instant.ofEpochSecond(1), file);
+            org.junit.Assert.assertEquals("1970-01-01T00:00:00Z,DEPOSIT,1.5,1.5,\"a,\"\"b\"\"\"", Files.readAllLines(file, StandardCharsets.UTF_8).get(1));
+        }
+        finally
+        {
+            delete(directory);
+        }
+    }
+
+    // 3000 activities at epoch nanos 0 to 2999, every fourth one a withdrawal
+    private static Account newAccount()
+    {
+        Account account = new Account("exportAccountId");
+        for (int i = 0; i < 3000; i++)
+        {
+            boolean withdrawal = i % 4 == 3;
+            account.replayActivity(withdrawal ? AccountingOperationType.WITHDRAW : AccountingOperationType.DEPOSIT, i, withdrawal ? 1 : 150, i + 1);
+        }
+        return account;
+    }
+
+    private static String expectedLine(Account pAccount, int pIndex)
+    {
+        ActivityLog activityLog = pAccount.getActivityLog();
+        StringBuilder expected = new StringBuilder();
+        StatementRenderer.appendInstant(expected, activityLog.getTransactionNanos(pIndex));
+        expected.append(',').append(activityLog.getAccountingOperationType(pIndex)).append(',');
+        StatementRenderer.appendDecimal(expected, activityLog.getTransactionMinorUnits(pIndex), 2);
+        expected.append(',');
+        StatementRenderer.appendDecimal(expected, activityLog.getBalanceMinorUnits(pIndex), 2);
+        return expected.append(",inr").toString();
+    }
+
+    private static String readId(DataInputStream pInput) throws IOException
+    {
+        byte[] id = new byte[pInput.readUnsignedShort()];
+        pInput.readFully(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private static void delete(Path pDirectory) throws IOException
+    {
+        try (Stream<Path> files = Files.walk(pDirectory))
+        {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package in.services.accounting.personalbanking.views;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import in.services.accounting.personalbanking.in.services.accounting.personalbanking.externalinterfaces.Printer;
+
+public class StatementRendererTest
+{
+    /**
+     * Rendered line must be identical to line built from activity (Instant and Amount toString).
+     */
+    @Test
+    public void verifyLineFormat()
+    {
+        ActivityLog activityLog = new ActivityLog(Currencies.codeOf("inr"));
+        Instant[] instants = {Instant.parse("2026-10-18T10:05:04.481313321Z"), Instant.parse("2026-10-18T10:05:04.481600Z"), Instant.parse("1999-02-28T23:59:59.120Z"),
+                Instant.parse("2000-01-01T00:00:00Z"), Instant.parse("1969-12-31T23:59:59.999999999Z"), Instant.parse("2024-02-29T12:00:00.000001Z")};
+        long[] amounts = {1, 10, 100, 12345, -250, 0};
+        for (int i = 0; i < instants.length; i++)
+        {
+            activityLog.append(ActivityLog.toEpochNanos(instants[i]), AccountingOperationType.DEPOSIT, amounts[i], -amounts[i]);
+        }
+
+        CollectingPrinter printer = new CollectingPrinter();
+        StatementRenderer renderer = new StatementRenderer(printer);
+        for (int i = 0; i < activityLog.size(); i++)
+        {
+            renderer.appendActivity(activityLog, i);
+        }
+        renderer.flush();
+
+        org.junit.Assert.assertEquals(instants.length, printer.lines.size());
+        for (int i = 0; i < activityLog.size(); i++)
+        {
+            Activity activity = activityLog.getActivity(i);
+            String expected = "Transaction Date :" + activity.getTransactionDate() + ", Type: " + activity.getAccountingOperationType() + ", transaction amount: " + activity.getTransactionAmount() + ", Balance :" + activity.getBalanceAmount();
+            org.junit.Assert.assertEquals(expected, printer.lines.get(i));
+        }
+    }
+
+    /**
+     * Long statements are printed in several batches, every line exactly once.
+     */
+    @Test
+    public void verifyBatching()
+    {
+        CollectingPrinter printer = new CollectingPrinter();
+        StatementRenderer renderer = new StatementRenderer(printer);
+        for (int i = 0; i < 1000; i++)
+        {
+            renderer.append("line ").append(Integer.toString(i)).endLine();
+        }
+        renderer.flush();
+
+        org.junit.Assert.assertEquals(1000, printer.getCounter().get());
+        org.junit.Assert.assertEquals("line 999", printer.lines.get(999));
+        org.junit.Assert.assertTrue("Lines should be printed in batches.", printer.calls < 10);
+    }
+
+    private static final class CollectingPrinter implements Printer
+    {
+        private final AtomicLong counter = new AtomicLong();
+
+        private final List<String> lines = new ArrayList<>();
+
+        private int calls;
+
+        @Override
+        public AtomicLong getCounter()
+        {
+            return counter;
+        }
+
+        @Override
+        public void print(String message)
+        {
+            lines.add(message);
+            counter.incrementAndGet();
+        }
+
+        @Override
+        public void printAll(CharSequence... messages)
+        {
+            calls++;
+            for (CharSequence message : messages)
+            {
+                print(message.toString());
+            }
+        }
+    }
+}